@@ -12,7 +12,10 @@ if exist target\battleships-1.0.0.jar (
     if not "%1"=="" set PORT=%1
     
     echo Starting Battleships Server on port !PORT!...
-    java -cp target\battleships-1.0.0.jar kingazm.net.Server -port !PORT!
+    REM archive from: mvn -Pcds package
+    set CDS=
+    if exist target\battleships.jsa set CDS=-XX:SharedArchiveFile=target\battleships.jsa
+    java !CDS! -jar target\battleships-1.0.0.jar -mode server -port !PORT!
 ) else (
     echo Error: battleships-1.0.0.jar not found.
     echo Please run: mvn clean package
@@ -9,7 +9,12 @@ cd "$(dirname "$0")/.."
 
 if [ -f "target/battleships-1.0.0.jar" ]; then
     echo "Starting Battleships Server on port $PORT..."
-    java -cp target/battleships-1.0.0.jar kingazm.net.Server -port $PORT
+    # archive from: mvn -Pcds package
+    CDS=""
+    if [ -f "target/battleships.jsa" ]; then
+        CDS="-XX:SharedArchiveFile=target/battleships.jsa"
+    fi
+    java $CDS -jar target/battleships-1.0.0.jar -mode server -port $PORT
 else
     echo "Error: battleships-1.0.0.jar not found."
     echo "Please run: mvn clean package"
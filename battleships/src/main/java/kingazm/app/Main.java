@@ -0,0 +1,37 @@
+package kingazm.app;
+
+import kingazm.net.Client;
+import kingazm.net.NodeConfig;
+import kingazm.net.Router;
+import kingazm.net.Server;
+
+/**
+ * Entry point of the jar: {@code -mode} picks the program, the other options configure it
+ * (see {@link NodeConfig}, which also reads {@code -config <file>}).
+ * <ul>
+ *   <li>{@code server} (default) - {@link Server}</li>
+ *   <li>{@code client} - {@link Client}</li>
+ *   <li>{@code router} - {@link Router}</li>
+ *   <li>{@code warmup} - {@link Warmup}, the training run for a class-data sharing archive</li>
+ *   <li>{@code manual} - {@link Manual}</li>
+ * </ul>
+ *
+ * <p>Usage: {@code java -jar battleships.jar -mode server|client|router|warmup|manual [options]}
+ */
+public class Main {
+
+    public static void main(String[] args) throws Exception {
+        NodeConfig config = NodeConfig.parse(args);
+        switch (config.mode()) {
+            case "server" -> Server.launch(config);
+            case "client" -> Client.launch(config);
+            case "router" -> Router.launch(config);
+            case "warmup" -> Warmup.launch(config);
+            case "manual" -> Manual.main(args);
+            default -> {
+                System.err.println("unknown mode: " + config.mode() + " (server, client, router, warmup or manual)");
+                System.exit(2);
+            }
+        }
+    }
+}
@@ -31,7 +31,7 @@ public class Manual {
             "Użyj instrukcji z sekcji SZYBKI START lub postępuj zgodnie z poniższymi krokami:\n" +
             "  1. Uruchom serwer na porcie (domyślnie na porcie 12345)\n" +
             "  2. Podłącz dwóch klientów:\n" +
-            "     $ java kingazm.net.Client -host localhost -port 12345\n" +
+            "     $ java -jar battleships-1.0.0.jar -mode client -host localhost -port 12345\n" +
             "  3. Serwer automatycznie sparuje graczy, gdy dojdzie drugi\n\n" +
 
             " SPOSÓB GRY:\n" +
@@ -57,13 +57,63 @@ public class Manual {
 
             "█ OPCJE SERWERA:\n" +
             "  - -port <numer>  - Zmień port (domyślnie 12345)\n" +
-            "  - Przykład: java Server -port 9999\n\n" +
+            "  - -map <plik>    - Mapa dla graczy, którzy nie przynieśli własnej\n" +
+            "  - -map-library <plik> - Biblioteka map (rekordy po 100 bajtów) dla turniejów\n" +
+            "  - -drain-timeout <s> - Przy wyłączaniu czekaj na koniec gier (domyślnie 60)\n" +
+            "  - -snapshot-dir <katalog> - Zapisz tam niedokończone gry przy wyłączaniu\n" +
+            "  - -admin-port <numer> - Lokalny port administracyjny (sessions, dump, kick,\n" +
+            "                     queue, drain, stats, top, rank)\n" +
+            "  - -backend       - Węzeł klastra za routerem (kingazm.net.Router)\n" +
+            "  - -threads <tryb> - connection (wątek na połączenie, domyślnie), actor lub\n" +
+            "                     actor:<n> (sesje jako aktorzy na n wątkach roboczych)\n" +
+            "  - -rate <n>      - Najwyżej n komunikatów na sekundę od klienta (domyślnie 20,\n" +
+            "                     0 wyłącza); szybszy klient jest spowalniany do tego tempa,\n" +
+            "                     a zalewający serwer zostaje rozłączony\n" +
+            "  - -max-line <bajty> - Najdłuższa przyjmowana linia (domyślnie 512)\n" +
+            "  - -heartbeat <s> - Co ile sekund ciszy serwer wysyła ping (domyślnie 15,\n" +
+            "                     0 wyłącza); klient odpowiada pong\n" +
+            "  - -heartbeat-timeout <s> - Po tylu sekundach bez odpowiedzi połączenie jest\n" +
+            "                     zrywane, a gra kończona (domyślnie 45)\n" +
+            "  - -tls <plik.p12> - Szyfruj połączenia (TLS 1.3) kluczem z magazynu PKCS#12;\n" +
+            "                     hasło w -tls-password lub BATTLESHIPS_TLS_PASSWORD\n" +
+            "  - -offheap <n>   - Trzymaj stan do n gier poza stertą (kolejne na stercie)\n" +
+            "  - -replay <plik> - Zapisuj powtórki zakończonych gier do pliku\n" +
+            "  - -ratings <katalog> - Trwały ranking ELO zalogowanych graczy (migawka + dziennik)\n" +
+            "  - -bot-timeout <ms> - Po tym czasie bez przeciwnika grasz z komputerem\n" +
+            "                     (domyślnie 30000, 0 wyłącza)\n" +
+            "  - Przykład: java -jar battleships-1.0.0.jar -mode server -port 9999\n\n" +
+
+            "█ STROJENIE SERWERA:\n" +
+            "  - -bot-threads <n> - Wątki botów (domyślnie połowa rdzeni)\n" +
+            "  - -bot-delay <ms> - Namysł bota przed ruchem (domyślnie 400)\n" +
+            "  - -mailbox <n>   - Pojemność skrzynki aktora sesji (domyślnie 64)\n" +
+            "  - -board-pool <n> - Plansze trzymane do ponownego użycia (domyślnie 256)\n" +
+            "  - -heartbeat-slots <n> - Najwięcej śledzonych połączeń (domyślnie 65536)\n" +
+            "  - -read-buffer <bajty> - Bufor odczytu połączenia (domyślnie 4096)\n" +
+            "  - -socket-buffer <bajty> - Bufory gniazd (domyślnie systemowe)\n" +
+            "  - -backlog <n>   - Kolejka połączeń czekających na przyjęcie\n" +
+            "  - -handshake-timeout <ms> - Limit uzgadniania TLS (domyślnie 10000)\n\n" +
+
+            "█ TRYBY I PLIK KONFIGURACJI:\n" +
+            "  - $ java -jar battleships-1.0.0.jar -mode server|client|router|warmup|manual\n" +
+            "  - -config <plik> - Opcje z pliku properties, klucze bez myślnika\n" +
+            "                     (np. heartbeat=15, backend=true); wiersz poleceń wygrywa\n\n" +
+
+            "█ KLASTER:\n" +
+            "  - Uruchom kilka serwerów z opcją -backend na różnych portach\n" +
+            "  - $ java -jar battleships-1.0.0.jar -mode router -port 12345 -backends localhost:12346,localhost:12347\n" +
+            "  - Klienci łączą się z routerem jak ze zwykłym serwerem\n\n" +
 
             "█ OPCJE KLIENTA:\n" +
             "  - -host <adres>      - Adres serwera (domyślnie localhost)\n" +
             "  - -port <numer>      - Port serwera (domyślnie 12345)\n" +
             "  - -retries <liczba>  - Ilość prób połączenia (domyślnie 5)\n" +
-            "  - -delay <ms>        - Opóźnienie między próbami (domyślnie 1000ms)\n\n" +
+            "  - -delay <ms>        - Opóźnienie między próbami (domyślnie 1000ms)\n" +
+            "  - -map <plik>        - Własna mapa (10 linii po 10 znaków # i .)\n" +
+            "  - -ansi              - Pełnoekranowy widok, odświeża tylko zmienione pola\n" +
+            "  - -login <nazwa>     - Graj pod nazwą: gra liczy się do rankingu ELO\n" +
+            "  - -tls <plik.p12>    - Połącz przez TLS, ufając certyfikatom z magazynu\n" +
+            "                         (default: zaufane urzędy JDK)\n\n" +
             
             "\n\n");
     }
@@ -0,0 +1,198 @@
+package kingazm.app;
+
+import kingazm.board.BoardConfig;
+import kingazm.board.BoardGenerator;
+import kingazm.board.MapValidator;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo statistics over {@link BoardGenerator} output: cell occupancy heatmap,
+ * ship orientation split and rule violations. Doubles as a stress test of the generator.
+ *
+ * <p>Maps are generated on a {@link ForkJoinPool}; every worker owns its generator and
+ * random source and counts into its own stripe of {@link StripedCounters}. Stripes are zeroed
+ * when a run starts and summed once the pool is done, so runs must not overlap.
+ *
+ * <p>Usage: {@code java kingazm.app.PlacementStats [-maps N] [-threads N] [-seed N]}
+ */
+public class PlacementStats {
+    private static final int ROWS = BoardConfig.ROWS;
+    private static final int COLS = BoardConfig.COLS;
+    private static final int CELLS = ROWS * COLS;
+    private static final int LEAF_SIZE = 1 << 14;
+
+    // layout of the totals: maps with a mast on each cell, then these
+    static final int HORIZONTAL = CELLS;
+    static final int VERTICAL = CELLS + 1;
+    static final int SINGLE = CELLS + 2;
+    static final int TOUCHING = CELLS + 3;
+    static final int BENT = CELLS + 4;
+    static final int WRONG_MASTS = CELLS + 5;
+    static final int MAPS = CELLS + 6;
+    static final int INVALID = CELLS + 7;
+    private static final int COUNTERS = CELLS + 8;
+
+    private final StripedCounters counters = new StripedCounters(COUNTERS);
+    private final AtomicLong seeds;
+    private final ThreadLocal<BoardGenerator> generators;
+    private final ThreadLocal<int[]> rowMasks = ThreadLocal.withInitial(() -> new int[ROWS]);
+
+    public PlacementStats(long seed) {
+        this.seeds = new AtomicLong(seed);
+        this.generators = ThreadLocal.withInitial(() ->
+                BoardGenerator.withRandom(new SplittableRandom(seeds.getAndAdd(0x9E3779B97F4A7C15L))));
+    }
+
+    private final class Batch extends RecursiveAction {
+        private final long count;
+
+        Batch(long count) {
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            if (count > LEAF_SIZE) {
+                long half = count / 2;
+                invokeAll(new Batch(half), new Batch(count - half));
+                return;
+            }
+            BoardGenerator generator = generators.get();
+            int[] rows = rowMasks.get();
+            long[] stripe = counters.stripe();
+            for (long i = 0; i < count; i++) {
+                analyze(generator.generateMap(), rows, stripe);
+            }
+        }
+    }
+
+    private static void analyze(String map, int[] rows, long[] s) {
+        int masts = 0;
+        for (int r = 0; r < ROWS; r++) {
+            int row = 0;
+            for (int c = 0; c < COLS; c++) {
+                if (map.charAt(r * COLS + c) == BoardConfig.MAST) {
+                    row |= 1 << c;
+                    s[r * COLS + c]++;
+                }
+            }
+            rows[r] = row;
+            masts += Integer.bitCount(row);
+        }
+
+        int expectedMasts = 0;
+        for (int size : BoardConfig.FLEET) {
+            expectedMasts += size;
+        }
+        if (masts != expectedMasts) {
+            s[WRONG_MASTS]++;
+        }
+
+        for (int r = 0; r < ROWS; r++) {
+            int row = rows[r];
+            int up = r > 0 ? rows[r - 1] : 0;
+            int down = r + 1 < ROWS ? rows[r + 1] : 0;
+            int horizontal = row & ((row << 1) | (row >>> 1));
+            int vertical = row & (up | down);
+
+            s[HORIZONTAL] += Integer.bitCount(horizontal & ~(row << 1));
+            s[VERTICAL] += Integer.bitCount(vertical & ~up);
+            s[SINGLE] += Integer.bitCount(row & ~horizontal & ~vertical);
+            s[BENT] += Integer.bitCount(horizontal & vertical);
+            s[TOUCHING] += Integer.bitCount(row & (down << 1)) + Integer.bitCount(row & (down >>> 1));
+        }
+        if (!MapValidator.isValid(map)) {
+            s[INVALID]++;
+        }
+        s[MAPS]++;
+    }
+
+    public long[] run(ForkJoinPool pool, long maps) {
+        counters.reset();
+        pool.invoke(new Batch(maps));
+        return counters.sum();
+    }
+
+    private static void report(long[] totals, double seconds) {
+        long maps = totals[MAPS];
+        System.out.printf("maps: %d in %.2f s (%.0f maps/s)%n", maps, seconds, maps / seconds);
+
+        System.out.println("\noccupancy heatmap (% of maps with a mast on the cell):");
+        double sum = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        for (int r = 0; r < ROWS; r++) {
+            StringBuilder line = new StringBuilder();
+            for (int c = 0; c < COLS; c++) {
+                double p = 100.0 * totals[r * COLS + c] / maps;
+                sum += p;
+                min = Math.min(min, p);
+                max = Math.max(max, p);
+                line.append(String.format("%6.2f", p));
+            }
+            System.out.println(line);
+        }
+
+        double mean = sum / CELLS;
+        double variance = 0;
+        double chiSquare = 0;
+        double expected = mean / 100.0 * maps;
+        double transposeSkew = 0;
+        double mirrorSkew = 0;
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLS; c++) {
+                long n = totals[r * COLS + c];
+                double p = 100.0 * n / maps;
+                variance += (p - mean) * (p - mean);
+                chiSquare += (n - expected) * (n - expected) / expected;
+                transposeSkew = Math.max(transposeSkew, relativeDiff(n, totals[c * COLS + r]));
+                mirrorSkew = Math.max(mirrorSkew, relativeDiff(n, totals[r * COLS + (COLS - 1 - c)]));
+            }
+        }
+        System.out.printf("%ncell occupancy: mean %.2f%%, min %.2f%%, max %.2f%%, cv %.4f, chi2 vs flat %.1f (df %d)%n",
+                mean, min, max, Math.sqrt(variance / CELLS) / mean, chiSquare, CELLS - 1);
+        System.out.printf("symmetry: max transpose skew %.4f, max mirror skew %.4f%n", transposeSkew, mirrorSkew);
+
+        long horizontal = totals[HORIZONTAL];
+        long vertical = totals[VERTICAL];
+        long oriented = Math.max(1, horizontal + vertical);
+        System.out.printf("%norientation: horizontal %.2f%%, vertical %.2f%%, single-mast ships %d%n",
+                100.0 * horizontal / oriented, 100.0 * vertical / oriented, totals[SINGLE]);
+        System.out.printf("violations: diagonal contacts %d, bent ships %d, wrong mast count %d, invalid maps %d%n",
+                totals[TOUCHING], totals[BENT], totals[WRONG_MASTS], totals[INVALID]);
+    }
+
+    private static double relativeDiff(long a, long b) {
+        long hi = Math.max(a, b);
+        return hi == 0 ? 0 : (double) Math.abs(a - b) / hi;
+    }
+
+    public static void main(String[] args) {
+        long maps = 10_000_000L;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-maps" -> maps = Long.parseLong(args[i + 1]);
+                case "-threads" -> threads = Integer.parseInt(args[i + 1]);
+                case "-seed" -> seed = Long.parseLong(args[i + 1]);
+                default -> System.err.println("unknown argument: " + args[i]);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        PlacementStats stats = new PlacementStats(seed);
+        long start = System.nanoTime();
+        long[] totals = stats.run(pool, maps);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.println("threads: " + threads + ", seed: " + seed);
+        report(totals, seconds);
+    }
+}
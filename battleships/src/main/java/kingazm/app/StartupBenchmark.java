@@ -0,0 +1,113 @@
+package kingazm.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first accepted connection of a fresh server JVM: from starting the process until a
+ * client has connected and read the server's first line. Each configuration is launched
+ * {@code -runs} times; without class-data sharing, with the JDK's default archive, and with
+ * an application archive when {@code -archive} names one (see {@link Warmup}).
+ *
+ * <p>Usage: {@code java -cp battleships.jar kingazm.app.StartupBenchmark [-runs N] [-archive battleships.jsa]}
+ */
+public class StartupBenchmark {
+    private static final long DEADLINE_MS = 30_000;
+
+    private final int runs;
+    private final Path archive;
+
+    public StartupBenchmark(int runs, Path archive) {
+        this.runs = runs;
+        this.archive = archive;
+    }
+
+    public void run() throws IOException, InterruptedException {
+        Map<String, List<String>> configurations = new LinkedHashMap<>();
+        configurations.put("no CDS", List.of("-Xshare:off"));
+        configurations.put("JDK CDS", List.of());
+        if (archive != null) {
+            configurations.put("AppCDS", List.of("-XX:SharedArchiveFile=" + archive));
+        }
+
+        System.out.printf("%-10s %10s %10s %10s%n", "", "min ms", "median ms", "max ms");
+        for (Map.Entry<String, List<String>> configuration : configurations.entrySet()) {
+            long[] millis = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                millis[run] = timeToAccept(configuration.getValue());
+            }
+            Arrays.sort(millis);
+            System.out.printf("%-10s %10d %10d %10d%n", configuration.getKey(), millis[0], millis[runs / 2], millis[runs - 1]);
+        }
+    }
+
+    private static long timeToAccept(List<String> jvmOptions) throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"),
+                Main.class.getName(), "-mode", "server", "-port", Integer.toString(port)));
+
+        long start = System.nanoTime();
+        Process server = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(DEADLINE_MS)) {
+                try (Socket socket = new Socket()) {
+                    socket.connect(new InetSocketAddress("localhost", port));
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    if (in.readLine() != null) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException e) {
+                    if (!server.isAlive()) {
+                        throw new IOException("server exited with " + server.exitValue() + ": " + command);
+                    }
+                    Thread.sleep(1);
+                }
+            }
+            throw new IOException("server did not accept within " + DEADLINE_MS + " ms");
+        } finally {
+            server.destroy();
+            if (!server.waitFor(10, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = 10;
+        Path archive = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-runs" -> runs = Integer.parseInt(args[i + 1]);
+                case "-archive" -> archive = Path.of(args[i + 1]);
+                default -> System.err.println("unknown argument: " + args[i]);
+            }
+        }
+        if (archive != null && !Files.isReadable(archive)) {
+            System.err.println("no archive at " + archive);
+            System.exit(2);
+        }
+        new StartupBenchmark(runs, archive).run();
+    }
+}
@@ -0,0 +1,49 @@
+package kingazm.app;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Primitive counters split into one padded stripe per thread, so a hot loop counts without
+ * touching shared state. Stripes are summed once the threads are done; {@link #reset()} and
+ * {@link #sum()} must not overlap with counting.
+ */
+final class StripedCounters {
+    private static final int PADDING = 16; // keeps stripes of different threads off the same cache line
+
+    private final int counters;
+    private final ConcurrentLinkedQueue<long[]> stripes = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<long[]> local;
+
+    StripedCounters(int counters) {
+        this.counters = counters;
+        this.local = ThreadLocal.withInitial(() -> {
+            long[] stripe = new long[counters + PADDING];
+            stripes.add(stripe);
+            return stripe;
+        });
+    }
+
+    /**
+     * The calling thread's stripe; only its first {@code counters} slots are summed.
+     */
+    long[] stripe() {
+        return local.get();
+    }
+
+    void reset() {
+        for (long[] stripe : stripes) {
+            Arrays.fill(stripe, 0);
+        }
+    }
+
+    long[] sum() {
+        long[] totals = new long[counters];
+        for (long[] stripe : stripes) {
+            for (int i = 0; i < counters; i++) {
+                totals[i] += stripe[i];
+            }
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,222 @@
+package kingazm.app;
+
+import kingazm.board.BoardConfig;
+import kingazm.board.BoardGenerator;
+import kingazm.bot.DensityTargeting;
+import kingazm.bot.HuntTargetStrategy;
+import kingazm.bot.RandomStrategy;
+import kingazm.bot.Strategy;
+import kingazm.engine.BoardState;
+import kingazm.engine.ShotResult;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+/**
+ * Round-robin tournament between {@link Strategy} implementations, played in-process
+ * straight on {@link BoardState}s, without sockets or the protocol layer.
+ *
+ * <p>Games are spread over a {@link ForkJoinPool}. Every worker owns its map generator, one
+ * instance of each strategy and a pair of boards, all reset between games instead of being
+ * reallocated, and counts into its own stripe of {@link StripedCounters}.
+ * Each pairing plays the same number of games, alternating who shoots first.
+ *
+ * <p>Usage: {@code java kingazm.app.Tournament [-games N] [-threads N] [-seed N] [-strategies a,b,...]}
+ */
+public class Tournament {
+    private static final int COLS = BoardConfig.COLS;
+    private static final int CELLS = BoardConfig.ROWS * COLS;
+    private static final int LEAF_SIZE = 1 << 10;
+
+    private static final Map<String, Function<RandomGenerator, Strategy>> STRATEGIES = new LinkedHashMap<>();
+
+    static {
+        STRATEGIES.put("density", DensityTargeting::new);
+        STRATEGIES.put("hunt", HuntTargetStrategy::new);
+        STRATEGIES.put("random", RandomStrategy::new);
+    }
+
+    // per strategy: games, wins, shots in won games; then draws and total games
+    static final int GAMES = 0;
+    static final int WINS = 1;
+    static final int SHOTS_TO_WIN = 2;
+    static final int PER_STRATEGY = 3;
+
+    private final List<String> names;
+    // every pairing twice, as {first, second} and swapped, so a game only picks a row
+    private final int[][] sides;
+    private final long gamesPerPairing;
+    final int draws;
+    final int total;
+    private final AtomicLong seeds;
+    private final StripedCounters stripes;
+    private final ThreadLocal<Worker> workers;
+
+    public Tournament(List<String> names, long gamesPerPairing, long seed) {
+        for (String name : names) {
+            if (!STRATEGIES.containsKey(name)) {
+                throw new IllegalArgumentException("unknown strategy: " + name + " (known: " + STRATEGIES.keySet() + ")");
+            }
+        }
+        this.names = List.copyOf(names);
+        this.gamesPerPairing = gamesPerPairing;
+        this.draws = names.size() * PER_STRATEGY;
+        this.total = draws + 1;
+        this.seeds = new AtomicLong(seed);
+        this.stripes = new StripedCounters(total + 1);
+
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = i + 1; j < names.size(); j++) {
+                pairs.add(new int[] {i, j});
+                pairs.add(new int[] {j, i});
+            }
+        }
+        this.sides = pairs.toArray(new int[0][]);
+        this.workers = ThreadLocal.withInitial(Worker::new);
+    }
+
+    /**
+     * Everything one pool thread needs to play games without allocating per game.
+     */
+    private final class Worker {
+        final BoardGenerator generator;
+        final Strategy[] strategies;
+        final BoardState[] boards;
+        final long[] counters = stripes.stripe();
+
+        Worker() {
+            SplittableRandom random = new SplittableRandom(seeds.getAndAdd(0x9E3779B97F4A7C15L));
+            generator = BoardGenerator.withRandom(random.split());
+            strategies = new Strategy[names.size()];
+            for (int i = 0; i < strategies.length; i++) {
+                strategies[i] = STRATEGIES.get(names.get(i)).apply(random.split());
+            }
+            boards = new BoardState[] {
+                    new BoardState(generator.generateMap()),
+                    new BoardState(generator.generateMap())
+            };
+        }
+
+        void play(int[] side) {
+            boards[0].reset(generator.generateMap());
+            boards[1].reset(generator.generateMap());
+            Strategy first = strategies[side[0]];
+            Strategy second = strategies[side[1]];
+            first.reset();
+            second.reset();
+
+            int shotsFirst = 0;
+            int shotsSecond = 0;
+            int winner = -1;
+            for (int move = 0; move < 2 * CELLS && winner < 0; move++) {
+                boolean firstMoves = (move & 1) == 0;
+                Strategy shooter = firstMoves ? first : second;
+                // side k plays on boards[k] and shoots at the other one
+                BoardState target = boards[firstMoves ? 1 : 0];
+                int cell = shooter.nextShot();
+                ShotResult result = target.fireAt(cell / COLS, cell % COLS);
+                shooter.onResult(cell, result);
+                if (firstMoves) {
+                    shotsFirst++;
+                } else {
+                    shotsSecond++;
+                }
+                if (result == ShotResult.LAST_SUNK) {
+                    winner = firstMoves ? side[0] : side[1];
+                }
+            }
+
+            counters[side[0] * PER_STRATEGY + GAMES]++;
+            counters[side[1] * PER_STRATEGY + GAMES]++;
+            if (winner < 0) {
+                counters[draws]++;
+            } else {
+                counters[winner * PER_STRATEGY + WINS]++;
+                counters[winner * PER_STRATEGY + SHOTS_TO_WIN] += winner == side[0] ? shotsFirst : shotsSecond;
+            }
+            counters[total]++;
+        }
+    }
+
+    private final class Batch extends RecursiveAction {
+        private final long from;
+        private final long to;
+
+        Batch(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                long mid = (from + to) >>> 1;
+                invokeAll(new Batch(from, mid), new Batch(mid, to));
+                return;
+            }
+            Worker worker = workers.get();
+            for (long game = from; game < to; game++) {
+                worker.play(sides[2 * (int) (game / gamesPerPairing) + (int) (game & 1)]);
+            }
+        }
+    }
+
+    /**
+     * Plays every pairing and sums the workers' counters.
+     */
+    public long[] run(ForkJoinPool pool) {
+        stripes.reset();
+        pool.invoke(new Batch(0, sides.length / 2 * gamesPerPairing));
+        return stripes.sum();
+    }
+
+    private void report(long[] totals, double seconds, int threads) {
+        long games = totals[total];
+        System.out.printf("games: %d in %.2f s (%.0f games/s on %d threads), draws: %d%n",
+                games, seconds, games / seconds, threads, totals[draws]);
+        System.out.printf("%n%-10s %10s %10s %8s %18s%n", "strategy", "games", "wins", "win %", "avg shots to win");
+        for (int i = 0; i < names.size(); i++) {
+            long played = totals[i * PER_STRATEGY + GAMES];
+            long wins = totals[i * PER_STRATEGY + WINS];
+            System.out.printf("%-10s %10d %10d %8.2f %18.2f%n", names.get(i), played, wins,
+                    played == 0 ? 0 : 100.0 * wins / played,
+                    wins == 0 ? 0 : (double) totals[i * PER_STRATEGY + SHOTS_TO_WIN] / wins);
+        }
+    }
+
+    public static void main(String[] args) {
+        long games = 100_000L;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        List<String> names = new ArrayList<>(STRATEGIES.keySet());
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-games" -> games = Long.parseLong(args[i + 1]);
+                case "-threads" -> threads = Integer.parseInt(args[i + 1]);
+                case "-seed" -> seed = Long.parseLong(args[i + 1]);
+                case "-strategies" -> names = List.of(args[i + 1].split(","));
+                default -> System.err.println("unknown argument: " + args[i]);
+            }
+        }
+
+        Tournament tournament = new Tournament(names, games, seed);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        long[] totals = tournament.run(pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.println("seed: " + seed + ", games per pairing: " + games);
+        tournament.report(totals, seconds, threads);
+    }
+}
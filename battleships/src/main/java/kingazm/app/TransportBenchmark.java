@@ -0,0 +1,192 @@
+package kingazm.app;
+
+import kingazm.net.BattleshipsSession;
+import kingazm.net.ClientEventLoop;
+import kingazm.net.Server;
+import kingazm.net.SweepingPlayer;
+import kingazm.net.Tls;
+
+import javax.net.ssl.SSLContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cost of TLS against plaintext, measured end to end through {@link ClientEventLoop} against
+ * in-process servers on loopback: time from connect to the server's first line (plain, full
+ * TLS handshake, resumed TLS session), and time per move over whole games between two
+ * programmatic players.
+ *
+ * <p>The TLS servers use a self-signed key store generated with {@code keytool} into a
+ * temporary directory. Rate limiting is off so the players can fire as fast as they like.
+ *
+ * <p>Usage: {@code java kingazm.app.TransportBenchmark [-connections N] [-games N]}
+ */
+public class TransportBenchmark {
+    private static final Logger logger = Logger.getLogger(TransportBenchmark.class.getName());
+    private static final String PASSWORD = "benchmark";
+
+    private final int connections;
+    private final int games;
+
+    public TransportBenchmark(int connections, int games) {
+        this.connections = connections;
+        this.games = games;
+    }
+
+    public void run() throws Exception {
+        Path dir = Files.createTempDirectory("battleships-tls");
+        Path keyStore = Tls.selfSignedKeyStore(dir.resolve("server.p12"), PASSWORD);
+        SSLContext serverContext = Tls.serverContext(keyStore, PASSWORD.toCharArray());
+
+        int plainPort = start(null);
+        int tlsPort = start(serverContext);
+
+        // warm up the JIT on every path before measuring
+        connect(plainPort, null, connections);
+        connect(tlsPort, client(keyStore), connections);
+        play(plainPort, null, Math.max(1, games / 4));
+        play(tlsPort, client(keyStore), Math.max(1, games / 4));
+
+        System.out.printf("%-22s %14s%n", "connect to first line", "us/connection");
+        System.out.printf("%-22s %14.1f%n", "plain", connect(plainPort, null, connections));
+        System.out.printf("%-22s %14.1f%n", "tls, full handshake", connectFresh(tlsPort, keyStore));
+        System.out.printf("%-22s %14.1f%n", "tls, resumed", connect(tlsPort, client(keyStore), connections));
+
+        System.out.printf("%n%-22s %14s%n", "games", "us/move");
+        System.out.printf("%-22s %14.1f%n", "plain", play(plainPort, null, games));
+        System.out.printf("%-22s %14.1f%n", "tls", play(tlsPort, client(keyStore), games));
+
+        Files.deleteIfExists(keyStore);
+        Files.deleteIfExists(dir);
+    }
+
+    private static SSLContext client(Path trustStore) throws Exception {
+        return Tls.clientContext(trustStore, PASSWORD.toCharArray());
+    }
+
+    private static int start(SSLContext tls) throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Server server = new Server(port);
+        server.setRateLimit(0);
+        if (tls != null) {
+            server.useTls(tls);
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "server on port " + port + " stopped", e);
+            }
+        }, "server-" + port);
+        thread.setDaemon(true);
+        thread.start();
+        while (true) {
+            try (java.net.Socket probe = new java.net.Socket("localhost", port)) {
+                return port;
+            } catch (IOException e) {
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    /**
+     * Connections made one after another through one context, so TLS sessions are resumed.
+     * @return mean microseconds per connection
+     */
+    private double connect(int port, SSLContext tls, int count) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            firstLine(port, tls);
+        }
+        return (System.nanoTime() - start) / 1e3 / count;
+    }
+
+    /**
+     * Connections each through a new context, so every one does the full handshake.
+     */
+    private double connectFresh(int port, Path trustStore) throws Exception {
+        long total = 0;
+        for (int i = 0; i < connections; i++) {
+            SSLContext fresh = client(trustStore);
+            long start = System.nanoTime();
+            firstLine(port, fresh);
+            total += System.nanoTime() - start;
+        }
+        return total / 1e3 / connections;
+    }
+
+    private static void firstLine(int port, SSLContext tls) throws IOException {
+        try (ClientEventLoop loop = new ClientEventLoop()) {
+            FirstLine listener = new FirstLine();
+            listener.session = new BattleshipsSession(listener);
+            loop.connect(listener.session, new InetSocketAddress("localhost", port), tls);
+            loop.run();
+        }
+    }
+
+    /**
+     * @return mean microseconds per move over all games
+     */
+    private static double play(int port, SSLContext tls, int count) throws IOException {
+        long moves = 0;
+        long elapsed = 0;
+        for (int game = 0; game < count; game++) {
+            SweepingPlayer first = new SweepingPlayer();
+            SweepingPlayer second = new SweepingPlayer();
+            long start = System.nanoTime();
+            try (ClientEventLoop loop = new ClientEventLoop()) {
+                loop.connect(first.getSession(), new InetSocketAddress("localhost", port), tls);
+                loop.connect(second.getSession(), new InetSocketAddress("localhost", port), tls);
+                loop.run();
+            }
+            elapsed += System.nanoTime() - start;
+            moves += first.getResults().size() + second.getResults().size();
+        }
+        return moves == 0 ? 0 : elapsed / 1e3 / moves;
+    }
+
+    /**
+     * Leaves as soon as the server has said anything.
+     */
+    private static final class FirstLine implements BattleshipsSession.Listener {
+        BattleshipsSession session;
+
+        @Override
+        public void onStart(String sessionId, String playerId) {
+            session.leave();
+        }
+
+        @Override
+        public void onInfo(String message) {
+            session.leave();
+        }
+
+        @Override
+        public void onText(String line) {
+            session.leave();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = 200;
+        int games = 20;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-connections" -> connections = Integer.parseInt(args[i + 1]);
+                case "-games" -> games = Integer.parseInt(args[i + 1]);
+                default -> System.err.println("unknown argument: " + args[i]);
+            }
+        }
+        java.util.logging.LogManager.getLogManager().reset();
+        new TransportBenchmark(connections, games).run();
+    }
+}
@@ -0,0 +1,81 @@
+package kingazm.app;
+
+import kingazm.net.BattleshipsSession;
+import kingazm.net.ClientEventLoop;
+import kingazm.net.NodeConfig;
+import kingazm.net.Server;
+import kingazm.net.SweepingPlayer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Training run for a class-data sharing archive: starts a server in-process, plays a few
+ * games over loopback between two logged-in programmatic players, stops the server and
+ * returns. Running it under {@code -XX:ArchiveClassesAtExit} records the classes a server
+ * loads on its way to the first accepted connection and through a game, so later starts
+ * with {@code -XX:SharedArchiveFile} map them instead of parsing and verifying them again.
+ *
+ * <p>Usage: {@code java -XX:ArchiveClassesAtExit=battleships.jsa -jar battleships.jar -mode warmup [-games N]}
+ */
+public class Warmup {
+    private static final Logger logger = Logger.getLogger(Warmup.class.getName());
+
+    public static void launch(NodeConfig config) throws IOException, InterruptedException {
+        int games = config.warmupGames();
+
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Server server = new Server(port);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "warmup server failed", e);
+            }
+        }, "warmup-server");
+        serverThread.start();
+
+        long start = System.nanoTime();
+        for (int game = 0; game < games; game++) {
+            play(port);
+        }
+        server.stop();
+        serverThread.join(5_000);
+        logger.info(games + " warmup games in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    public static void main(String[] args) throws Exception {
+        launch(NodeConfig.parse(args));
+    }
+
+    private static void play(int port) throws IOException, InterruptedException {
+        SweepingPlayer first = new SweepingPlayer("warmup-a");
+        SweepingPlayer second = new SweepingPlayer("warmup-b");
+        try (ClientEventLoop loop = new ClientEventLoop()) {
+            // no probing connection first: the server would take it for a player
+            connectWithRetry(loop, first.getSession(), port);
+            loop.connect(second.getSession(), new InetSocketAddress("localhost", port));
+            loop.run();
+        }
+    }
+
+    private static void connectWithRetry(ClientEventLoop loop, BattleshipsSession session, int port) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                loop.connect(session, new InetSocketAddress("localhost", port));
+                return;
+            } catch (IOException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+}
@@ -8,4 +8,5 @@ public class BoardConfig {
     public static final char UNKNOWN = '?';
     public static final int ROWS = 10;
     public static final int COLS = 10;
+    public static final int[] FLEET = {4, 3, 3, 2, 2, 2, 1, 1, 1, 1};
 }
\ No newline at end of file
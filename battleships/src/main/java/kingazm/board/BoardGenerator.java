@@ -1,5 +1,7 @@
 package kingazm.board;
 
+import java.util.random.RandomGenerator;
+
 public interface BoardGenerator {
     String generateMap();
 
@@ -7,4 +9,12 @@ public interface BoardGenerator {
         return new RandomBoardGenerator();
     }
 
+    /**
+     * A generator drawing from the given source. Generators are not thread-safe,
+     * so each thread should own one together with its own random source.
+     */
+    static BoardGenerator withRandom(RandomGenerator random) {
+        return new RandomBoardGenerator(BoardConfig.COLS, BoardConfig.ROWS, BoardConfig.FLEET, random);
+    }
+
 }
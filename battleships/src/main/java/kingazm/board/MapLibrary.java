@@ -0,0 +1,125 @@
+package kingazm.board;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A curated set of maps for tournaments: one file of fixed-width 100-byte records
+ * (ASCII {@code #} and {@code .}, no separators), memory-mapped read-only.
+ *
+ * <p>Maps are handed out as {@link CharSequence} views over the mapping, so drawing a map
+ * neither reads the file nor copies bytes. The file is validated once when opened.
+ */
+public class MapLibrary implements MapSource {
+    public static final int RECORD_SIZE = BoardConfig.ROWS * BoardConfig.COLS;
+    private static final int MAPS_PER_SEGMENT = Integer.MAX_VALUE / RECORD_SIZE;
+
+    private final MappedByteBuffer[] segments;
+    private final long size;
+    private final AtomicLong cursor = new AtomicLong();
+
+    private MapLibrary(MappedByteBuffer[] segments, long size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    public static MapLibrary open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long bytes = channel.size();
+            if (bytes == 0 || bytes % RECORD_SIZE != 0) {
+                throw new IOException("map library size must be a positive multiple of " + RECORD_SIZE + ": " + path);
+            }
+
+            long size = bytes / RECORD_SIZE;
+            int segmentCount = (int) ((size + MAPS_PER_SEGMENT - 1) / MAPS_PER_SEGMENT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long first = (long) i * MAPS_PER_SEGMENT;
+                long count = Math.min(MAPS_PER_SEGMENT, size - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, first * RECORD_SIZE, count * RECORD_SIZE);
+            }
+
+            MapLibrary library = new MapLibrary(segments, size);
+            for (long index = 0; index < size; index++) {
+                MapValidator.Violation violation = MapValidator.check(library.mapAt(index));
+                if (violation != MapValidator.Violation.NONE) {
+                    throw new IOException("map " + index + " in " + path + " is invalid: " + violation);
+                }
+            }
+            return library;
+        }
+    }
+
+    /**
+     * Writes maps as a library file.
+     */
+    public static void write(Path path, Iterable<? extends CharSequence> maps) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            byte[] record = new byte[RECORD_SIZE];
+            for (CharSequence map : maps) {
+                if (map.length() != RECORD_SIZE) {
+                    throw new IllegalArgumentException("map must be " + RECORD_SIZE + " chars");
+                }
+                for (int i = 0; i < RECORD_SIZE; i++) {
+                    record[i] = (byte) map.charAt(i);
+                }
+                out.write(record);
+            }
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public CharSequence mapAt(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("map " + index + " of " + size);
+        }
+        return new MapView(segments[(int) (index / MAPS_PER_SEGMENT)], (int) (index % MAPS_PER_SEGMENT) * RECORD_SIZE);
+    }
+
+    /**
+     * Draws maps in order, wrapping around at the end of the library.
+     */
+    @Override
+    public CharSequence nextMap() {
+        return mapAt(Math.floorMod(cursor.getAndIncrement(), size));
+    }
+
+    private record MapView(MappedByteBuffer buffer, int offset) implements CharSequence {
+        @Override
+        public int length() {
+            return RECORD_SIZE;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= RECORD_SIZE) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return (char) (buffer.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            char[] cells = new char[RECORD_SIZE];
+            for (int i = 0; i < RECORD_SIZE; i++) {
+                cells[i] = charAt(i);
+            }
+            return new String(cells);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package kingazm.board;
+
+/**
+ * Where sessions take their maps from when a player did not bring one.
+ */
+public interface MapSource {
+    /**
+     * @return a 100-character map; implementations may return a view instead of a copy
+     */
+    CharSequence nextMap();
+
+    /**
+     * A freshly generated random map every time.
+     */
+    static MapSource generated() {
+        return () -> BoardGenerator.defaultInstance().generateMap();
+    }
+
+    /**
+     * The same map every time.
+     */
+    static MapSource fixed(String map) {
+        if (!MapValidator.isValid(map)) {
+            throw new IllegalArgumentException("invalid map: " + MapValidator.check(map));
+        }
+        return () -> map;
+    }
+}
@@ -0,0 +1,120 @@
+package kingazm.board;
+
+/**
+ * Allocation-free validation of a map: size and characters, straight ships,
+ * no touching (also by corners) and the fleet from {@link BoardConfig#FLEET}.
+ *
+ * <p>The map is scanned row by row as 10-bit masks (bit {@code c} = column {@code c}),
+ * keeping a sliding window of the previous, current and next row. Horizontal ships are
+ * measured from runs of bits, vertical ones with per-column run lengths packed into a
+ * {@code long}, and the fleet is counted into another {@code long} with one byte per size.
+ */
+public final class MapValidator {
+    private static final int ROWS = BoardConfig.ROWS;
+    private static final int COLS = BoardConfig.COLS;
+    private static final int MAX_SHIP = 7;
+    private static final long EXPECTED_FLEET = packFleet(BoardConfig.FLEET);
+
+    public enum Violation {
+        NONE,
+        SIZE,
+        CHARACTERS,
+        SHAPE,
+        TOUCHING,
+        FLEET
+    }
+
+    private MapValidator() {}
+
+    public static boolean isValid(CharSequence map) {
+        return check(map) == Violation.NONE;
+    }
+
+    public static Violation check(CharSequence map) {
+        if (map == null || map.length() != ROWS * COLS) {
+            return Violation.SIZE;
+        }
+
+        long fleet = 0;
+        long runs = 0;
+        int active = 0;
+        int up = 0;
+        int cur = rowMask(map, 0);
+
+        for (int r = 0; r < ROWS; r++) {
+            int down = r + 1 < ROWS ? rowMask(map, r + 1) : 0;
+            if (cur < 0 || down < 0) {
+                return Violation.CHARACTERS;
+            }
+
+            int horizontal = cur & ((cur << 1) | (cur >>> 1));
+            int vertical = cur & (up | down);
+            if ((horizontal & vertical) != 0) {
+                return Violation.SHAPE;
+            }
+            if ((cur & ((down << 1) | (down >>> 1))) != 0) {
+                return Violation.TOUCHING;
+            }
+
+            for (int starts = horizontal & ~(cur << 1); starts != 0; starts &= starts - 1) {
+                int c = Integer.numberOfTrailingZeros(starts);
+                fleet = addShip(fleet, Integer.numberOfTrailingZeros(~(cur >>> c)));
+            }
+
+            int columnCells = cur & ~horizontal;
+            for (int cols = columnCells | active; cols != 0; cols &= cols - 1) {
+                int c = Integer.numberOfTrailingZeros(cols);
+                int shift = c * 4;
+                if ((columnCells & (1 << c)) != 0) {
+                    long length = Math.min(((runs >>> shift) & 0xF) + 1, 0xF);
+                    runs = (runs & ~(0xFL << shift)) | (length << shift);
+                } else {
+                    fleet = addShip(fleet, (int) ((runs >>> shift) & 0xF));
+                    runs &= ~(0xFL << shift);
+                }
+            }
+            active = columnCells;
+
+            up = cur;
+            cur = down;
+        }
+
+        for (int cols = active; cols != 0; cols &= cols - 1) {
+            int c = Integer.numberOfTrailingZeros(cols);
+            fleet = addShip(fleet, (int) ((runs >>> (c * 4)) & 0xF));
+        }
+
+        return fleet == EXPECTED_FLEET ? Violation.NONE : Violation.FLEET;
+    }
+
+    /**
+     * @return mast bits of row {@code r}, or -1 if the row has characters other than mast and water
+     */
+    private static int rowMask(CharSequence map, int r) {
+        int mask = 0;
+        int base = r * COLS;
+        for (int c = 0; c < COLS; c++) {
+            char ch = map.charAt(base + c);
+            if (ch == BoardConfig.MAST) {
+                mask |= 1 << c;
+            } else if (ch != BoardConfig.WATER) {
+                return -1;
+            }
+        }
+        return mask;
+    }
+
+    private static long addShip(long fleet, int length) {
+        // an overlong ship lands in byte 0, which a valid fleet never uses
+        int slot = length > MAX_SHIP ? 0 : length;
+        return fleet + (1L << (slot * 8));
+    }
+
+    private static long packFleet(int[] sizes) {
+        long fleet = 0;
+        for (int size : sizes) {
+            fleet = addShip(fleet, size);
+        }
+        return fleet;
+    }
+}
@@ -1,31 +1,39 @@
 package kingazm.board;
 
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 public class RandomBoardGenerator implements BoardGenerator {
     private final char MAST = BoardConfig.MAST;
     private final char WATER = BoardConfig.WATER;
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}};
+    private static final boolean DEBUG = Boolean.getBoolean("battleships.debug");
     private final int NUM_OF_COLS;
     private final int NUM_OF_ROWS;
     char[][] board;
-    private final Random random;
+    private final RandomGenerator random;
     int[] shipSizes;
 
     RandomBoardGenerator() {
-        this(10, 10, new int[]{4, 3, 3, 2, 2, 2, 1, 1, 1, 1});
+        this(BoardConfig.COLS, BoardConfig.ROWS, BoardConfig.FLEET);
     }
 
     RandomBoardGenerator(int numOfCols, int numOfRows, int[] shipSizes) {
+        this(numOfCols, numOfRows, shipSizes, new Random());
+    }
+
+    RandomBoardGenerator(int numOfCols, int numOfRows, int[] shipSizes, RandomGenerator random) {
         NUM_OF_COLS = numOfCols;
         NUM_OF_ROWS = numOfRows;
         board = new char[numOfCols][numOfRows];
-        random = new Random();
+        this.random = random;
         this.shipSizes = shipSizes;
         restartBoard();
     }
 
     @Override
     public String generateMap() {
+        restartBoard();
         for (int shipSize : shipSizes) {
             boolean notPlaced = true;
             int numOfAttempts = 0;
@@ -45,12 +53,28 @@ public class RandomBoardGenerator implements BoardGenerator {
                 numOfAttempts += 1;
 
                 if (numOfAttempts > 10000) {
-                    restartBoard();
                     return generateMap();
                 }
             }
         }
-        return boardToString();
+        String map = boardToString();
+        if (DEBUG) {
+            verify(map);
+        }
+        return map;
+    }
+
+    /**
+     * Debug mode ({@code -Dbattleships.debug=true}): fail fast on a map breaking the rules.
+     */
+    private void verify(String map) {
+        if (shipSizes != BoardConfig.FLEET || NUM_OF_COLS != BoardConfig.COLS || NUM_OF_ROWS != BoardConfig.ROWS) {
+            return;
+        }
+        MapValidator.Violation violation = MapValidator.check(map);
+        if (violation != MapValidator.Violation.NONE) {
+            throw new IllegalStateException("generated map violates " + violation + ":\n" + map);
+        }
     }
 
     private void placeShip(int shipSize, int x, int y, int dx, int dy) {
@@ -103,11 +127,7 @@ public class RandomBoardGenerator implements BoardGenerator {
     }
 
     private int[] getRandomDirections() {
-        int[][] directions = {{1,0}, {0,1}};
-        int axisX = directions[random.nextInt(0,1)][0];
-        int axisY = directions[random.nextInt(0,1)][1];
-
-        return new int[]{axisX, axisY};
+        return DIRECTIONS[random.nextInt(DIRECTIONS.length)];
     }
 
     private int getRandomXCoordinate() {
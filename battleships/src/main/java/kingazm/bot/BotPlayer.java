@@ -0,0 +1,47 @@
+package kingazm.bot;
+
+import kingazm.board.BoardConfig;
+import kingazm.engine.Player;
+import kingazm.engine.ShotResult;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Server-side computer opponent. It has no connection, so messages the server sends to it
+ * are dropped; on {@link #onTurn} it hands itself to {@code mover}, which makes the move on
+ * the server and reports the result back with {@link #onResult}.
+ */
+public class BotPlayer extends Player {
+    private static final int COLS = BoardConfig.COLS;
+
+    private final DensityTargeting targeting = new DensityTargeting();
+    private final Consumer<BotPlayer> mover;
+
+    public BotPlayer(Consumer<BotPlayer> mover) {
+        super("bot-" + UUID.randomUUID(), null);
+        this.mover = mover;
+    }
+
+    @Override
+    public void onTurn() {
+        mover.accept(this);
+    }
+
+    /**
+     * Picks the next shot, e.g. {@code "D7"}.
+     */
+    public synchronized String nextMove() {
+        int cell = targeting.nextShot();
+        return (char) ('A' + cell % COLS) + Integer.toString(cell / COLS + 1);
+    }
+
+    /**
+     * Feeds the result of an accepted move back into the targeting model.
+     */
+    public synchronized void onResult(String coord, ShotResult result) {
+        int col = Character.toUpperCase(coord.charAt(0)) - 'A';
+        int row = Integer.parseInt(coord.substring(1).trim()) - 1;
+        targeting.onResult(row * COLS + col, result);
+    }
+}
@@ -0,0 +1,289 @@
+package kingazm.bot;
+
+import kingazm.board.BoardConfig;
+import kingazm.engine.ShotResult;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Hunt/target shot selection backed by a probability-density map.
+ *
+ * <p>Knowledge about the opponent's board is kept as row bitboards (bit {@code c} of
+ * {@code rows[r]} is cell {@code r * COLS + c}) and updated incrementally on every result.
+ * Each decision counts, for every cell, the legal placements of the ships that are still
+ * afloat which cover it; while there are hits on unsunk ships (target mode) only placements
+ * extending those hits count. The protocol does not report sinking, so a hit line is
+ * considered sunk once both of its ends are known to be water, or once it is as long as
+ * the longest ship still afloat.
+ *
+ * <p>The density map itself is recounted for every decision rather than patched per result:
+ * a sunk ship or a switch into or out of target mode changes the weight or legality of
+ * placements all over the board, and a full count is a few hundred mask tests, a few
+ * microseconds per shot.
+ */
+public class DensityTargeting implements Strategy {
+    private static final int ROWS = BoardConfig.ROWS;
+    private static final int COLS = BoardConfig.COLS;
+    private static final int FULL_ROW = (1 << COLS) - 1;
+    private static final int HIT_BONUS = 64;
+
+    private final int[] shot = new int[ROWS];
+    private final int[] water = new int[ROWS];
+    private final int[] open = new int[ROWS];
+    private final int[] sunk = new int[ROWS];
+    private final int[] remaining;
+    private final int[] density = new int[ROWS * COLS];
+    private final RandomGenerator random;
+
+    public DensityTargeting(RandomGenerator random) {
+        this.random = random;
+        int longest = 0;
+        for (int size : BoardConfig.FLEET) {
+            longest = Math.max(longest, size);
+        }
+        remaining = new int[longest + 1];
+        reset();
+    }
+
+    public DensityTargeting() {
+        this(RandomGenerator.getDefault());
+    }
+
+    @Override
+    public void reset() {
+        for (int r = 0; r < ROWS; r++) {
+            shot[r] = 0;
+            water[r] = 0;
+            open[r] = 0;
+            sunk[r] = 0;
+        }
+        for (int i = 0; i < remaining.length; i++) {
+            remaining[i] = 0;
+        }
+        for (int size : BoardConfig.FLEET) {
+            remaining[size]++;
+        }
+    }
+
+    /**
+     * @return index ({@code row * COLS + col}) of the cell to fire at next
+     */
+    @Override
+    public int nextShot() {
+        computeDensity();
+
+        int best = -1;
+        int bestScore = -1;
+        int ties = 0;
+        for (int cell = 0; cell < ROWS * COLS; cell++) {
+            int r = cell / COLS;
+            int bit = 1 << (cell % COLS);
+            if (((shot[r] | water[r]) & bit) != 0) {
+                continue;
+            }
+            int score = density[cell];
+            if (score > bestScore) {
+                best = cell;
+                bestScore = score;
+                ties = 1;
+            } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+
+        if (best >= 0) {
+            return best;
+        }
+        for (int cell = 0; cell < ROWS * COLS; cell++) {
+            if ((shot[cell / COLS] & (1 << (cell % COLS))) == 0) {
+                return cell;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void onResult(int cell, ShotResult result) {
+        onResult(cell, result != ShotResult.MISS);
+    }
+
+    /**
+     * Records the result of a shot at {@code cell}.
+     */
+    public void onResult(int cell, boolean hit) {
+        int r = cell / COLS;
+        int c = cell % COLS;
+        int bit = 1 << c;
+        shot[r] |= bit;
+
+        if (!hit) {
+            water[r] |= bit;
+            tryClose(r - 1, c);
+            tryClose(r + 1, c);
+            tryClose(r, c - 1);
+            tryClose(r, c + 1);
+            return;
+        }
+
+        if ((sunk[r] & bit) != 0) {
+            return;
+        }
+        open[r] |= bit;
+        int diagonals = ((bit << 1) | (bit >>> 1)) & FULL_ROW;
+        if (r > 0) water[r - 1] |= diagonals;
+        if (r + 1 < ROWS) water[r + 1] |= diagonals;
+        tryClose(r, c);
+    }
+
+    private void tryClose(int r, int c) {
+        if (!isOpen(r, c)) {
+            return;
+        }
+
+        int left = c;
+        while (isOpen(r, left - 1)) left--;
+        int right = c;
+        while (isOpen(r, right + 1)) right++;
+        int top = r;
+        while (isOpen(top - 1, c)) top--;
+        int bottom = r;
+        while (isOpen(bottom + 1, c)) bottom++;
+
+        boolean horizontalClosed = isWater(r, left - 1) && isWater(r, right + 1);
+        boolean verticalClosed = isWater(top - 1, c) && isWater(bottom + 1, c);
+        int length;
+        boolean closed;
+
+        if (right > left) {
+            length = right - left + 1;
+            closed = horizontalClosed;
+        } else if (bottom > top) {
+            length = bottom - top + 1;
+            closed = verticalClosed;
+        } else {
+            length = 1;
+            closed = horizontalClosed && verticalClosed;
+        }
+
+        if (!closed && length < longestRemaining()) {
+            return;
+        }
+
+        if (right > left || bottom == top) {
+            for (int cc = left; cc <= right; cc++) markSunk(r, cc);
+        } else {
+            for (int rr = top; rr <= bottom; rr++) markSunk(rr, c);
+        }
+        if (length < remaining.length && remaining[length] > 0) {
+            remaining[length]--;
+        }
+    }
+
+    private void markSunk(int r, int c) {
+        int bit = 1 << c;
+        open[r] &= ~bit;
+        sunk[r] |= bit;
+        int halo = (bit | (bit << 1) | (bit >>> 1)) & FULL_ROW;
+        for (int rr = Math.max(0, r - 1); rr <= Math.min(ROWS - 1, r + 1); rr++) {
+            water[rr] |= halo & ~sunk[rr];
+        }
+    }
+
+    private int longestRemaining() {
+        for (int size = remaining.length - 1; size > 0; size--) {
+            if (remaining[size] > 0) {
+                return size;
+            }
+        }
+        return 0;
+    }
+
+    private boolean isOpen(int r, int c) {
+        return r >= 0 && r < ROWS && c >= 0 && c < COLS && (open[r] & (1 << c)) != 0;
+    }
+
+    private boolean isWater(int r, int c) {
+        return r < 0 || r >= ROWS || c < 0 || c >= COLS || (water[r] & (1 << c)) != 0;
+    }
+
+    private void computeDensity() {
+        for (int i = 0; i < density.length; i++) {
+            density[i] = 0;
+        }
+
+        boolean targetMode = false;
+        for (int r = 0; r < ROWS; r++) {
+            if (open[r] != 0) {
+                targetMode = true;
+                break;
+            }
+        }
+
+        for (int size = 1; size < remaining.length; size++) {
+            int count = remaining[size];
+            if (count == 0) {
+                continue;
+            }
+            int shipMask = (1 << size) - 1;
+
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c + size <= COLS; c++) {
+                    int mask = shipMask << c;
+                    if (((water[r] | sunk[r]) & mask) != 0) {
+                        continue;
+                    }
+                    int around = ((mask << 1) | (mask >>> 1)) & FULL_ROW;
+                    int touching = (open[r] & around & ~mask)
+                            | (r > 0 ? open[r - 1] & (mask | around) : 0)
+                            | (r + 1 < ROWS ? open[r + 1] & (mask | around) : 0);
+                    if (touching != 0) {
+                        continue;
+                    }
+                    int covered = Integer.bitCount(open[r] & mask);
+                    if (targetMode && covered == 0) {
+                        continue;
+                    }
+                    addHorizontal(r, mask & ~shot[r], count * (1 + HIT_BONUS * covered));
+                }
+            }
+
+            if (size == 1) {
+                continue;
+            }
+
+            for (int c = 0; c < COLS; c++) {
+                int bit = 1 << c;
+                int side = ((bit << 1) | (bit >>> 1)) & FULL_ROW;
+                int column = bit | side;
+                for (int r = 0; r + size <= ROWS; r++) {
+                    int covered = 0;
+                    boolean legal = true;
+                    for (int rr = r; rr < r + size && legal; rr++) {
+                        legal = ((water[rr] | sunk[rr]) & bit) == 0 && (open[rr] & side) == 0;
+                        if ((open[rr] & bit) != 0) covered++;
+                    }
+                    if (!legal
+                            || (r > 0 && (open[r - 1] & column) != 0)
+                            || (r + size < ROWS && (open[r + size] & column) != 0)
+                            || (targetMode && covered == 0)) {
+                        continue;
+                    }
+                    int weight = count * (1 + HIT_BONUS * covered);
+                    for (int rr = r; rr < r + size; rr++) {
+                        if ((shot[rr] & bit) == 0) {
+                            density[rr * COLS + c] += weight;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void addHorizontal(int r, int cells, int weight) {
+        while (cells != 0) {
+            int c = Integer.numberOfTrailingZeros(cells);
+            density[r * COLS + c] += weight;
+            cells &= cells - 1;
+        }
+    }
+}
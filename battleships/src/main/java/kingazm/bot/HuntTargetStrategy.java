@@ -0,0 +1,74 @@
+package kingazm.bot;
+
+import kingazm.board.BoardConfig;
+import kingazm.engine.ShotResult;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Classic hunt/target: hunt on a checkerboard (every ship of two or more masts covers one of
+ * its cells), and after a hit try the hit's neighbours first.
+ */
+public class HuntTargetStrategy implements Strategy {
+    private static final int ROWS = BoardConfig.ROWS;
+    private static final int COLS = BoardConfig.COLS;
+    private static final int CELLS = ROWS * COLS;
+
+    private final RandomGenerator random;
+    private final boolean[] fired = new boolean[CELLS];
+    private final int[] targets = new int[4 * CELLS];
+    private int targetCount;
+
+    public HuntTargetStrategy(RandomGenerator random) {
+        this.random = random;
+    }
+
+    @Override
+    public int nextShot() {
+        while (targetCount > 0) {
+            int cell = targets[--targetCount];
+            if (!fired[cell]) {
+                return cell;
+            }
+        }
+        int cell = pickUnfired(true);
+        return cell >= 0 ? cell : pickUnfired(false);
+    }
+
+    private int pickUnfired(boolean parityOnly) {
+        int chosen = -1;
+        int seen = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (fired[cell] || (parityOnly && ((cell / COLS + cell % COLS) & 1) != 0)) {
+                continue;
+            }
+            // reservoir sampling picks uniformly without building a candidate list
+            if (random.nextInt(++seen) == 0) {
+                chosen = cell;
+            }
+        }
+        return chosen;
+    }
+
+    @Override
+    public void onResult(int cell, ShotResult result) {
+        fired[cell] = true;
+        if (result != ShotResult.HIT) {
+            return;
+        }
+        int r = cell / COLS;
+        int c = cell % COLS;
+        if (r > 0) targets[targetCount++] = cell - COLS;
+        if (r + 1 < ROWS) targets[targetCount++] = cell + COLS;
+        if (c > 0) targets[targetCount++] = cell - 1;
+        if (c + 1 < COLS) targets[targetCount++] = cell + 1;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < CELLS; i++) {
+            fired[i] = false;
+        }
+        targetCount = 0;
+    }
+}
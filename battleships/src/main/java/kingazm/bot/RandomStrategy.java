@@ -0,0 +1,43 @@
+package kingazm.bot;
+
+import kingazm.board.BoardConfig;
+import kingazm.engine.ShotResult;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Fires at the cells in a random order, ignoring results. The baseline every other strategy should beat.
+ */
+public class RandomStrategy implements Strategy {
+    private static final int CELLS = BoardConfig.ROWS * BoardConfig.COLS;
+
+    private final RandomGenerator random;
+    private final int[] order = new int[CELLS];
+    private int next;
+
+    public RandomStrategy(RandomGenerator random) {
+        this.random = random;
+        for (int i = 0; i < CELLS; i++) {
+            order[i] = i;
+        }
+        reset();
+    }
+
+    @Override
+    public int nextShot() {
+        // lazy Fisher-Yates: draw the next cell from the ones not fired at yet
+        int pick = next + random.nextInt(CELLS - next);
+        int cell = order[pick];
+        order[pick] = order[next];
+        order[next++] = cell;
+        return cell;
+    }
+
+    @Override
+    public void onResult(int cell, ShotResult result) {}
+
+    @Override
+    public void reset() {
+        next = 0;
+    }
+}
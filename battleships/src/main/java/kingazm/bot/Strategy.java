@@ -0,0 +1,21 @@
+package kingazm.bot;
+
+import kingazm.engine.ShotResult;
+
+/**
+ * A shooting strategy, fed with the result of every shot it makes.
+ * Cells are indexed {@code row * COLS + col}. Instances are not thread-safe.
+ */
+public interface Strategy {
+    /**
+     * @return the cell to fire at next, never one fired at before in this game
+     */
+    int nextShot();
+
+    void onResult(int cell, ShotResult result);
+
+    /**
+     * Forgets everything learned, ready for a new game.
+     */
+    void reset();
+}
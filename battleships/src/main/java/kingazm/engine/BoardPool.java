@@ -0,0 +1,41 @@
+package kingazm.engine;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Bounded pool of {@link BoardState}s, so short games stop allocating a fresh grid per player.
+ * Boards come back through {@link GameLoop#close()}; anything beyond the capacity is
+ * left to the garbage collector.
+ */
+public final class BoardPool {
+    private final ArrayBlockingQueue<BoardState> free;
+
+    public BoardPool(int capacity) {
+        this.free = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * A board set up on {@code map}, reused when one is free.
+     */
+    public BoardState acquire(CharSequence map) {
+        BoardState board = free.poll();
+        if (board == null) {
+            return new BoardState(map);
+        }
+        board.reset(map);
+        return board;
+    }
+
+    /**
+     * Hands a board back; the caller must not touch it afterwards.
+     */
+    public void release(BoardState board) {
+        if (board != null) {
+            free.offer(board);
+        }
+    }
+
+    public int available() {
+        return free.size();
+    }
+}
@@ -1,168 +1,144 @@
 package kingazm.engine;
 
 import kingazm.board.BoardConfig;
-
+import kingazm.board.MapValidator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * One player's grid, as {@link ShotTable} states with a count of masts not yet hit, so a
+ * shot is one table lookup. Not synchronized: {@link GameLoop} guarantees a single writer
+ * and gives readers a consistent view.
+ */
 public class BoardState {
     private static final char MAST = BoardConfig.MAST;
     private static final char WATER = BoardConfig.WATER;
-    private static final char HIT = BoardConfig.HIT;
-    private static final char MISS = BoardConfig.MISS;
     private static final char UNKNOWN = BoardConfig.UNKNOWN;
-    private static final String TOKEN_HIT = GameConfig.TOKEN_HIT;
-    private static final String TOKEN_MISS = GameConfig.TOKEN_MISS;
-    private static final String TOKEN_LAST_SUNK = GameConfig.TOKEN_LAST_SUNK;
-    private final int rows = BoardConfig.ROWS;
-    private final int cols = BoardConfig.COLS;
-    private final char[][] currentBoard;
-
-    public BoardState(String map) {
-        if (map == null || map.length() != rows * cols) {
-            throw new IllegalArgumentException("map must be " + (rows * cols) + " chars");
-        }
+    private static final int ROWS = BoardConfig.ROWS;
+    private static final int COLS = BoardConfig.COLS;
+    // ShotTable states
+    private final byte[] cells = new byte[ROWS * COLS];
+    private int afloat;
+
+    /**
+     * What a rendered grid shows.
+     */
+    enum View {
+        /** the owner's view: masts, hits, misses and water */
+        FULL,
+        /** the opponent's view: only the shots */
+        MASKED,
+        /** the opponent's view after the game: shots shown as mast or water */
+        REVEALED
+    }
 
-        currentBoard = new char[rows][cols];
+    public BoardState(CharSequence map) {
+        reset(map);
+    }
 
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                currentBoard[r][c] = map.charAt(r * cols + c);
+    /**
+     * Starts over on {@code map}, so the board can be reused for another game.
+     */
+    public void reset(CharSequence map) {
+        if (map == null || map.length() != ROWS * COLS) {
+            throw new IllegalArgumentException("map must be " + (ROWS * COLS) + " chars");
+        }
+        int masts = 0;
+        for (int i = 0; i < cells.length; i++) {
+            int state = ShotTable.stateOf(map.charAt(i));
+            cells[i] = (byte) state;
+            if (state == ShotTable.MAST) {
+                masts++;
             }
         }
+        afloat = masts;
     }
 
-    public synchronized String fireAt(int row, int col) {
-        char cur = currentBoard[row][col];
-
-        if (cur == MAST) {
-            currentBoard[row][col] = HIT;
-
-            if (allSunk()) {
-                return TOKEN_LAST_SUNK;
-            }
-            return TOKEN_HIT;
-
-        } else if (cur == WATER) {
-            currentBoard[row][col] = MISS;
-            return TOKEN_MISS;
-        } else {
-            if (cur == HIT) {
-                return TOKEN_HIT;
-            } else {
-                return TOKEN_MISS;
-            }
+    /**
+     * Reads a map file: 10 lines of 10 characters, or a single 100-character line. The map is
+     * not checked against the game rules; {@link MapValidator} does that.
+     */
+    public static String readMapFile(Path path) throws IOException {
+        StringBuilder sb = new StringBuilder(BoardConfig.ROWS * BoardConfig.COLS);
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            sb.append(line.strip());
         }
+        return sb.toString();
     }
 
-    public synchronized boolean allSunk() {
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                if (currentBoard[r][c] == MAST) {
-                    return false;
-                }
-            }
+    public ShotResult fireAt(int row, int col) {
+        int cell = row * COLS + col;
+        int state = cells[cell];
+        int entry = ShotTable.lookup(state, ShotTable.event(afloat));
+        int next = ShotTable.nextState(entry);
+        cells[cell] = (byte) next;
+        if (state == ShotTable.MAST) {
+            afloat--;
         }
-        return true;
+        return ShotTable.result(entry);
     }
-    
-    public synchronized String maskedView() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("   ");
-        for (int c = 0; c < cols; c++) {
-            sb.append((char)('A' + c));
-            if (c < cols - 1) {
-                sb.append(' ');
-            }
-        }
-        sb.append('\n');
 
-        for (int r = 0; r < rows; r++) {
-            String rowLabel = Integer.toString(r + 1);
-            if (rowLabel.length() == 1) {
-                sb.append(' ');
-            }
-            sb.append(rowLabel).append(' ');
+    public boolean allSunk() {
+        return afloat == 0;
+    }
 
-            for (int c = 0; c < cols; c++) {
-                char ch = currentBoard[r][c];
-                char out = switch (ch) {
-                    case HIT -> HIT;
-                    case MISS -> MISS;
-                    default -> UNKNOWN;
-                };
-                sb.append(out);
-                if (c < cols - 1) {
-                    sb.append(' ');
-                }
-            }
-            sb.append('\n');
-        }
-        return sb.toString();
+    public String maskedView() {
+        return view(cells, View.MASKED);
     }
 
-    public synchronized String revealedView() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("   ");
-        for (int c = 0; c < cols; c++) {
-            sb.append((char)('A' + c));
-            if (c < cols - 1) {
-                sb.append(' ');
-            }
-        }
-        sb.append('\n');
+    public String revealedView() {
+        return view(cells, View.REVEALED);
+    }
 
-        for (int r = 0; r < rows; r++) {
-            String rowLabel = Integer.toString(r + 1);
-            if (rowLabel.length() == 1) {
-                sb.append(' ');
-            }
-            sb.append(rowLabel).append(' ');
+    public String fullView() {
+        return view(cells, View.FULL);
+    }
 
-            for (int c = 0; c < cols; c++) {
-                char ch = currentBoard[r][c];
-                char out = switch (ch) {
-                    case HIT -> MAST;      // Show the ship that was hit
-                    case MISS -> WATER;    // Show the water that was hit
-                    default -> UNKNOWN;    // Show unknown for places not yet shot
-                };
-                sb.append(out);
-                if (c < cols - 1) {
-                    sb.append(' ');
-                }
-            }
-            sb.append('\n');
-        }
-        return sb.toString();
+    String view(View kind) {
+        return view(cells, kind);
     }
 
-    public synchronized String fullView() {
-        StringBuilder sb = new StringBuilder();
+    /**
+     * Renders a grid given as {@code row * COLS + col} cells of {@link ShotTable} states.
+     */
+    static String view(byte[] cells, View kind) {
+        StringBuilder sb = new StringBuilder(3 + 2 * COLS + ROWS * (3 + 2 * COLS));
         sb.append("   ");
-        for (int c = 0; c < cols; c++) {
+        for (int c = 0; c < COLS; c++) {
             sb.append((char)('A' + c));
-
-            if (c < cols - 1) {
+            if (c < COLS - 1) {
                 sb.append(' ');
             }
         }
         sb.append('\n');
 
-        for (int r = 0; r < rows; r++) {
+        for (int r = 0; r < ROWS; r++) {
             String rowLabel = Integer.toString(r + 1);
-
             if (rowLabel.length() == 1) {
                 sb.append(' ');
             }
-
             sb.append(rowLabel).append(' ');
 
-            for (int c = 0; c < cols; c++) {
-                sb.append(currentBoard[r][c]);
-                if (c < cols - 1) {
+            for (int c = 0; c < COLS; c++) {
+                int state = cells[r * COLS + c];
+                boolean shot = state >= ShotTable.MISS;
+                char out = switch (kind) {
+                    case FULL -> ShotTable.symbol(state);
+                    case MASKED -> shot ? ShotTable.symbol(state) : UNKNOWN;
+                    case REVEALED -> !shot ? UNKNOWN       // Show unknown for places not yet shot
+                            : state == ShotTable.HIT ? MAST // Show the ship that was hit
+                            : WATER;                       // Show the water that was hit
+                };
+                sb.append(out);
+                if (c < COLS - 1) {
                     sb.append(' ');
                 }
             }
-
             sb.append('\n');
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -1,7 +0,0 @@
-package kingazm.engine;
-
-public class GameConfig {
-    public static final String TOKEN_HIT = "trafiony";
-    public static final String TOKEN_MISS = "pudlo";
-    public static final String TOKEN_LAST_SUNK = "ostatni_zatopiony";
-}
@@ -1,39 +1,145 @@
 package kingazm.engine;
 
 import kingazm.board.BoardConfig;
-import kingazm.board.BoardGenerator;
+import kingazm.board.MapSource;
+import kingazm.replay.Replay;
 
-import java.util.UUID;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
 
 /**
  * Game session holder: two players, their boards and writers, and whose turn it is 
  * (as in task description, sequential turns are enforced).
+ *
+ * <p>Turn ownership lives in a single atomic state word: the move counter, a count of board
+ * swaps before the first shot, a busy flag and the side to move. A move claims the word with
+ * a CAS (only the side to move can win it), mutates the defender's board as the single writer
+ * and publishes the next state with one volatile write. Readers never lock: they read the
+ * state word, read the boards and re-read the word, retrying if a move happened in between
+ * (a seqlock).
+ *
+ * <p>Boards may come from a {@link BoardPool}. {@link #close()} ends the session for good
+ * (a closed flag in the state word, so late moves are rejected and readers see no board)
+ * before handing them back.
+ *
+ * <p>A session created with {@link #inSlot} keeps the state word, both grids and the move
+ * log in a {@link SlotStore} slot instead; the players then have no {@link BoardState}.
+ * The slot's generation sits in the high half of the word, so once the slot is reused
+ * the session reads as closed.
+ *
+ * <p>A heap session also records the match as a {@link MatchLog} of events, written by the
+ * same single writer. The boards are the live state a move is checked against; the log is
+ * what statistics, replays and any later rebuild of the match fold over. A slot session
+ * keeps no log of its own, so it adds nothing to the heap: {@link #getLog()} rebuilds one
+ * from the slot's move log.
  */
 public class GameLoop {
-    private final String sessionId = UUID.randomUUID().toString();
+    private static final long SIDE_B = 1L;
+    private static final long BUSY = 2L;
+    private static final long CLOSED = 4L;
+    // bumped when a board is replaced, so readers notice even though the move count stays at
+    // zero; a reader would have to overlap 512 swaps to see the same word again
+    private static final int SWAPS_SHIFT = 3;
+    private static final long SWAPS = 0x1FFL << SWAPS_SHIFT;
+    private static final int COUNT_SHIFT = 12;
+    private static final long COUNT = ~SlotStore.GENERATION & -(1L << COUNT_SHIFT);
+    // moves past this (only possible by firing at the same cells over and over) are refused
+    private static final int MAX_COUNT = (int) (COUNT >>> COUNT_SHIFT);
+
+    private final String sessionId;
+    private final long createdAt = System.currentTimeMillis();
     private final Player playerA;
     private final Player playerB;
-    private String currentTurn;
+    private CharSequence mapA;
+    private CharSequence mapB;
+    private final BoardPool pool;
+    private final AtomicLong state;
+    private final MatchLog log;
+    private final SlotStore store;
+    private final int handle;
+    private final long generation;
+    private volatile long closedState;
 
     private record Players(Player attacker, Player defender) {}
     private record Position(int row, int col) {}
 
     public GameLoop(Player playerA, Player playerB) {
+        this(playerA, playerB, MapSource.generated());
+    }
+
+    /**
+     * Players who brought their own map play on it, the others get one from {@code maps}.
+     */
+    public GameLoop(Player playerA, Player playerB, MapSource maps) {
+        this(SessionIds.next(), playerA, playerB, maps, null);
+    }
+
+    /**
+     * @param pool where boards are taken from and returned to on {@link #close()}, or {@code null}
+     */
+    public GameLoop(String sessionId, Player playerA, Player playerB, MapSource maps, BoardPool pool) {
+        this.sessionId = sessionId;
         this.playerA = playerA;
         this.playerB = playerB;
+        this.pool = pool;
+        this.state = new AtomicLong();
+        this.store = null;
+        this.handle = -1;
+        this.generation = 0;
+        this.log = new MatchLog();
+
+        this.mapA = mapFor(playerA, maps);
+        this.mapB = mapFor(playerB, maps);
+        this.playerA.setBoard(newBoard(mapA));
+        this.playerB.setBoard(newBoard(mapB));
+        log.start(mapA, mapB, System.nanoTime());
+    }
 
-        String mapA = BoardGenerator.defaultInstance().generateMap();
-        String mapB = BoardGenerator.defaultInstance().generateMap();
-        this.playerA.setBoard(new BoardState(mapA));
-        this.playerB.setBoard(new BoardState(mapB));
+    private GameLoop(String sessionId, Player playerA, Player playerB, MapSource maps, SlotStore store, int handle) {
+        this.sessionId = sessionId;
+        this.playerA = playerA;
+        this.playerB = playerB;
+        this.pool = null;
+        this.state = null;
+        this.store = store;
+        this.handle = handle;
+        this.generation = store.state(handle) & SlotStore.GENERATION;
+        this.log = null;
 
-        this.currentTurn = playerA.getId();
+        try {
+            CharSequence first = mapFor(playerA, maps);
+            CharSequence second = mapFor(playerB, maps);
+            store.setMap(handle, 0, first);
+            store.setMap(handle, 1, second);
+        } catch (RuntimeException e) {
+            store.setState(handle, generation | CLOSED);
+            store.free(handle);
+            throw e;
+        }
+    }
+
+    /**
+     * A session living in a slot of {@code store}.
+     * @return the session, or {@code null} when every slot is taken
+     */
+    public static GameLoop inSlot(String sessionId, Player playerA, Player playerB, MapSource maps, SlotStore store) {
+        int handle = store.allocate();
+        return handle < 0 ? null : new GameLoop(sessionId, playerA, playerB, maps, store, handle);
+    }
+
+    private BoardState newBoard(CharSequence map) {
+        return pool == null ? new BoardState(map) : pool.acquire(map);
     }
 
     public String getSessionId() {
         return sessionId;
     }
 
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
     public Player getPlayerA() {
         return playerA;
     }
@@ -43,38 +149,232 @@ public class GameLoop {
     }
 
     public String getBoardFor(String playerId) {
-        Player p = playerA.getId().equals(playerId) ? playerA : playerB;
-        BoardState bs = p.getBoard();
-        return bs == null ? null : bs.fullView();
+        return view(!playerA.getId().equals(playerId), BoardState.View.FULL);
     }
 
     public String getMaskedOpponentView(String playerId) {
-        Player opponent = playerA.getId().equals(playerId) ? playerB : playerA;
-        BoardState bs = opponent.getBoard();
-        return bs == null ? null : bs.maskedView();
+        return view(playerA.getId().equals(playerId), BoardState.View.MASKED);
     }
 
     public String getRevealedOpponentView(String playerId) {
-        Player opponent = playerA.getId().equals(playerId) ? playerB : playerA;
-        BoardState bs = opponent.getBoard();
-        return bs == null ? null : bs.revealedView();
+        return view(playerA.getId().equals(playerId), BoardState.View.REVEALED);
+    }
+
+    private String view(boolean sideB, BoardState.View kind) {
+        if (store != null) {
+            return read(seen -> (seen & CLOSED) != 0 ? null
+                    : BoardState.view(store.cells(handle, sideB ? 1 : 0), kind));
+        }
+        Player p = sideB ? playerB : playerA;
+        return read(seen -> {
+            BoardState bs = p.getBoard();
+            return bs == null ? null : bs.view(kind);
+        });
+    }
+
+    /**
+     * The match so far as events. Consistent once the game is over; while it is running
+     * the last shot may still be in flight. A slot session rebuilds the log from its slot on
+     * every call, without timings and only for the moves the slot kept.
+     * @return the log, or {@code null} for a slot session that was closed
+     */
+    public MatchLog getLog() {
+        if (store != null) {
+            return read(seen -> (seen & CLOSED) != 0 ? null
+                    : MatchLog.refired(store.map(handle, 0), store.map(handle, 1), store.moves(handle, count(seen))));
+        }
+        return log;
     }
 
     public String getCurrentTurn() {
-        return currentTurn;
+        return (load() & SIDE_B) == 0 ? playerA.getId() : playerB.getId();
     }
 
+    public int getMoveCount() {
+        return count(load());
+    }
+
+    /**
+     * The state word readers validate against: it changes with every move, board swap and
+     * close, so it also tells a poller whether anything happened since it last looked.
+     */
+    long version() {
+        return load();
+    }
 
-    public synchronized String[] applyMove(String clientId, String rawCoord) {
+    public boolean isClosed() {
+        return (load() & CLOSED) != 0;
+    }
+
+    /**
+     * Ends the session: waits out a move in progress, detaches both boards and returns them
+     * to the pool, or frees the slot. Replays and move counts stay available for heap
+     * sessions; a slot session only keeps its move count.
+     * @return {@code false} if the session was already closed
+     */
+    public boolean close() {
+        long current = load();
+        while (!claim(current)) {
+            if ((current & CLOSED) != 0) {
+                return false;
+            }
+            Thread.onSpinWait();
+            current = load();
+        }
+        if (store != null) {
+            closedState = current | CLOSED;
+            store.setState(handle, current | CLOSED);
+            store.free(handle);
+            return true;
+        }
+        log.close(System.nanoTime());
+        BoardState boardA = playerA.getBoard();
+        BoardState boardB = playerB.getBoard();
+        playerA.setBoard(null);
+        playerB.setBoard(null);
+        // never cleared, so no reader that started before can validate against a later state
+        state.set(current | CLOSED);
+        if (pool != null) {
+            pool.release(boardA);
+            pool.release(boardB);
+        }
+        return true;
+    }
+
+    /**
+     * The state word; for a slot session whose slot went to another session, the one it closed with.
+     */
+    private long load() {
+        if (store == null) {
+            return state.get();
+        }
+        long current = store.state(handle);
+        return (current & SlotStore.GENERATION) == generation ? current : closedState;
+    }
+
+    private void publish(long next) {
+        if (store == null) {
+            state.set(next);
+        } else {
+            store.setState(handle, next);
+        }
+    }
+
+    private static int count(long state) {
+        return (int) ((state & COUNT) >>> COUNT_SHIFT);
+    }
+
+    /**
+     * Runs {@code reader}, given the state word it runs against, with no move applied while it ran.
+     */
+    private <T> T read(LongFunction<T> reader) {
+        while (true) {
+            long before = load();
+            if ((before & BUSY) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            T value = reader.apply(before);
+            VarHandle.acquireFence();
+            if (load() == before) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Claims the state word for a writer, if it still equals {@code expected}.
+     */
+    private boolean claim(long expected) {
+        if ((expected & (BUSY | CLOSED)) != 0) {
+            return false;
+        }
+        return store == null
+                ? state.compareAndSet(expected, expected | BUSY)
+                : store.casState(handle, expected, expected | BUSY);
+    }
+
+    private static CharSequence mapFor(Player player, MapSource maps) {
+        String own = player.getPreferredMap();
+        return own != null ? own : maps.nextMap();
+    }
+
+    /**
+     * Swaps a player's board for the given (already validated) map, as long as no shot has been fired yet.
+     * @return whether the board was replaced
+     */
+    public boolean replaceBoard(String playerId, String map) {
+        boolean isA = playerA.getId().equals(playerId);
+        if (!isA && !playerB.getId().equals(playerId)) {
+            return false;
+        }
+
+        long current = load();
+        while (count(current) == 0 && (current & CLOSED) == 0) {
+            if (claim(current)) {
+                // a heap board is swapped rather than reset, so readers holding the old one
+                // still see a consistent grid; it is not pooled for the same reason
+                try {
+                    if (store != null) {
+                        store.setMap(handle, isA ? 0 : 1, map);
+                    } else {
+                        if (isA) {
+                            mapA = map;
+                            playerA.setBoard(new BoardState(map));
+                        } else {
+                            mapB = map;
+                            playerB.setBoard(new BoardState(map));
+                        }
+                        log.start(mapA, mapB, System.nanoTime());
+                    }
+                } finally {
+                    publish((current & ~SWAPS) | ((current + (1L << SWAPS_SHIFT)) & SWAPS));
+                }
+                return true;
+            }
+            Thread.onSpinWait();
+            current = load();
+        }
+        return false;
+    }
+
+    /**
+     * Snapshot of the match so far: initial maps and every accepted move.
+     * @return the replay, or {@code null} for a slot session that was closed
+     */
+    public Replay toReplay() {
+        if (store != null) {
+            return read(seen -> {
+                if ((seen & CLOSED) != 0) {
+                    return null;
+                }
+                byte[] log = store.moves(handle, count(seen));
+                return new Replay(store.map(handle, 0), store.map(handle, 1), log, log.length, count(seen) > log.length);
+            });
+        }
+        return read(seen -> {
+            int count = Math.min(count(seen), MatchLog.MAX_SHOTS);
+            return new Replay(mapA.toString(), mapB.toString(), log.shotCells(count), count, count(seen) > count);
+        });
+    }
+
+    public MoveOutcome applyMove(String clientId, String rawCoord) {
 
         String coord = normalizeCoord(rawCoord);
         if (coord == null) {
             return reject("nieprawidlowe wspolrzedne");
         }
 
-        if (!isPlayersTurn(clientId)) {
+        long current = load();
+        if ((current & CLOSED) != 0) {
+            return reject("nieprawidlowa sesja");
+        }
+        if (!isPlayersTurn(clientId, current)) {
             return reject("nie twoja tura");
         }
+        if (count(current) == MAX_COUNT) {
+            return reject("limit ruchow");
+        }
 
         Position pos = parsePosition(coord);
         if (pos == null) {
@@ -86,15 +386,25 @@ public class GameLoop {
             return reject("nieprawidlowa sesja");
         }
 
-        String boardResult = fire(players.defender(), pos);
-        if (boardResult == null) {
-            return reject("nieprawidlowe wspolrzedne");
+        if (!claim(current)) {
+            return reject("nie twoja tura");
         }
 
-        String nextTurnId = players.defender().getId();
-        this.currentTurn = nextTurnId;
+        long next = current;
+        ShotResult result;
+        try {
+            result = fire(players.defender(), pos);
+            if (result == null) {
+                return reject("nieprawidlowe wspolrzedne");
+            }
+            int count = count(current);
+            recordMove(count, pos, result);
+            next = (current & ~(COUNT | SIDE_B)) | ((long) (count + 1) << COUNT_SHIFT) | ((current & SIDE_B) ^ SIDE_B);
+        } finally {
+            publish(next);
+        }
 
-        return accept(players.attacker(), coord, boardResult, nextTurnId);
+        return MoveOutcome.accepted(players.attacker().getId(), coord.toUpperCase(), players.defender().getId(), result);
     }
 
 
@@ -104,9 +414,12 @@ public class GameLoop {
         return trimmed.isEmpty() ? null : trimmed;
     }
 
-    private boolean isPlayersTurn(String clientId) {
-        String curTurn = getCurrentTurn();
-        return curTurn != null && curTurn.equals(clientId);
+    private boolean isPlayersTurn(String clientId, long current) {
+        if ((current & BUSY) != 0 || clientId == null) {
+            return false;
+        }
+        Player turn = (current & SIDE_B) == 0 ? playerA : playerB;
+        return turn.getId().equals(clientId);
     }
 
     private Position parsePosition(String coord) {
@@ -135,51 +448,32 @@ public class GameLoop {
         Player attacker = a.getId().equals(clientId) ? a : b;
         Player defender = attacker == a ? b : a;
 
-        if (defender.getBoard() == null) return null;
+        if (store == null && defender.getBoard() == null) return null;
 
         return new Players(attacker, defender);
     }
 
-    private String fire(Player defender, Position pos) {
+    private ShotResult fire(Player defender, Position pos) {
         try {
+            if (store != null) {
+                return store.fireAt(handle, defender == playerB ? 1 : 0, pos.row() * BoardConfig.COLS + pos.col());
+            }
             return defender.getBoard().fireAt(pos.row(), pos.col());
         } catch (Exception e) {
             return null;
         }
     }
 
-    private void advanceTurn(Players players) {
-        Player attacker = players.attacker();
-        Player defender = players.defender();
-        this.currentTurn = defender.getId();
-    }
-
-    private String mapResult(String boardResult) {
-        String token = boardResult == null ? "" : boardResult.toLowerCase();
-
-        return switch (token) {
-            case "ostatni_zatopiony", "last_sunk" -> "ostatni_zatopiony";
-            case "trafiony", "hit"                -> "trafiony";
-            default                               -> "pudlo";
-        };
-    }
-
-    private String[] reject(String reason) {
-        return new String[] { "odrzucono", reason };
+    private void recordMove(int count, Position pos, ShotResult result) {
+        int cell = pos.row() * BoardConfig.COLS + pos.col();
+        if (store != null) {
+            store.putMove(handle, count, cell);
+        } else {
+            log.shot(count & 1, cell, result, System.nanoTime());
+        }
     }
 
-    private String[] accept(
-            Player attacker,
-            String coord,
-            String boardResult,
-            String nextTurnId
-    ) {
-        return new String[] {
-                "zaakceptowano",
-                attacker.getId(),
-                coord.toUpperCase(),
-                nextTurnId,
-                mapResult(boardResult)
-        };
+    private MoveOutcome reject(String reason) {
+        return MoveOutcome.rejected(reason);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+package kingazm.engine;
+
+import kingazm.board.BoardConfig;
+
+/**
+ * What happens in a match, each as one {@code int} of a {@link MatchLog}, so recording and
+ * folding allocate nothing.
+ *
+ * <pre>
+ * bits 28-31  type
+ * bit  27     side: 0 for player A, 1 for player B (shooter, or winner of a sunk fleet)
+ * bits 8-9    shot result code ({@link ShotResult#code()}) or end reason
+ * bits 0-6    cell, {@code row * 10 + col}
+ * </pre>
+ *
+ * {@link #MATCH_STARTED} is followed by {@link #MAP_INTS} ints per side holding the map as a
+ * mast bitmask, player A's first.
+ */
+public final class MatchEvent {
+    public static final int MATCH_STARTED = 1;
+    public static final int SHOT_FIRED = 2;
+    public static final int SHOT_RESOLVED = 3;
+    public static final int GAME_ENDED = 4;
+
+    /** the shooter sank the other fleet; the side is the winner */
+    public static final int END_SUNK = 0;
+    /** the session was closed before anyone won */
+    public static final int END_CLOSED = 1;
+
+    static final int CELLS = BoardConfig.ROWS * BoardConfig.COLS;
+    public static final int MAP_INTS = (CELLS + 31) / 32;
+
+    private static final int TYPE_SHIFT = 28;
+    private static final int SIDE_SHIFT = 27;
+    private static final int CODE_SHIFT = 8;
+    private static final int CODE_MASK = 0x3;
+    private static final int CELL_MASK = 0x7F;
+
+    private MatchEvent() {}
+
+    static int matchStarted() {
+        return MATCH_STARTED << TYPE_SHIFT;
+    }
+
+    static int shotFired(int side, int cell) {
+        return SHOT_FIRED << TYPE_SHIFT | side << SIDE_SHIFT | cell;
+    }
+
+    static int shotResolved(int side, int cell, ShotResult result) {
+        return SHOT_RESOLVED << TYPE_SHIFT | side << SIDE_SHIFT | result.code() << CODE_SHIFT | cell;
+    }
+
+    static int gameEnded(int side, int reason) {
+        return GAME_ENDED << TYPE_SHIFT | side << SIDE_SHIFT | reason << CODE_SHIFT;
+    }
+
+    public static int type(int event) {
+        return event >>> TYPE_SHIFT;
+    }
+
+    public static int side(int event) {
+        return (event >>> SIDE_SHIFT) & 1;
+    }
+
+    public static int cell(int event) {
+        return event & CELL_MASK;
+    }
+
+    /**
+     * The {@link ShotResult} code of a {@link #SHOT_RESOLVED}, or the reason of a {@link #GAME_ENDED}.
+     */
+    public static int code(int event) {
+        return (event >>> CODE_SHIFT) & CODE_MASK;
+    }
+
+    /**
+     * Ints the event takes in the log, payload included.
+     */
+    public static int length(int event) {
+        return type(event) == MATCH_STARTED ? 1 + 2 * MAP_INTS : 1;
+    }
+
+    /**
+     * Writes {@code map} as a mast bitmask into {@code MAP_INTS} ints at {@code offset}.
+     */
+    static void packMap(CharSequence map, int[] dst, int offset) {
+        if (map.length() != CELLS) {
+            throw new IllegalArgumentException("map must be " + CELLS + " chars");
+        }
+        for (int i = 0; i < MAP_INTS; i++) {
+            dst[offset + i] = 0;
+        }
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (map.charAt(cell) == BoardConfig.MAST) {
+                dst[offset + (cell >>> 5)] |= 1 << (cell & 31);
+            }
+        }
+    }
+}
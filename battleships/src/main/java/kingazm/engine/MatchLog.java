@@ -0,0 +1,268 @@
+package kingazm.engine;
+
+import kingazm.board.BoardConfig;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The ordered {@link MatchEvent}s of one match, the record a replay, a spectator, statistics
+ * or a resumed session are rebuilt from. Events sit in a growing {@code int[]} next to the
+ * {@link System#nanoTime()} each was recorded at; nothing is allocated per shot.
+ *
+ * <p>The log folds its own tail {@link MatchState} as events arrive and keeps a binary
+ * snapshot of it every {@link #SNAPSHOT_EVERY} shots, so {@link #rebuild} starts from the
+ * nearest snapshot instead of the first event.
+ *
+ * <p>Written only by the {@link GameLoop} move holding the session's turn; read through the
+ * same seqlock as the boards, or after the game is over. A match longer than
+ * {@link #MAX_SHOTS} shots keeps only the first ones and how it ended.
+ */
+public final class MatchLog {
+    public static final int MAGIC = 0x42534D4C; // "BSML"
+    public static final byte VERSION = 1;
+    public static final int SNAPSHOT_EVERY = 32;
+    /** shots kept: ten times what sweeping both boards takes, so only repeated shots go past it */
+    public static final int MAX_SHOTS = 20 * BoardConfig.ROWS * BoardConfig.COLS;
+
+    private int[] events = new int[64];
+    private long[] times = new long[64];
+    private int size;
+    private int shots;
+    private final MatchState tail = new MatchState();
+    private byte[] snapshots = new byte[4 * MatchState.SNAPSHOT_BYTES];
+    private int snapshotCount;
+
+    MatchLog() {
+    }
+
+    /**
+     * A log of these moves fired again at fresh boards, for a session that kept only its
+     * moves. Every event is stamped 0.
+     */
+    static MatchLog refired(CharSequence mapA, CharSequence mapB, byte[] moves) {
+        MatchLog log = new MatchLog();
+        log.start(mapA, mapB, 0);
+        BoardState[] boards = {new BoardState(mapA), new BoardState(mapB)};
+        for (int move = 0; move < moves.length; move++) {
+            int side = move & 1;
+            int cell = moves[move];
+            ShotResult result = boards[side ^ 1].fireAt(cell / BoardConfig.COLS, cell % BoardConfig.COLS);
+            log.shot(side, cell, result, 0);
+            if (result == ShotResult.LAST_SUNK) {
+                break;
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Starts the log over with a {@link MatchEvent#MATCH_STARTED} on these maps.
+     */
+    void start(CharSequence mapA, CharSequence mapB, long now) {
+        size = 0;
+        shots = 0;
+        snapshotCount = 0;
+        int header = MatchEvent.matchStarted();
+        ensureCapacity(MatchEvent.length(header));
+        events[0] = header;
+        MatchEvent.packMap(mapA, events, 1);
+        MatchEvent.packMap(mapB, events, 1 + MatchEvent.MAP_INTS);
+        Arrays.fill(times, 0, MatchEvent.length(header), now);
+        size = MatchEvent.length(header);
+        tail.apply(events, 0, size);
+    }
+
+    /**
+     * Records a shot of {@code side} as fired and resolved, and the end of the game when it
+     * sank the last mast.
+     */
+    void shot(int side, int cell, ShotResult result, long now) {
+        if (shots >= MAX_SHOTS) {
+            if (result == ShotResult.LAST_SUNK) {
+                append(MatchEvent.gameEnded(side, MatchEvent.END_SUNK), now);
+                tail.apply(events, tail.position(), size);
+            }
+            return;
+        }
+        append(MatchEvent.shotFired(side, cell), now);
+        append(MatchEvent.shotResolved(side, cell, result), now);
+        shots++;
+        if (result == ShotResult.LAST_SUNK) {
+            append(MatchEvent.gameEnded(side, MatchEvent.END_SUNK), now);
+        }
+        tail.apply(events, tail.position(), size);
+        if (shots % SNAPSHOT_EVERY == 0) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Records that the session closed; nothing if the game had already ended.
+     */
+    void close(long now) {
+        if (!tail.isOver()) {
+            append(MatchEvent.gameEnded(0, MatchEvent.END_CLOSED), now);
+            tail.apply(events, tail.position(), size);
+        }
+    }
+
+    private void append(int event, long now) {
+        ensureCapacity(1);
+        events[size] = event;
+        times[size] = now;
+        size++;
+    }
+
+    private void ensureCapacity(int more) {
+        if (size + more > events.length) {
+            int grown = Math.max(events.length * 2, size + more);
+            events = Arrays.copyOf(events, grown);
+            times = Arrays.copyOf(times, grown);
+        }
+    }
+
+    private void snapshot() {
+        int offset = snapshotCount * MatchState.SNAPSHOT_BYTES;
+        if (offset + MatchState.SNAPSHOT_BYTES > snapshots.length) {
+            snapshots = Arrays.copyOf(snapshots, snapshots.length * 2);
+        }
+        tail.writeSnapshot(snapshots, offset);
+        snapshotCount++;
+    }
+
+    /**
+     * Ints in the log; events start at 0 and each is followed by the next at {@link #next}.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int eventAt(int position) {
+        return events[position];
+    }
+
+    public long timeAt(int position) {
+        return times[position];
+    }
+
+    /**
+     * The offset of the event after the one at {@code position}.
+     */
+    public int next(int position) {
+        return position + MatchEvent.length(events[position]);
+    }
+
+    public int shots() {
+        return shots;
+    }
+
+    public int snapshots() {
+        return snapshotCount;
+    }
+
+    /**
+     * The state after every event so far. Owned by the log: read it, do not fold into it.
+     */
+    public MatchState state() {
+        return tail;
+    }
+
+    /**
+     * Folds the events before {@code position} into {@code into}, starting from the last
+     * snapshot taken at or before it.
+     * @param position an event offset, at most {@link #size()}
+     */
+    public void rebuild(int position, MatchState into) {
+        int low = 0;
+        int high = snapshotCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (MatchState.snapshotPosition(snapshots, middle * MatchState.SNAPSHOT_BYTES) <= position) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (found < 0) {
+            into.apply(events, 0, position);
+            return;
+        }
+        into.readSnapshot(snapshots, found * MatchState.SNAPSHOT_BYTES);
+        into.apply(events, into.position(), position);
+    }
+
+    /**
+     * The cells of the first {@code n} shots, as a replay stores them.
+     */
+    byte[] shotCells(int n) {
+        byte[] cells = new byte[n];
+        int shot = 0;
+        for (int at = 0; at < size && shot < n; at = next(at)) {
+            if (MatchEvent.type(events[at]) == MatchEvent.SHOT_FIRED) {
+                cells[shot++] = (byte) MatchEvent.cell(events[at]);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Writes the events and snapshots; timings are local to this process and are left out.
+     * <pre>
+     * log := MAGIC:int VERSION:byte size:int event:int[size] count:int snapshot:byte[count * SNAPSHOT_BYTES]
+     * </pre>
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(events[i]);
+        }
+        out.writeInt(snapshotCount);
+        out.write(snapshots, 0, snapshotCount * MatchState.SNAPSHOT_BYTES);
+    }
+
+    /**
+     * Reads a log written by {@link #writeTo}; its state is rebuilt from the last snapshot.
+     */
+    public static MatchLog readFrom(DataInput in) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("not a match log (bad magic " + Integer.toHexString(magic) + ")");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported match log version: " + version);
+        }
+        int size = in.readInt();
+        // the start, two events per shot and the end
+        if (size < 0 || size > MatchEvent.length(MatchEvent.matchStarted()) + 2 * MAX_SHOTS + 1) {
+            throw new IOException("invalid match log size: " + size);
+        }
+        MatchLog log = new MatchLog();
+        log.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            log.events[i] = in.readInt();
+        }
+        log.size = size;
+        int count = in.readInt();
+        if (count < 0 || count > MAX_SHOTS / SNAPSHOT_EVERY) {
+            throw new IOException("invalid snapshot count: " + count);
+        }
+        log.snapshots = new byte[Math.max(count, 1) * MatchState.SNAPSHOT_BYTES];
+        in.readFully(log.snapshots, 0, count * MatchState.SNAPSHOT_BYTES);
+        log.snapshotCount = count;
+
+        log.rebuild(size, log.tail);
+        if (log.tail.position() != size) {
+            throw new IOException("match log ends inside an event");
+        }
+        log.shots = log.tail.shots();
+        return log;
+    }
+}
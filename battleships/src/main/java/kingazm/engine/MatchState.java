@@ -0,0 +1,198 @@
+package kingazm.engine;
+
+/**
+ * A match as a fold over its {@link MatchEvent}s: both grids in {@link ShotTable} states,
+ * masts afloat, the side to move and how the match ended. One instance is reused for any
+ * number of folds; {@link #apply} allocates nothing.
+ *
+ * <p>Snapshots are {@link #SNAPSHOT_BYTES} bytes:
+ * <pre>
+ * position:int  shots:int  flags:byte  afloatA:byte  afloatB:byte  grids:50 bytes
+ * </pre>
+ * where {@code position} is the log offset the state was folded up to, {@code flags} holds
+ * the side to move (bit 0), whether the game is over (bit 1), the winner (bit 2) and the end
+ * reason (bits 3-4), and each cell takes two bits, player A's grid first.
+ */
+public final class MatchState {
+    public static final int SNAPSHOT_BYTES = 4 + 4 + 3 + 2 * MatchEvent.CELLS / 4;
+
+    private final byte[][] grids = {new byte[MatchEvent.CELLS], new byte[MatchEvent.CELLS]};
+    private final int[] afloat = new int[2];
+    private int position;
+    private int shots;
+    private int sideToMove;
+    private boolean over;
+    private int winner;
+    private int endReason;
+
+    /**
+     * Folds the events in {@code events[from, to)} into this state.
+     * @param from the offset of an event, usually {@link #position()}
+     * @return the offset reached, {@code to} unless the last event was cut short
+     */
+    public int apply(int[] events, int from, int to) {
+        int at = from;
+        while (at < to) {
+            int event = events[at];
+            int length = MatchEvent.length(event);
+            if (at + length > to) {
+                break;
+            }
+            switch (MatchEvent.type(event)) {
+                case MatchEvent.MATCH_STARTED -> start(events, at + 1);
+                case MatchEvent.SHOT_RESOLVED -> resolve(MatchEvent.side(event), MatchEvent.cell(event));
+                case MatchEvent.GAME_ENDED -> end(MatchEvent.side(event), MatchEvent.code(event));
+                default -> { }
+            }
+            at += length;
+        }
+        position = at;
+        return at;
+    }
+
+    private void start(int[] events, int maps) {
+        for (int side = 0; side < 2; side++) {
+            byte[] grid = grids[side];
+            int offset = maps + side * MatchEvent.MAP_INTS;
+            int masts = 0;
+            for (int cell = 0; cell < grid.length; cell++) {
+                int mast = (events[offset + (cell >>> 5)] >>> (cell & 31)) & 1;
+                grid[cell] = (byte) mast;
+                masts += mast;
+            }
+            afloat[side] = masts;
+        }
+        shots = 0;
+        sideToMove = 0;
+        over = false;
+        winner = 0;
+        endReason = 0;
+    }
+
+    /**
+     * The shot of {@code side} at {@code cell} lands on the other side's grid.
+     */
+    private void resolve(int side, int cell) {
+        int target = side ^ 1;
+        byte[] grid = grids[target];
+        int state = grid[cell];
+        int entry = ShotTable.lookup(state, ShotTable.event(afloat[target]));
+        grid[cell] = (byte) ShotTable.nextState(entry);
+        if (state == ShotTable.MAST) {
+            afloat[target]--;
+        }
+        shots++;
+        sideToMove = target;
+    }
+
+    private void end(int side, int reason) {
+        over = true;
+        winner = side;
+        endReason = reason;
+    }
+
+    /**
+     * Offset in the log up to which events were folded.
+     */
+    public int position() {
+        return position;
+    }
+
+    public int shots() {
+        return shots;
+    }
+
+    /**
+     * 0 for player A, 1 for player B.
+     */
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * The side that sank the other fleet; only meaningful when {@link #endReason()} is
+     * {@link MatchEvent#END_SUNK}.
+     */
+    public int winner() {
+        return winner;
+    }
+
+    public int endReason() {
+        return endReason;
+    }
+
+    public int afloat(int side) {
+        return afloat[side];
+    }
+
+    /**
+     * The {@link ShotTable} state of a cell of {@code side}'s grid.
+     */
+    public int cell(int side, int cell) {
+        return grids[side][cell];
+    }
+
+    String view(int side, BoardState.View kind) {
+        return BoardState.view(grids[side], kind);
+    }
+
+    void writeSnapshot(byte[] dst, int offset) {
+        putInt(dst, offset, position);
+        putInt(dst, offset + 4, shots);
+        dst[offset + 8] = (byte) (sideToMove | (over ? 2 : 0) | winner << 2 | endReason << 3);
+        dst[offset + 9] = (byte) afloat[0];
+        dst[offset + 10] = (byte) afloat[1];
+        int packed = offset + 11;
+        for (int side = 0; side < 2; side++) {
+            byte[] grid = grids[side];
+            for (int cell = 0; cell < grid.length; cell += 4) {
+                dst[packed++] = (byte) (grid[cell] | grid[cell + 1] << 2 | grid[cell + 2] << 4 | grid[cell + 3] << 6);
+            }
+        }
+    }
+
+    void readSnapshot(byte[] src, int offset) {
+        position = getInt(src, offset);
+        shots = getInt(src, offset + 4);
+        int flags = src[offset + 8];
+        sideToMove = flags & 1;
+        over = (flags & 2) != 0;
+        winner = (flags >>> 2) & 1;
+        endReason = (flags >>> 3) & 3;
+        afloat[0] = src[offset + 9];
+        afloat[1] = src[offset + 10];
+        int packed = offset + 11;
+        for (int side = 0; side < 2; side++) {
+            byte[] grid = grids[side];
+            for (int cell = 0; cell < grid.length; cell += 4) {
+                int four = src[packed++];
+                grid[cell] = (byte) (four & 3);
+                grid[cell + 1] = (byte) ((four >>> 2) & 3);
+                grid[cell + 2] = (byte) ((four >>> 4) & 3);
+                grid[cell + 3] = (byte) ((four >>> 6) & 3);
+            }
+        }
+    }
+
+    /**
+     * The {@link #position()} of the snapshot at {@code offset}, without reading the rest.
+     */
+    static int snapshotPosition(byte[] src, int offset) {
+        return getInt(src, offset);
+    }
+
+    private static void putInt(byte[] dst, int offset, int value) {
+        dst[offset] = (byte) (value >>> 24);
+        dst[offset + 1] = (byte) (value >>> 16);
+        dst[offset + 2] = (byte) (value >>> 8);
+        dst[offset + 3] = (byte) value;
+    }
+
+    private static int getInt(byte[] src, int offset) {
+        return (src[offset] & 0xFF) << 24 | (src[offset + 1] & 0xFF) << 16 | (src[offset + 2] & 0xFF) << 8 | (src[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,21 @@
+package kingazm.engine;
+
+/**
+ * What {@link GameLoop#applyMove} made of a move: either why it was rejected, or who fired
+ * where, whose turn it is now and what the shot did. Turning the result into protocol
+ * lines is up to the server.
+ */
+public record MoveOutcome(String rejection, String attackerId, String coord, String nextTurnId, ShotResult result) {
+
+    static MoveOutcome rejected(String reason) {
+        return new MoveOutcome(reason, null, null, null, null);
+    }
+
+    static MoveOutcome accepted(String attackerId, String coord, String nextTurnId, ShotResult result) {
+        return new MoveOutcome(null, attackerId, coord, nextTurnId, result);
+    }
+
+    public boolean isAccepted() {
+        return rejection == null;
+    }
+}
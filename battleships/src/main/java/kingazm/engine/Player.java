@@ -6,7 +6,9 @@ import java.util.Objects;
 public class Player {
     private final String id;
     private final PrintWriter writer;
-    private BoardState board;
+    private volatile BoardState board;
+    private volatile String preferredMap;
+    private volatile String name;
 
     public Player(String id, PrintWriter writer) {
         this.id = Objects.requireNonNull(id, "id");
@@ -21,11 +23,33 @@ public class Player {
         return writer;
     }
 
-    public synchronized BoardState getBoard() {
+    /**
+     * Map the player brought with {@code -map}, or {@code null} to let the server pick one.
+     */
+    public String getPreferredMap() {
+        return preferredMap;
+    }
+
+    public void setPreferredMap(String preferredMap) {
+        this.preferredMap = preferredMap;
+    }
+
+    /**
+     * Name the player logged in with, or {@code null} for an anonymous connection.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BoardState getBoard() {
         return board;
     }
 
-    public synchronized void setBoard(BoardState board) {
+    public void setBoard(BoardState board) {
         this.board = board;
     }
 
@@ -35,6 +59,12 @@ public class Player {
         }
     }
 
+    /**
+     * Called by the server once it has told the player that it is its turn. A remote player
+     * learns that from the message itself; a player living on the server moves here.
+     */
+    public void onTurn() {}
+
     @Override
     public String toString() {
         return "Player{" + id + "}";
@@ -0,0 +1,32 @@
+package kingazm.engine;
+
+/**
+ * Totals over the finished games of one player. Immutable; {@link StatsRegistry} replaces a
+ * player's entry with the sum after each game.
+ *
+ * @param shotsInWins shots fired in the games the player won
+ * @param thinkNanos time the player took over all its shots
+ */
+public record PlayerStats(long games, long wins, long shots, long hits, long shotsInWins, long thinkNanos) {
+    public static final PlayerStats NONE = new PlayerStats(0, 0, 0, 0, 0, 0);
+
+    public PlayerStats plus(PlayerStats other) {
+        return new PlayerStats(games + other.games, wins + other.wins, shots + other.shots,
+                hits + other.hits, shotsInWins + other.shotsInWins, thinkNanos + other.thinkNanos);
+    }
+
+    /**
+     * Hits per shot, 0 to 1.
+     */
+    public double accuracy() {
+        return shots == 0 ? 0 : (double) hits / shots;
+    }
+
+    public double shotsToWin() {
+        return wins == 0 ? 0 : (double) shotsInWins / wins;
+    }
+
+    public double millisPerMove() {
+        return shots == 0 ? 0 : thinkNanos / 1e6 / shots;
+    }
+}
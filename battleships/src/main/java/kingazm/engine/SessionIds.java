@@ -0,0 +1,21 @@
+package kingazm.engine;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session ids: a random per-process prefix and a counter, both in base 36. Much cheaper than
+ * a random {@code UUID} (no secure random, one short string), still unique across the
+ * router and backends of a cluster and across restarts for all practical purposes.
+ */
+public final class SessionIds {
+    private static final String PREFIX =
+            Long.toString(ThreadLocalRandom.current().nextLong(1L << 40, 1L << 41), 36) + "-";
+    private static final AtomicLong NEXT = new AtomicLong();
+
+    private SessionIds() {}
+
+    public static String next() {
+        return PREFIX + Long.toString(NEXT.incrementAndGet(), 36);
+    }
+}
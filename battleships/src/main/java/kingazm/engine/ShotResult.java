@@ -0,0 +1,21 @@
+package kingazm.engine;
+
+/**
+ * Outcome of a single shot. The {@link #code()} is what {@link ShotTable} stores.
+ */
+public enum ShotResult {
+    MISS,
+    HIT,
+    /** hit on the defender's last afloat mast: the shooter wins */
+    LAST_SUNK;
+
+    private static final ShotResult[] BY_CODE = values();
+
+    public int code() {
+        return ordinal();
+    }
+
+    public static ShotResult ofCode(int code) {
+        return BY_CODE[code];
+    }
+}
@@ -0,0 +1,92 @@
+package kingazm.engine;
+
+import kingazm.board.BoardConfig;
+
+/**
+ * Shot resolution as a transition table. The state of the cell fired at and the event (is
+ * this cell the last mast that could still be afloat?) select one entry, which packs the
+ * cell's next state and the {@link ShotResult} code into a byte. {@link BoardState},
+ * {@link SlotStore}, replays and bots all resolve shots through it.
+ *
+ * <p>A state is {@code mast | shot << 1}, the two bits a bitboard keeps per cell, so
+ * {@link #WATER}, {@link #MAST}, {@link #MISS} and {@link #HIT} are 0 to 3.
+ */
+public final class ShotTable {
+    public static final int WATER = 0;
+    public static final int MAST = 1;
+    public static final int MISS = 2;
+    public static final int HIT = 3;
+    public static final int STATES = 4;
+
+    /** a shot while more than one mast is afloat */
+    public static final int SHOT = 0;
+    /** a shot while exactly one mast is afloat: hitting a mast now sinks the fleet */
+    public static final int SHOT_LAST = 1;
+    public static final int EVENTS = 2;
+
+    private static final int RESULT_BITS = 2;
+    private static final int RESULT_MASK = (1 << RESULT_BITS) - 1;
+    private static final byte[] TABLE = new byte[STATES * EVENTS];
+    private static final char[] SYMBOLS = {BoardConfig.WATER, BoardConfig.MAST, BoardConfig.MISS, BoardConfig.HIT};
+
+    static {
+        for (int event = 0; event < EVENTS; event++) {
+            put(WATER, event, MISS, ShotResult.MISS);
+            put(MISS, event, MISS, ShotResult.MISS);
+            put(HIT, event, HIT, ShotResult.HIT);
+        }
+        put(MAST, SHOT, HIT, ShotResult.HIT);
+        put(MAST, SHOT_LAST, HIT, ShotResult.LAST_SUNK);
+    }
+
+    private ShotTable() {}
+
+    private static void put(int state, int event, int next, ShotResult result) {
+        TABLE[state * EVENTS + event] = (byte) (next << RESULT_BITS | result.code());
+    }
+
+    /**
+     * The entry for a shot at a cell in {@code state}.
+     */
+    public static int lookup(int state, int event) {
+        return TABLE[state * EVENTS + event];
+    }
+
+    /**
+     * The event for a shot at a board with {@code afloat} masts not yet hit.
+     */
+    public static int event(int afloat) {
+        return afloat == 1 ? SHOT_LAST : SHOT;
+    }
+
+    public static int nextState(int entry) {
+        return entry >>> RESULT_BITS;
+    }
+
+    public static int resultCode(int entry) {
+        return entry & RESULT_MASK;
+    }
+
+    public static ShotResult result(int entry) {
+        return ShotResult.ofCode(entry & RESULT_MASK);
+    }
+
+    /**
+     * The state of a map or grid character; anything unknown reads as water.
+     */
+    public static int stateOf(char symbol) {
+        return switch (symbol) {
+            case BoardConfig.MAST -> MAST;
+            case BoardConfig.MISS -> MISS;
+            case BoardConfig.HIT -> HIT;
+            default -> WATER;
+        };
+    }
+
+    /**
+     * The {@link BoardConfig} character for a state.
+     */
+    public static char symbol(int state) {
+        return SYMBOLS[state];
+    }
+}
@@ -0,0 +1,221 @@
+package kingazm.engine;
+
+import kingazm.board.BoardConfig;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size session slots in one direct buffer, for {@link GameLoop}s that keep their turn
+ * word, both grids and the move log off the heap. A slot is addressed by an int handle, so
+ * the heap holds nothing per session but the thin {@code GameLoop} and its players.
+ *
+ * <p>Slot layout (native byte order, 8-byte aligned):
+ * <pre>
+ *   0  state word: generation in the high 32 bits, then the {@link GameLoop} flags and move count
+ *   8  free-list link while the slot is free
+ *  16  side A: masts (2 longs), shots (2 longs)
+ *  48  side B: masts, shots
+ *  80  move log, one cell byte per move
+ * </pre>
+ * A grid is a pair of bitboards over the 100 cells: bit {@code cell} of the low word, or bit
+ * {@code cell - 64} of the high one. The generation grows every time a slot is handed out,
+ * so a {@code GameLoop} still holding a freed handle finds its session closed.
+ *
+ * <p>Like {@link BoardState}, grids and the move log are not synchronized: the owning
+ * {@code GameLoop} claims the state word before writing and validates reads against it.
+ */
+public final class SlotStore {
+    /** moves kept per session; later ones (only possible by firing at the same cell again) are not logged */
+    public static final int MOVES = 256;
+    static final long GENERATION = 0xFFFF_FFFF_0000_0000L;
+
+    private static final int COLS = BoardConfig.COLS;
+    private static final int CELLS = BoardConfig.ROWS * COLS;
+    private static final int STATE = 0;
+    private static final int LINK = 8;
+    private static final int SIDES = 16;
+    private static final int SIDE_SIZE = 32;
+    private static final int SHOTS = 16;
+    private static final int LOG = SIDES + 2 * SIDE_SIZE;
+    private static final int SLOT_SIZE = LOG + MOVES;
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer slots;
+    private final int capacity;
+    // handle + 1 of the first free slot (0: none) in the low half, an ABA tag in the high half
+    private final AtomicLong freeHead = new AtomicLong();
+
+    public SlotStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, SLOT_SIZE)).order(ByteOrder.nativeOrder());
+        for (int handle = 0; handle < capacity; handle++) {
+            slots.putLong(offset(handle) + LINK, handle + 1 < capacity ? handle + 2 : 0);
+        }
+        freeHead.set(1);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Bytes of direct memory one session takes.
+     */
+    public static int slotSize() {
+        return SLOT_SIZE;
+    }
+
+    /**
+     * Takes a free slot and clears it for a new session in the next generation.
+     * @return the handle, or {@code -1} when every slot is in use
+     */
+    int allocate() {
+        long head;
+        int handle;
+        do {
+            head = freeHead.get();
+            handle = (int) head - 1;
+            if (handle < 0) {
+                return -1;
+            }
+            long next = (long) LONGS.getVolatile(slots, offset(handle) + LINK);
+            if (freeHead.compareAndSet(head, tagged(head, next))) {
+                break;
+            }
+        } while (true);
+
+        int base = offset(handle);
+        for (int i = SIDES; i < SLOT_SIZE; i += Long.BYTES) {
+            slots.putLong(base + i, 0L);
+        }
+        long generation = ((long) LONGS.getVolatile(slots, base + STATE) & GENERATION) + (1L << 32);
+        LONGS.setVolatile(slots, base + STATE, generation);
+        return handle;
+    }
+
+    /**
+     * Returns a slot whose session is over; its state word must already be marked closed.
+     */
+    void free(int handle) {
+        long head;
+        do {
+            head = freeHead.get();
+            LONGS.setVolatile(slots, offset(handle) + LINK, head & 0xFFFF_FFFFL);
+        } while (!freeHead.compareAndSet(head, tagged(head, handle + 1)));
+    }
+
+    long state(int handle) {
+        return (long) LONGS.getVolatile(slots, offset(handle) + STATE);
+    }
+
+    boolean casState(int handle, long expected, long update) {
+        return LONGS.compareAndSet(slots, offset(handle) + STATE, expected, update);
+    }
+
+    void setState(int handle, long state) {
+        LONGS.setVolatile(slots, offset(handle) + STATE, state);
+    }
+
+    /**
+     * Sets up one side's grid from a map, with no shots fired.
+     */
+    void setMap(int handle, int side, CharSequence map) {
+        if (map == null || map.length() != CELLS) {
+            throw new IllegalArgumentException("map must be " + CELLS + " chars");
+        }
+        long low = 0;
+        long high = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (map.charAt(cell) == BoardConfig.MAST) {
+                if (cell < 64) {
+                    low |= 1L << cell;
+                } else {
+                    high |= 1L << (cell - 64);
+                }
+            }
+        }
+        int base = sideOffset(handle, side);
+        slots.putLong(base, low);
+        slots.putLong(base + 8, high);
+        slots.putLong(base + SHOTS, 0L);
+        slots.putLong(base + SHOTS + 8, 0L);
+    }
+
+    /**
+     * Same contract as {@link BoardState#fireAt}: the cell's two bits are its {@link ShotTable}
+     * state and the afloat count is a population count.
+     */
+    ShotResult fireAt(int handle, int side, int cell) {
+        int base = sideOffset(handle, side);
+        int word = cell < 64 ? 0 : 8;
+        int bit = cell & 63;
+        long masts = slots.getLong(base + word);
+        long shots = slots.getLong(base + SHOTS + word);
+        int state = (int) (masts >>> bit & 1 | (shots >>> bit & 1) << 1);
+        int afloat = Long.bitCount(slots.getLong(base) & ~slots.getLong(base + SHOTS))
+                + Long.bitCount(slots.getLong(base + 8) & ~slots.getLong(base + SHOTS + 8));
+        int entry = ShotTable.lookup(state, ShotTable.event(afloat));
+        slots.putLong(base + SHOTS + word, shots | (long) (ShotTable.nextState(entry) >>> 1) << bit);
+        return ShotTable.result(entry);
+    }
+
+    /**
+     * The grid of one side in {@link ShotTable} states, as a {@link BoardState} would hold it.
+     */
+    byte[] cells(int handle, int side) {
+        int base = sideOffset(handle, side);
+        byte[] cells = new byte[CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            int word = cell < 64 ? 0 : 8;
+            int bit = cell & 63;
+            long mast = slots.getLong(base + word) >>> bit & 1;
+            long shot = slots.getLong(base + SHOTS + word) >>> bit & 1;
+            cells[cell] = (byte) (mast | shot << 1);
+        }
+        return cells;
+    }
+
+    /**
+     * The initial map of one side.
+     */
+    String map(int handle, int side) {
+        byte[] cells = cells(handle, side);
+        char[] map = new char[CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            map[cell] = ShotTable.symbol(cells[cell] & ShotTable.MAST);
+        }
+        return new String(map);
+    }
+
+    void putMove(int handle, int index, int cell) {
+        if (index < MOVES) {
+            slots.put(offset(handle) + LOG + index, (byte) cell);
+        }
+    }
+
+    byte[] moves(int handle, int count) {
+        byte[] moves = new byte[Math.min(count, MOVES)];
+        slots.get(offset(handle) + LOG, moves);
+        return moves;
+    }
+
+    private static long tagged(long head, long next) {
+        return ((head >>> 32) + 1) << 32 | next;
+    }
+
+    private static int offset(int handle) {
+        return handle * SLOT_SIZE;
+    }
+
+    private static int sideOffset(int handle, int side) {
+        return offset(handle) + SIDES + side * SIDE_SIZE;
+    }
+}
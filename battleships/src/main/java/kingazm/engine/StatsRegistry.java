@@ -0,0 +1,86 @@
+package kingazm.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-player statistics, folded from each finished session's {@link MatchLog}. Players
+ * are keyed by the name they logged in with. Anonymous players are not recorded: their
+ * connection id is never seen again, so their entries would only pile up.
+ */
+public class StatsRegistry {
+    private final Map<String, PlayerStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a game that {@code winnerId} won by sinking the other fleet.
+     */
+    public void recordGame(GameLoop game, String winnerId) {
+        if (game.getPlayerA().getName() == null && game.getPlayerB().getName() == null) {
+            return;
+        }
+        MatchLog log = game.getLog();
+        if (log == null) {
+            return;
+        }
+        long[] shots = new long[2];
+        long[] hits = new long[2];
+        long[] think = new long[2];
+        // a shooter thinks from the previous shot, or from the start for the first one
+        long previous = log.timeAt(0);
+        for (int at = 0; at < log.size(); at = log.next(at)) {
+            int event = log.eventAt(at);
+            int side = MatchEvent.side(event);
+            switch (MatchEvent.type(event)) {
+                case MatchEvent.SHOT_FIRED -> {
+                    shots[side]++;
+                    think[side] += log.timeAt(at) - previous;
+                    previous = log.timeAt(at);
+                }
+                case MatchEvent.SHOT_RESOLVED -> {
+                    if (MatchEvent.code(event) != ShotResult.MISS.code()) {
+                        hits[side]++;
+                    }
+                }
+                default -> { }
+            }
+        }
+        add(game.getPlayerA(), winnerId, shots[0], hits[0], think[0]);
+        add(game.getPlayerB(), winnerId, shots[1], hits[1], think[1]);
+    }
+
+    private void add(Player player, String winnerId, long shots, long hits, long think) {
+        if (player.getName() == null) {
+            return;
+        }
+        boolean won = player.getId().equals(winnerId);
+        PlayerStats game = new PlayerStats(1, won ? 1 : 0, shots, hits, won ? shots : 0, think);
+        stats.merge(player.getName(), game, PlayerStats::plus);
+    }
+
+    /**
+     * @param player a name players log in with
+     */
+    public PlayerStats get(String player) {
+        return stats.getOrDefault(player, PlayerStats.NONE);
+    }
+
+    /**
+     * Every player with at least one game, most wins first.
+     */
+    public List<Map.Entry<String, PlayerStats>> all() {
+        List<Map.Entry<String, PlayerStats>> all = new ArrayList<>(stats.entrySet().size());
+        for (Map.Entry<String, PlayerStats> entry : stats.entrySet()) {
+            all.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        all.sort(Comparator.comparingLong((Map.Entry<String, PlayerStats> e) -> e.getValue().wins()).reversed()
+                .thenComparing(Map.Entry::getKey));
+        return all;
+    }
+
+    public int size() {
+        return stats.size();
+    }
+}
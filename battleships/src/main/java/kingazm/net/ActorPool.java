@@ -0,0 +1,60 @@
+package kingazm.net;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Fixed set of workers executing {@link SessionActor}s. A session is pinned to one worker
+ * (by its id), so its game state stays in that core's cache and its commands never race;
+ * different sessions spread over the workers and run in parallel.
+ */
+final class ActorPool implements AutoCloseable {
+    private static final int BATCH = 32;
+
+    private final int mailboxCapacity;
+    private final BlockingQueue<SessionActor>[] runQueues;
+    private final Thread[] workers;
+
+    @SuppressWarnings("unchecked")
+    ActorPool(int threads, int mailboxCapacity) {
+        this.mailboxCapacity = mailboxCapacity;
+        this.runQueues = new BlockingQueue[threads];
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            BlockingQueue<SessionActor> queue = new LinkedBlockingQueue<>();
+            runQueues[i] = queue;
+            workers[i] = new Thread(() -> work(queue), "session-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    SessionActor actorFor(String sessionId) {
+        return new SessionActor(sessionId, mailboxCapacity, this, Math.floorMod(sessionId.hashCode(), workers.length));
+    }
+
+    int size() {
+        return workers.length;
+    }
+
+    void schedule(SessionActor actor) {
+        runQueues[actor.getWorker()].add(actor);
+    }
+
+    private void work(BlockingQueue<SessionActor> queue) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                queue.take().runBatch(BATCH);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+}
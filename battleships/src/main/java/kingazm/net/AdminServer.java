@@ -0,0 +1,210 @@
+package kingazm.net;
+
+import kingazm.engine.GameLoop;
+import kingazm.engine.Player;
+import kingazm.engine.PlayerStats;
+import kingazm.engine.StatsRegistry;
+import kingazm.rating.Leaderboard;
+import kingazm.rating.Rating;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local admin protocol of a {@link Server}, listening on the loopback interface only.
+ * One command per line, each answer ends with a line {@code ok} or {@code error;<reason>}:
+ * <ul>
+ *   <li>{@code sessions} - active sessions with players, turn, move count and age</li>
+ *   <li>{@code dump <sessionId>} - both boards of a session</li>
+ *   <li>{@code kick <clientId>} - disconnect a client</li>
+ *   <li>{@code queue} - players waiting for a peer</li>
+ *   <li>{@code drain [seconds]} - drain the server, streaming progress</li>
+ *   <li>{@code stats [name]} - finished-game statistics of every named player, or of one</li>
+ *   <li>{@code top [n]} - the best rated players (10 by default)</li>
+ *   <li>{@code rank <name>} - a player's rating and place</li>
+ * </ul>
+ * Every query works on a snapshot of the session map and only takes short per-session reads,
+ * so it is safe against a busy node.
+ */
+public class AdminServer {
+    private static final Logger logger = Logger.getLogger(AdminServer.class.getName());
+
+    private final Server server;
+    private final int port;
+
+    public AdminServer(Server server, int port) {
+        this.server = server;
+        this.port = port;
+    }
+
+    public void start() throws IOException {
+        ServerSocket listener = new ServerSocket(port, 8, InetAddress.getLoopbackAddress());
+        logger.info("admin port: " + listener.getLocalPort());
+        Thread acceptor = new Thread(() -> {
+            try (listener) {
+                while (!listener.isClosed()) {
+                    Socket socket = listener.accept();
+                    Thread handler = new Thread(() -> handle(socket), "admin-session");
+                    handler.setDaemon(true);
+                    handler.start();
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "admin port closed", e);
+            }
+        }, "admin-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts[0].isEmpty()) {
+                    continue;
+                }
+                if ("quit".equals(parts[0])) {
+                    return;
+                }
+                try {
+                    execute(parts, out);
+                } catch (RuntimeException e) {
+                    out.println("error;" + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "admin connection closed", e);
+        }
+    }
+
+    void execute(String[] command, PrintWriter out) {
+        switch (command[0]) {
+            case "sessions" -> listSessions(out);
+            case "dump" -> {
+                if (command.length < 2) {
+                    out.println("error;usage: dump <sessionId>");
+                    return;
+                }
+                dump(command[1], out);
+            }
+            case "kick" -> {
+                if (command.length < 2) {
+                    out.println("error;usage: kick <clientId>");
+                    return;
+                }
+                out.println(server.kick(command[1]) ? "ok" : "error;no such client");
+            }
+            case "queue" -> {
+                out.println("waiting;" + server.waitingCount() + ";routed;" + server.routedWaitingCount());
+                out.println("ok");
+            }
+            case "drain" -> {
+                long timeoutMs = command.length > 1 ? Long.parseLong(command[1]) * 1000 : server.getDrainTimeoutMs();
+                boolean clean = server.drain(timeoutMs, out::println);
+                out.println(clean ? "ok" : "ok;aborted unfinished sessions");
+            }
+            case "stats" -> stats(command.length > 1 ? command[1] : null, out);
+            case "top" -> top(command.length > 1 ? Integer.parseInt(command[1]) : 10, out);
+            case "rank" -> {
+                if (command.length < 2) {
+                    out.println("error;usage: rank <name>");
+                    return;
+                }
+                rank(command[1], out);
+            }
+            case "help" -> {
+                out.println("sessions | dump <sessionId> | kick <clientId> | queue | drain [seconds] | stats [name]"
+                        + " | top [n] | rank <name> | quit");
+                out.println("ok");
+            }
+            default -> out.println("error;unknown command: " + command[0]);
+        }
+    }
+
+    private void listSessions(PrintWriter out) {
+        long now = System.currentTimeMillis();
+        Map<String, GameLoop> sessions = server.activeSessions();
+        out.println("sessions;" + sessions.size());
+        for (Map.Entry<String, GameLoop> entry : sessions.entrySet()) {
+            GameLoop game = entry.getValue();
+            out.println(String.join(";",
+                    entry.getKey(),
+                    game.getPlayerA().getId(),
+                    game.getPlayerB().getId(),
+                    "tura=" + game.getCurrentTurn(),
+                    "ruchy=" + game.getMoveCount(),
+                    "wiek=" + (now - game.getCreatedAt()) / 1000 + "s"));
+        }
+        out.println("ok");
+    }
+
+    private void stats(String playerId, PrintWriter out) {
+        StatsRegistry registry = server.stats();
+        List<Map.Entry<String, PlayerStats>> rows = playerId == null
+                ? registry.all()
+                : List.of(Map.entry(playerId, registry.get(playerId)));
+        out.println("stats;" + rows.size());
+        for (Map.Entry<String, PlayerStats> row : rows) {
+            PlayerStats s = row.getValue();
+            out.println(String.join(";",
+                    row.getKey(),
+                    "gry=" + s.games(),
+                    "wygrane=" + s.wins(),
+                    "strzaly=" + s.shots(),
+                    String.format(Locale.ROOT, "celnosc=%.1f%%", 100 * s.accuracy()),
+                    String.format(Locale.ROOT, "strzaly_do_wygranej=%.1f", s.shotsToWin()),
+                    String.format(Locale.ROOT, "ruch=%.0fms", s.millisPerMove())));
+        }
+        out.println("ok");
+    }
+
+    private void top(int n, PrintWriter out) {
+        Leaderboard leaderboard = server.ratings().leaderboard();
+        List<Rating> top = leaderboard.top(n);
+        out.println("top;" + top.size() + ";graczy=" + leaderboard.size());
+        int place = 0;
+        for (Rating rating : top) {
+            out.println(String.format(Locale.ROOT, "%d;%s;%.0f;gry=%d", ++place, rating.name(), rating.rating(), rating.games()));
+        }
+        out.println("ok");
+    }
+
+    private void rank(String name, PrintWriter out) {
+        Leaderboard leaderboard = server.ratings().leaderboard();
+        Rating rating = leaderboard.get(name);
+        if (rating == null) {
+            out.println("error;no rated games for " + name);
+            return;
+        }
+        out.println(String.format(Locale.ROOT, "%d;%s;%.0f;gry=%d", leaderboard.rank(name), name, rating.rating(), rating.games()));
+        out.println("ok");
+    }
+
+    private void dump(String sessionId, PrintWriter out) {
+        GameLoop game = server.activeSessions().get(sessionId);
+        if (game == null) {
+            out.println("error;no such session");
+            return;
+        }
+        for (Player player : new Player[] {game.getPlayerA(), game.getPlayerB()}) {
+            out.println("plansza;" + player.getId());
+            out.print(Objects.toString(game.getBoardFor(player.getId()), ""));
+        }
+        out.println("ok");
+    }
+}
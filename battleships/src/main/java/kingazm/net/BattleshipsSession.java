@@ -0,0 +1,297 @@
+package kingazm.net;
+
+import kingazm.board.BoardConfig;
+import kingazm.engine.ShotResult;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Programmatic view of one game on the server: the protocol lines are turned into
+ * {@link Listener} events and a shot is a {@link #fire} returning its result asynchronously.
+ *
+ * <p>A session is driven by a {@link ClientEventLoop}; all listener calls happen on the
+ * loop's thread, and {@link #fire} must be called from it too (typically from
+ * {@link Listener#onTurn}), so the session needs no synchronization.
+ */
+public final class BattleshipsSession {
+    private static final String PREFIX_NOT_YOUR_TURN = "nie twoja tura";
+    private static final String PREFIX_ALREADY_SHOT = "to pole już";
+    private static final String PREFIX_INVALID = "nieprawidłowe współrzędne";
+    private static final String PREFIX_ERROR = "błąd";
+
+    /**
+     * Game events; every method has an empty default.
+     */
+    public interface Listener {
+        default void onStart(String sessionId, String playerId) {}
+
+        default void onTurn(boolean mine) {}
+
+        /**
+         * A shot by either player. {@code mine} tells whose it was.
+         */
+        default void onShot(String coord, ShotResult result, boolean mine) {}
+
+        default void onGameOver(boolean won) {}
+
+        /**
+         * Informational message from the server ({@code info;...}).
+         */
+        default void onInfo(String message) {}
+
+        /**
+         * One line of the rendered boards ({@code UI;...}).
+         */
+        default void onFrameLine(String line) {}
+
+        /**
+         * Any other line, e.g. plain-text banners or rejection messages.
+         */
+        default void onText(String line) {}
+
+        default void onDisconnected() {}
+    }
+
+    private final Listener listener;
+    // cells fired at: bit cell % 64 of shot[cell / 64], cell = row * COLS + col
+    private final long[] shot = new long[2];
+    private Consumer<String> sender;
+    private Runnable closer;
+    private String map;
+    private String name;
+    private String sessionId;
+    private String playerId;
+    private boolean myTurn;
+    private boolean gameOver;
+    private int turnsGiven;
+    private String pendingCoord;
+    private int pendingCell = -1;
+    private CompletableFuture<ShotResult> pending;
+
+    public BattleshipsSession(Listener listener) {
+        this.listener = Objects.requireNonNull(listener, "listener");
+    }
+
+    /**
+     * Play on this (already validated) map instead of one chosen by the server.
+     * Must be set before connecting.
+     */
+    public void useMap(String map) {
+        this.map = map;
+    }
+
+    /**
+     * Log in under this name, so the game is rated. Must be set before connecting.
+     */
+    public void useName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Fires at {@code coord} (e.g. {@code "D7"}).
+     * @return the result, or a future failed with {@link IllegalStateException} when the move
+     *         cannot be made now or the server rejects it
+     */
+    public CompletableFuture<ShotResult> fire(String coord) {
+        String normalized = coord.trim().toUpperCase();
+        if (sender == null || gameOver) {
+            return CompletableFuture.failedFuture(new IllegalStateException("no game in progress"));
+        }
+        if (!myTurn || pending != null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("not your turn"));
+        }
+        int cell = cellOf(normalized);
+        if (isShot(cell)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("already shot at " + normalized));
+        }
+
+        pending = new CompletableFuture<>();
+        pendingCoord = normalized;
+        pendingCell = cell;
+        if (cell >= 0) {
+            shot[cell >>> 6] |= 1L << cell;
+        }
+        sender.accept(normalized);
+        return pending;
+    }
+
+    /**
+     * Gives up: the connection is closed by the loop as if the client had left.
+     */
+    public void leave() {
+        gameOver = true;
+        failPending("left the game");
+        if (closer != null) {
+            closer.run();
+        }
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public boolean isMyTurn() {
+        return myTurn && pending == null;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public boolean hasShotAt(String coord) {
+        return isShot(cellOf(coord.trim()));
+    }
+
+    private boolean isShot(int cell) {
+        return cell >= 0 && (shot[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * @return {@code row * COLS + col} of a coordinate such as {@code "D7"}, or {@code -1} if it is
+     *         off the board; invalid ones are left for the server to reject
+     */
+    private static int cellOf(String coord) {
+        if (coord.length() < 2) {
+            return -1;
+        }
+        int col = Character.toUpperCase(coord.charAt(0)) - 'A';
+        int row;
+        try {
+            row = Integer.parseInt(coord, 1, coord.length(), 10) - 1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (col < 0 || col >= BoardConfig.COLS || row < 0 || row >= BoardConfig.ROWS) {
+            return -1;
+        }
+        return row * BoardConfig.COLS + col;
+    }
+
+    /**
+     * How many times the server has given this player the turn.
+     */
+    public int getTurnsGiven() {
+        return turnsGiven;
+    }
+
+    void attach(Consumer<String> sender, Runnable closer) {
+        this.sender = sender;
+        this.closer = closer;
+        if (name != null) {
+            sender.accept(Server.CMD_LOGIN + name);
+        }
+        if (map != null) {
+            sender.accept(Server.CMD_MAP + map);
+        }
+    }
+
+    void detach() {
+        sender = null;
+        closer = null;
+        failPending("disconnected");
+        listener.onDisconnected();
+    }
+
+    void handleServerLine(String line) {
+        int separator = line.indexOf(';');
+        String command = (separator >= 0 ? line.substring(0, separator) : line).toUpperCase();
+        String payload = separator >= 0 ? line.substring(separator + 1) : "";
+
+        switch (command) {
+            case "UI" -> listener.onFrameLine(payload);
+            case "PING" -> {
+                // the server's heartbeat; a session that stops answering is disconnected
+                if (sender != null) {
+                    sender.accept(Heartbeat.PONG);
+                }
+            }
+            case "PONG" -> {}
+            case "START" -> {
+                String[] parts = payload.split(";", 2);
+                if (parts.length == 2) {
+                    sessionId = parts[0];
+                    playerId = parts[1];
+                    listener.onStart(sessionId, playerId);
+                }
+            }
+            case "TURA", "TURN" -> {
+                myTurn = playerId != null && playerId.equals(payload);
+                if (myTurn) {
+                    turnsGiven++;
+                }
+                listener.onTurn(myTurn);
+            }
+            case "STATUS" -> {
+                String status = payload.trim();
+                if ("czekaj".equalsIgnoreCase(status)) {
+                    // after our own move the server only sends the new turn to the opponent
+                    myTurn = false;
+                } else if (!"twoja tura".equalsIgnoreCase(status)) {
+                    listener.onInfo(status);
+                }
+            }
+            case "INFO" -> listener.onInfo(payload.trim());
+            case "TRAFIONY" -> onShotResult(payload.trim().toUpperCase(), ShotResult.HIT);
+            case "PUDŁO", "PUDLO" -> onShotResult(payload.trim().toUpperCase(), ShotResult.MISS);
+            case "OSTATNI ZATOPIONY" -> {
+                if (pending != null) {
+                    onShotResult(pendingCoord, ShotResult.LAST_SUNK);
+                }
+            }
+            case "WYNIK" -> {
+                gameOver = true;
+                myTurn = false;
+                listener.onGameOver("wygrana".equalsIgnoreCase(payload.trim()));
+            }
+            default -> {
+                if (isRejection(line)) {
+                    failPending(line.trim());
+                }
+                listener.onText(line);
+            }
+        }
+    }
+
+    private void onShotResult(String coord, ShotResult result) {
+        boolean mine = pending != null && coord.equals(pendingCoord);
+        if (mine) {
+            // turns strictly alternate; the next one comes with a tura line
+            myTurn = false;
+            CompletableFuture<ShotResult> done = pending;
+            pending = null;
+            pendingCoord = null;
+            pendingCell = -1;
+            done.complete(result);
+        }
+        listener.onShot(coord, result, mine);
+    }
+
+    private boolean isRejection(String line) {
+        String lower = line.trim().toLowerCase();
+        return pending != null
+                && (lower.startsWith(PREFIX_NOT_YOUR_TURN)
+                    || lower.startsWith(PREFIX_ALREADY_SHOT)
+                    || lower.startsWith(PREFIX_INVALID)
+                    || lower.startsWith(PREFIX_ERROR));
+    }
+
+    private void failPending(String reason) {
+        if (pending == null) {
+            return;
+        }
+        CompletableFuture<ShotResult> failed = pending;
+        if (pendingCell >= 0) {
+            shot[pendingCell >>> 6] &= ~(1L << pendingCell);
+        }
+        pending = null;
+        pendingCoord = null;
+        pendingCell = -1;
+        failed.completeExceptionally(new IllegalStateException(reason));
+    }
+}
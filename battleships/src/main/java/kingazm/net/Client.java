@@ -1,16 +1,17 @@
 package kingazm.net;
 
 import kingazm.board.BoardConfig;
+import kingazm.board.MapValidator;
+import kingazm.engine.BoardState;
+import kingazm.engine.ShotResult;
+
+import javax.net.ssl.SSLContext;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
 import java.util.UUID;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
@@ -20,10 +21,13 @@ import java.util.logging.Logger;
 
 /**
  * Simple interactive TCP client used for testing the server.
- * It connects to a server, starts a background reader thread to print incoming lines,
- * and reads lines from stdin to send to the server.
+ * It connects to a server, prints the game events of its {@link BattleshipsSession}
+ * and fires at the coordinates typed on stdin.
+ *
+ * <p>Everything runs on the {@link ClientEventLoop} thread: session events and typed lines
+ * arrive one after another, never concurrently.
  */
-public class Client {
+public class Client implements BattleshipsSession.Listener {
 
     static {
         Logger root = Logger.getLogger("");
@@ -42,13 +46,14 @@ public class Client {
     private final String host;
     private final int port;
     private static final Logger logger = Logger.getLogger(Client.class.getName());
-    private static final Object consoleLock = new Object();
-    private volatile boolean myTurn = false;
-    private volatile boolean gameOver = false;
-    private String myClientId = null;
-    private final Set<String> shotCoordinates = new HashSet<>();
+    private BattleshipsSession session;
     private boolean firstMove = true;
     private static final int COLS = BoardConfig.COLS;
+    private String map = null;
+    private String name = null;
+    private ClientRenderer renderer = null;
+    private PrintStream console = System.out;
+    private SSLContext tls = null;
 
     /**
      * Create a client with a random auto-generated name to keep track
@@ -62,205 +67,216 @@ public class Client {
     }
 
     /**
-     * Connect to the server and run interactive I/O until stdin or the socket closes.
-     * @throws IOException when socket I/O fails
+     * Use the map from the given file instead of a random one chosen by the server.
+     * @throws IllegalArgumentException when the map breaks the rules
      */
-    public void connect() throws IOException {
-        logger.info("Starting a client... " + host + ":" + port);
-        try (Socket socket = new Socket(host, port);
-             BufferedReader socketReader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in))) {
-
-            logger.info("Connected to " + host + ":" + port);
-
-            Thread readerThread = startServerListener(socketReader);
-            readerThread.start();
-
-            handleUserInput(stdin, out);
-            logger.info("Input closed, client exiting");
+    public void useMapFile(Path path) throws IOException {
+        String loaded = BoardState.readMapFile(path);
+        MapValidator.Violation violation = MapValidator.check(loaded);
+        if (violation != MapValidator.Violation.NONE) {
+            throw new IllegalArgumentException("invalid map in " + path + ": " + violation);
         }
+        this.map = loaded;
     }
 
-    private Thread startServerListener(BufferedReader socketReader) {
-        Runnable readerTask = () -> {
-            try {
-                String line;
-                while ((line = socketReader.readLine()) != null) {
-                    synchronized (consoleLock) {
-                        handleServerMessage(line);
-                    }
-                }
-            } catch (IOException e) {
-                logger.log(Level.SEVERE, "Error reading from server", e);
-            }
-        };
-
-        Thread readerThread = new Thread(readerTask, "socket-reader");
-        readerThread.setDaemon(true);
-        return readerThread;
+    /**
+     * Log in under {@code name}: the server rates the game and keeps statistics under it.
+     */
+    public void useName(String name) {
+        this.name = name;
     }
 
-    private void handleServerMessage(String line) {
-        if (line == null) {
-            return;
-        }
-
-        String up = line.toUpperCase();
-        String command = up.contains(";")
-                ? up.substring(0, up.indexOf(';') + 1)
-                : up;
-
-        switch (command) {
+    /**
+     * Draw the game as a full-screen ANSI frame, redrawing only what changed,
+     * instead of printing every board line the server sends.
+     */
+    public void useAnsiRenderer() {
+        this.renderer = new ClientRenderer(console);
+    }
 
-            case "UI;" -> {
-                System.out.println(line.substring(3));
-            }
+    /**
+     * Connect over TLS. Reconnects (see {@link #connectWithRetries}) go through the same
+     * context and so resume the earlier session instead of repeating the full handshake.
+     */
+    public void useTls(SSLContext context) {
+        this.tls = context;
+    }
 
-            case "MAP;" -> {
-                showBoard(line.substring(4), null);
-            }
+    /**
+     * Where the client prints; {@link System#out} by default.
+     */
+    public void setConsole(PrintStream console) {
+        this.console = console;
+    }
 
-            case "OPP_MAP;" -> {
-                showBoard(line.substring(8), "Plansza przeciwnika:");
+    /**
+     * Connect to the server and run interactive I/O until stdin or the socket closes.
+     * @throws IOException when socket I/O fails
+     */
+    public void connect() throws IOException {
+        logger.info("Starting a client... " + host + ":" + port);
+        try (ClientEventLoop loop = new ClientEventLoop()) {
+            session = new BattleshipsSession(this);
+            if (map != null) {
+                session.useMap(map);
             }
-
-            case "START;" -> {
-                String[] parts = line.split(";", 3);
-                if (parts.length >= 3) {
-                    myClientId = parts[2];
-                }
+            if (name != null) {
+                session.useName(name);
             }
-
-            case "TURA;", "TURN;" -> {
-                handleTurnMessage(line);
+            loop.connect(session, new InetSocketAddress(host, port), tls, System.in, this::handleInput);
+            logger.info("Connected to " + host + ":" + port);
+            if (map != null) {
+                showBoard(map, "Twoja mapa:");
             }
-
-            case "INFO;" -> {
-                String infoMsg = line.substring(5).trim();
-                if (!"oczekiwanie na ruch przeciwnika".equalsIgnoreCase(infoMsg)) {
-                    System.out.println(infoMsg);
+            try {
+                loop.run();
+            } finally {
+                if (renderer != null) {
+                    renderer.close();
                 }
             }
+            logger.info("Input closed, client exiting");
+        }
+    }
 
-            case "STATUS;" -> {
-                String statusMsg = line.substring(7).trim();
-                if (!"twoja tura".equalsIgnoreCase(statusMsg)
-                    && !"czekaj".equalsIgnoreCase(statusMsg)) {
-                    System.out.println(statusMsg);
-                }
-            }
+    @Override
+    public void onFrameLine(String line) {
+        if (renderer != null) {
+            renderer.onUiLine(line);
+        } else {
+            console.println(line);
+        }
+    }
 
-            case "TRAFIONY;" -> {
-                String coord = extractCoordinate(line);
-                String message = line.substring(line.indexOf(';') + 1).trim();
-                if (message.toLowerCase().contains("zatopiony")) {
-                    System.out.println("< " + message);
-                } else {
-                    System.out.println("< trafiony;" + coord);
-                }
-                printHitMessage(coord);
-            }
+    @Override
+    public void onTurn(boolean mine) {
+        String status = mine ? "Twoja tura. Podaj współrzędne (np. A1):" : "Czekaj na ruch przeciwnika...";
+        if (renderer != null) {
+            renderer.setStatus(status);
+        } else {
+            console.println("\n" + status);
+        }
+    }
 
-            case "PUDŁO;" -> {
-                String coord = extractCoordinate(line);
-                System.out.println("< pudło;" + coord);
-                printMissMessage(coord);
-            }
+    @Override
+    public void onInfo(String message) {
+        if (!"oczekiwanie na ruch przeciwnika".equalsIgnoreCase(message)) {
+            show(message);
+        }
+    }
 
-            case "WYNIK;" -> {
-                String result = line.substring(line.indexOf(';') + 1).trim();
-                if ("wygrana".equalsIgnoreCase(result.trim())) {
-                    System.out.println("< ostatni zatopiony");
-                }
-                printEndMessage(result);
-                gameOver = true;
-            }
+    @Override
+    public void onShot(String coord, ShotResult result, boolean mine) {
+        if (result == ShotResult.LAST_SUNK) {
+            return;
+        }
+        boolean hit = result == ShotResult.HIT;
+        if (renderer != null) {
+            renderer.setResult((hit ? "TRAFIONY! " : "PUDŁO! ") + coord);
+        } else if (hit) {
+            console.println("< trafiony;" + coord);
+            printHitMessage(coord);
+        } else {
+            console.println("< pudło;" + coord);
+            printMissMessage(coord);
+        }
+    }
 
-            case "MOVE;" -> {
-                printMove(line);
+    @Override
+    public void onGameOver(boolean won) {
+        if (renderer != null) {
+            renderer.setResult((won ? "WYGRANA!" : "PRZEGRANA") + " Naciśnij Enter, aby zakończyć...");
+        } else {
+            if (won) {
+                console.println("< ostatni zatopiony");
             }
+            printEndMessage(won);
+        }
+    }
 
-            default -> {
-                System.out.println(line);
-            }
+    @Override
+    public void onText(String line) {
+        if (renderer == null || !isDecoration(line)) {
+            show(line);
         }
     }
 
-    private void handleTurnMessage(String line) {
-        String whose = line.substring(line.indexOf(';') + 1);
-        boolean nowMine = myClientId != null && myClientId.equals(whose);
-        myTurn = nowMine;
-        if (myTurn) {
-            System.out.println("\nTwoja tura. Podaj współrzędne (np. A1):");
-        } else {
-            System.out.println("\nCzekaj na ruch przeciwnika...");
+    /**
+     * Banners and plain-text boards, which the ANSI frame already shows in its own way.
+     */
+    private boolean isDecoration(String line) {
+        if (line.isBlank() || Character.isWhitespace(line.charAt(0))) {
+            return true;
         }
+        char first = line.charAt(0);
+        String lower = line.toLowerCase();
+        return Character.isDigit(first)
+                || (first >= '\u2500' && first <= '\u257F')
+                || lower.startsWith("moja plansza")
+                || lower.startsWith("plansza przeciwnika");
     }
 
-    private String extractCoordinate(String line) {
-        String[] parts = line.split(";");
-        return parts.length >= 2 ? parts[1].trim().toUpperCase() : "";
+    /**
+     * Prints a message, or adds it to the message area of the ANSI frame.
+     */
+    private void show(String message) {
+        if (renderer != null) {
+            renderer.message(message);
+        } else {
+            console.println(message);
+        }
     }
 
     private void showBoard(String map, String header) {
         if (header != null && !header.isEmpty()) {
-            System.out.println(header);
+            console.println(header);
         }
 
         for (int idx = 0; idx + COLS <= map.length(); idx += COLS) {
-            System.out.println(map.substring(idx, idx + COLS));
+            console.println(map.substring(idx, idx + COLS));
         }
     }
 
-    private void handleUserInput(BufferedReader stdin, PrintWriter out) throws IOException {
-        String input;
-
-        while ((input = stdin.readLine()) != null) {
+    /**
+     * Handles one line typed by the player.
+     * @return {@code false} once the player leaves or the game is over
+     */
+    private boolean handleInput(String input) {
+        if (session.isGameOver()) {
+            return false;
+        }
 
-            if (gameOver) {
-                return;
-            }
+        String trimmed = input.trim();
 
-            String trimmed = input.trim();
+        if (trimmed.isEmpty()) {
+            return true;
+        }
 
-            if (trimmed.isEmpty()) {
-                continue;
-            }
+        if (shouldExit(trimmed)) {
+            return false;
+        }
 
-            if (shouldExit(trimmed)) {
-                return;
-            }
+        if (!session.isMyTurn()) {
+            show("Nie twoja tura. Poczekaj na ruch przeciwnika.");
+            return true;
+        }
 
-            if (!myTurn) {
-                synchronized (consoleLock) {
-                    System.out.println("Nie twoja tura. Poczekaj na ruch przeciwnika.");
-                }
-                continue;
-            }
+        String coord = trimmed.toUpperCase();
 
-            String coord = trimmed.toUpperCase();
+        if (session.hasShotAt(coord)) {
+            show("To pole było już ostrzelane. Podaj inną współrzędną:");
+            return true;
+        }
 
-            if (shotCoordinates.contains(coord)) {
-                synchronized (consoleLock) {
-                    System.out.println("To pole było już ostrzelane. Podaj inną współrzędną:");
-                }
-                continue;
-            }
+        session.fire(coord);
 
-            out.println(coord);
-            
-            synchronized (consoleLock) {
-                if (firstMove) {
-                    System.out.println("> start;" + coord);
-                    firstMove = false;
-                } else {
-                    System.out.println("> " + coord);
-                }
-            }
-            
-            shotCoordinates.add(coord);
+        if (firstMove) {
+            show("> start;" + coord);
+            firstMove = false;
+        } else {
+            show("> " + coord);
         }
+        return true;
     }
 
     /**
@@ -287,75 +303,41 @@ public class Client {
     }
 
     /**
-     * Process command-line args and return a connection configuration map.
-     * In case of no args, default values are used.
+     * Connects and plays on stdin until the game ends.
      */
-    public static Map<String, String> processArgs(String[] args) {
-        Map<String, String> config = new HashMap<>();
-        config.put("host", "localhost");
-        config.put("port", "12345");
-        config.put("retries", "5");
-        config.put("delay", "1000");
-
-        for (int arg = 0; arg < args.length; arg++) {
-            switch (args[arg]) {
-                case "-host":
-                    if ((arg + 1) < args.length) {
-                        config.put("host", args[++arg]);
-                    }
-                    break;
-                case "-port":
-                    if ((arg + 1) < args.length) {
-                        config.put("port", args[++arg]);
-                    }
-                    break;
-                case "-retries":
-                    if ((arg + 1) < args.length) {
-                        config.put("retries", args[++arg]);
-                    }
-                    break;
-                case "-delay":
-                    if ((arg + 1) < args.length) {
-                        config.put("delay", args[++arg]);
-                    }
-                    break;
-            }
-        }
-
-        return config;
-    }
+    public static void launch(NodeConfig config) {
+        String host = config.host();
+        int port = config.port();
+        int retries = config.retries();
+        long delayMs = config.retryDelayMs();
 
-    public static int parseIntOrDefault(String s, int defaulf) {
-        if (s == null) {
-            return defaulf;
+        Client client = new Client(host, port);
+        if (config.ansi()) {
+            client.useAnsiRenderer();
         }
-        try {
-            return Integer.parseInt(s);
-        } catch (NumberFormatException e) {
-            return defaulf;
+        if (config.tls() != null) {
+            // "-tls default" trusts the JDK's certificate authorities, anything else is a trust store
+            String trustStore = config.tls();
+            String password = config.tlsPassword() != null ? config.tlsPassword() : System.getenv(Server.TLS_PASSWORD_ENV);
+            try {
+                client.useTls(Tls.clientContext("default".equals(trustStore) ? null : Path.of(trustStore),
+                        password == null ? new char[0] : password.toCharArray()));
+            } catch (IOException | GeneralSecurityException e) {
+                logger.severe("Cannot set up TLS: " + e.getMessage());
+                System.exit(1);
+            }
         }
-    }
-
-    public static long parseLongOrDefault(String s, long defaulf) {
-        if (s == null) {
-            return defaulf;
+        if (config.login() != null) {
+            client.useName(config.login());
         }
-        try {
-            return Long.parseLong(s);
-        } catch (NumberFormatException e) {
-            return defaulf;
+        if (config.map() != null) {
+            try {
+                client.useMapFile(config.map());
+            } catch (IOException | IllegalArgumentException e) {
+                logger.severe("Cannot use map file: " + e.getMessage());
+                System.exit(1);
+            }
         }
-    }
-
-    public static void main(String[] args) {
-        Map<String, String> config = processArgs(args);
-
-        String host = config.get("host");
-        int port = parseIntOrDefault(config.get("port"), 12345);
-        int retries = parseIntOrDefault(config.get("retries"), 5);
-        long delayMs = parseLongOrDefault(config.get("delay"), 1000L);
-
-        Client client = new Client(host, port);
         boolean isConnected = client.connectWithRetries(retries, delayMs);
 
         if (isConnected) {
@@ -366,11 +348,13 @@ public class Client {
         }
     }
 
-    private void printEndMessage(String result) {
-        boolean isWin = "wygrana".equalsIgnoreCase(result.trim());
-        
+    public static void main(String[] args) {
+        launch(NodeConfig.parse(args));
+    }
+
+    private void printEndMessage(boolean isWin) {
         if (isWin) {
-            System.out.println("""
+            console.println("""
                     
                     ╔═════════════════════════════════════════════════╗
                     ║                                                 ║
@@ -383,7 +367,7 @@ public class Client {
                     ╚═════════════════════════════════════════════════╝
                     """);
         } else {
-            System.out.println("""
+            console.println("""
                     
                     ╔═════════════════════════════════════════════════╗
                     ║                                                 ║
@@ -405,7 +389,7 @@ public class Client {
         String leftPad = " ".repeat(padding);
         String rightPad = " ".repeat(totalWidth - coordWidth - padding);
         
-        System.out.printf("""
+        console.printf("""
                     
 
 
@@ -425,7 +409,7 @@ public class Client {
         String leftPad = " ".repeat(padding);
         String rightPad = " ".repeat(totalWidth - coordWidth - padding);
         
-        System.out.printf("""
+        console.printf("""
                     
 
 
@@ -438,10 +422,6 @@ public class Client {
                     """, leftPad, coord, rightPad);
     }
 
-    private void printMove(String moveLine) {
-        System.out.println(moveLine.replace(';', ' '));
-    }
-
     private boolean shouldExit(String trimmed) {
         return "q".equalsIgnoreCase(trimmed);
     }
@@ -0,0 +1,358 @@
+package kingazm.net;
+
+import javax.net.ssl.SSLContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single-threaded driver for any number of {@link BattleshipsSession}s: one {@link Selector}
+ * over their non-blocking sockets and, for an interactive player, a pipe carrying console
+ * input. Every session callback runs on the thread calling {@link #run()}.
+ *
+ * <p>Console input is copied into the pipe by a helper thread, as a console cannot be
+ * selected on. Programmatic players either fire from their listener callbacks or play a
+ * scripted {@link Input}, asked for a move whenever the session may fire.
+ *
+ * <p>A connection may run over TLS ({@link TlsChannel}); connections made through the same
+ * {@link SSLContext} resume the server's session instead of repeating the full handshake.
+ */
+public final class ClientEventLoop implements Closeable {
+    private static final Logger logger = Logger.getLogger(ClientEventLoop.class.getName());
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Source of the moves a session fires.
+     */
+    public interface Input {
+        /**
+         * @return the next coordinate to fire at, or {@code null} if there is none right now
+         */
+        String poll(BattleshipsSession session);
+    }
+
+    private final Selector selector;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final List<Connection> connections = new ArrayList<>();
+
+    public ClientEventLoop() throws IOException {
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Plays the given coordinates one per turn the server gives the session.
+     */
+    public static Input scripted(Iterator<String> coords) {
+        return session -> session.isMyTurn() && coords.hasNext() ? coords.next() : null;
+    }
+
+    /**
+     * Connects {@code session} (blocking until the connection is up) and adds it to the loop.
+     */
+    public void connect(BattleshipsSession session, InetSocketAddress address) throws IOException {
+        connect(session, address, null, null, null);
+    }
+
+    /**
+     * Like {@link #connect(BattleshipsSession, InetSocketAddress)}, firing the moves of
+     * {@code input} whenever the session has the turn.
+     */
+    public void connect(BattleshipsSession session, InetSocketAddress address, Input input) throws IOException {
+        open(session, address, null, null, null, input);
+    }
+
+    /**
+     * Like {@link #connect(BattleshipsSession, InetSocketAddress)}, over TLS when {@code tls} is set.
+     */
+    public void connect(BattleshipsSession session, InetSocketAddress address, SSLContext tls) throws IOException {
+        connect(session, address, tls, null, null);
+    }
+
+    /**
+     * Like {@link #connect(BattleshipsSession, InetSocketAddress)}, also feeding every line read
+     * from {@code console} to {@code onLine} on the loop thread. The connection ends when
+     * {@code onLine} returns {@code false} or the console is closed.
+     */
+    public void connect(BattleshipsSession session, InetSocketAddress address,
+                        InputStream console, Predicate<String> onLine) throws IOException {
+        connect(session, address, null, console, onLine);
+    }
+
+    /**
+     * The general form of the other {@code connect} methods; {@code tls}, {@code console}
+     * and {@code onLine} may be {@code null}.
+     */
+    public void connect(BattleshipsSession session, InetSocketAddress address, SSLContext tls,
+                        InputStream console, Predicate<String> onLine) throws IOException {
+        open(session, address, tls, console, onLine, null);
+    }
+
+    private void open(BattleshipsSession session, InetSocketAddress address, SSLContext tls,
+                      InputStream console, Predicate<String> onLine, Input input) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        TlsChannel secure = null;
+        if (tls != null) {
+            try {
+                secure = new TlsChannel(channel, Tls.clientEngine(tls, address.getHostString(), address.getPort()));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        Connection connection = new Connection(session, channel, secure, onLine, input);
+        channel.register(selector, SelectionKey.OP_READ, connection);
+        if (console != null) {
+            connection.console = pump(console);
+            connection.console.register(selector, SelectionKey.OP_READ, connection);
+        }
+        connections.add(connection);
+        connection.flush();
+        session.attach(connection::send, connection::close);
+        connection.pollInput();
+    }
+
+    /**
+     * Runs until every session has disconnected or left.
+     */
+    public void run() throws IOException {
+        while (!connections.isEmpty()) {
+            selector.select();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Connection connection = (Connection) key.attachment();
+                if (!key.isValid() || connection.closed) {
+                    continue;
+                }
+                try {
+                    if (key.channel() == connection.console) {
+                        connection.readConsole();
+                    } else {
+                        if (key.isWritable()) {
+                            connection.flush();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.readSocket();
+                        }
+                    }
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "connection failed", e);
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return connections.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Connection connection : List.copyOf(connections)) {
+            connection.close();
+        }
+        selector.close();
+    }
+
+    /**
+     * Copies a console stream into a pipe the selector can watch.
+     */
+    private static Pipe.SourceChannel pump(InputStream in) throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        Thread pump = new Thread(() -> {
+            byte[] buffer = new byte[1024];
+            try (Pipe.SinkChannel sink = pipe.sink()) {
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                    while (chunk.hasRemaining()) {
+                        sink.write(chunk);
+                    }
+                }
+            } catch (IOException ignored) {
+                // the loop closed the pipe
+            }
+        }, "console-pump");
+        pump.setDaemon(true);
+        pump.start();
+        return pipe.source();
+    }
+
+    private final class Connection {
+        private final BattleshipsSession session;
+        private final SocketChannel channel;
+        private final TlsChannel tls;
+        // the socket itself, or the TLS layer over it
+        private final ByteChannel io;
+        private final Predicate<String> onLine;
+        private final Input input;
+        private final LineDecoder fromServer = new LineDecoder();
+        private final LineDecoder fromConsole = new LineDecoder();
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        private Pipe.SourceChannel console;
+        private boolean closed;
+
+        Connection(BattleshipsSession session, SocketChannel channel, TlsChannel tls, Predicate<String> onLine, Input input) {
+            this.session = session;
+            this.channel = channel;
+            this.tls = tls;
+            this.io = tls != null ? tls : channel;
+            this.onLine = onLine;
+            this.input = input;
+        }
+
+        void send(String line) {
+            if (closed || !channel.isOpen()) {
+                return;
+            }
+            pending.add(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)));
+            try {
+                flush();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "write failed", e);
+                close();
+            }
+        }
+
+        void flush() throws IOException {
+            while (!pending.isEmpty()) {
+                ByteBuffer head = pending.peek();
+                io.write(head);
+                if (head.hasRemaining()) {
+                    channel.keyFor(selector).interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                pending.poll();
+            }
+            boolean more = tls != null && !tls.flush();
+            SelectionKey key = channel.keyFor(selector);
+            if (key != null && key.isValid()) {
+                key.interestOps(more ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        }
+
+        void readSocket() throws IOException {
+            boolean open = read(io, fromServer, session::handleServerLine);
+            if (tls != null && !closed && channel.isOpen()) {
+                // reading may have moved the handshake on, which has something to send
+                flush();
+            }
+            if (open) {
+                pollInput();
+                return;
+            }
+            if (console != null && session.isGameOver()) {
+                // the result stays on screen until the player presses Enter
+                channel.close();
+            } else {
+                close();
+            }
+        }
+
+        void readConsole() throws IOException {
+            if (!read(console, fromConsole, this::typed)) {
+                close();
+            }
+        }
+
+        void pollInput() {
+            if (input == null || closed) {
+                return;
+            }
+            String coord = input.poll(session);
+            if (coord != null) {
+                session.fire(coord);
+            }
+        }
+
+        private void typed(String line) {
+            if (!onLine.test(line)) {
+                close();
+            }
+        }
+
+        /**
+         * @return {@code false} at end of stream
+         */
+        private boolean read(ReadableByteChannel source, LineDecoder decoder, Consumer<String> handler) throws IOException {
+            // until the source runs dry: plaintext TLS has already decrypted does not wake the selector
+            while (!closed) {
+                readBuffer.clear();
+                int n = source.read(readBuffer);
+                if (n < 0) {
+                    return false;
+                }
+                if (n == 0) {
+                    break;
+                }
+                readBuffer.flip();
+                decoder.feed(readBuffer, line -> {
+                    if (!closed) {
+                        handler.accept(line);
+                    }
+                });
+            }
+            return true;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            connections.remove(this);
+            try {
+                io.close();
+                if (console != null) {
+                    console.close();
+                }
+            } catch (IOException ignored) {}
+            session.detach();
+        }
+    }
+
+    /**
+     * Splits a byte stream into UTF-8 lines; a partial line is kept until its newline arrives.
+     */
+    private static final class LineDecoder {
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+
+        void feed(ByteBuffer bytes, Consumer<String> onLine) {
+            while (bytes.hasRemaining()) {
+                byte b = bytes.get();
+                if (b == '\n') {
+                    String text = line.toString(StandardCharsets.UTF_8);
+                    line.reset();
+                    onLine.accept(text.endsWith("\r") ? text.substring(0, text.length() - 1) : text);
+                } else {
+                    line.write(b);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package kingazm.net;
+
+import kingazm.board.BoardConfig;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Full-screen ANSI renderer for {@link Client}.
+ *
+ * <p>Board rows arriving in {@code UI;} lines update a local model of both grids; status,
+ * last result and messages are kept next to it. Every change composes the whole screen into
+ * one reusable frame buffer, compares it with the frame currently on the terminal and writes
+ * only the runs of cells that differ (short unchanged gaps included), each behind a cursor
+ * positioning sequence, in a single write. The lines below the frame are a scroll region for
+ * the player's typing, so input never scrolls the boards away. Not thread-safe: confined to
+ * the {@link ClientEventLoop} thread, like the rest of {@link Client}, {@link #close} included.
+ */
+final class ClientRenderer {
+    static final int WIDTH = 64;
+    static final int HEIGHT = 19;
+    private static final int ROWS = BoardConfig.ROWS;
+    private static final int COLS = BoardConfig.COLS;
+    private static final int BOARD_TOP = 2;
+    private static final int OPPONENT_LEFT = 26;
+    private static final int STATUS_ROW = 13;
+    private static final int RESULT_ROW = 14;
+    private static final int MESSAGE_ROW = 15;
+    private static final int MESSAGES = HEIGHT - MESSAGE_ROW;
+    private static final int MAX_GAP = 6;
+    private static final String ESC = "\033[";
+
+    private final PrintStream terminal;
+    private final char[] own = new char[ROWS * COLS];
+    private final char[] opponent = new char[ROWS * COLS];
+    private final char[] frame = new char[WIDTH * HEIGHT];
+    private final char[] shown = new char[WIDTH * HEIGHT];
+    private final StringBuilder out = new StringBuilder(4 * WIDTH * HEIGHT);
+    private final ArrayDeque<String> messages = new ArrayDeque<>(MESSAGES);
+    private String status = "";
+    private String result = "";
+    private boolean started;
+
+    ClientRenderer(PrintStream terminal) {
+        this.terminal = terminal;
+        Arrays.fill(own, BoardConfig.WATER);
+        Arrays.fill(opponent, BoardConfig.UNKNOWN);
+    }
+
+    /**
+     * Takes one {@code UI;} line (without the prefix) of a {@code ConsoleView} frame. Board rows
+     * update the model; the frame is drawn once its last row has arrived.
+     */
+    void onUiLine(String content) {
+        String[] tokens = content.trim().split("\\s+");
+        if (tokens.length != 2 * (COLS + 1) || !isNumber(tokens[0]) || !isNumber(tokens[COLS + 1])) {
+            return;
+        }
+        int row = Integer.parseInt(tokens[0]) - 1;
+        if (row < 0 || row >= ROWS) {
+            return;
+        }
+        for (int c = 0; c < COLS; c++) {
+            own[row * COLS + c] = tokens[1 + c].charAt(0);
+            opponent[row * COLS + c] = tokens[COLS + 2 + c].charAt(0);
+        }
+        if (row == ROWS - 1) {
+            render();
+        }
+    }
+
+    void setStatus(String status) {
+        this.status = status;
+        render();
+    }
+
+    void setResult(String result) {
+        this.result = result;
+        render();
+    }
+
+    void message(String message) {
+        for (String line : message.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (messages.size() == MESSAGES) {
+                messages.removeFirst();
+            }
+            messages.addLast(line.strip());
+        }
+        render();
+    }
+
+    /**
+     * Gives the terminal its whole screen back.
+     */
+    void close() {
+        if (started) {
+            terminal.print(ESC + "r" + ESC + (HEIGHT + 2) + ";1H");
+            terminal.flush();
+        }
+    }
+
+    private void render() {
+        compose();
+
+        out.setLength(0);
+        if (!started) {
+            // clear, keep rows below the frame scrolling on their own and park the cursor there
+            out.append(ESC).append("2J").append(ESC).append(HEIGHT + 2).append('r')
+                    .append(ESC).append(HEIGHT + 2).append(";1H");
+            started = true;
+        }
+        out.append("\0337");
+        for (int r = 0; r < HEIGHT; r++) {
+            int base = r * WIDTH;
+            int c = 0;
+            while (c < WIDTH) {
+                if (frame[base + c] == shown[base + c]) {
+                    c++;
+                    continue;
+                }
+                int start = c;
+                int end = c + 1;
+                // rewriting a few unchanged cells is cheaper than another cursor move
+                for (c = end; c < WIDTH && c - end < MAX_GAP; c++) {
+                    if (frame[base + c] != shown[base + c]) {
+                        end = c + 1;
+                    }
+                }
+                c = end;
+                out.append(ESC).append(r + 1).append(';').append(start + 1).append('H')
+                        .append(frame, base + start, c - start);
+                System.arraycopy(frame, base + start, shown, base + start, c - start);
+            }
+        }
+        out.append("\0338");
+
+        terminal.append(out);
+        terminal.flush();
+    }
+
+    private void compose() {
+        Arrays.fill(frame, ' ');
+        put(0, 3, "Twoja plansza");
+        put(0, OPPONENT_LEFT + 3, "Plansza przeciwnika");
+        for (int c = 0; c < COLS; c++) {
+            frame[(BOARD_TOP - 1) * WIDTH + 3 + 2 * c] = (char) ('A' + c);
+            frame[(BOARD_TOP - 1) * WIDTH + OPPONENT_LEFT + 3 + 2 * c] = (char) ('A' + c);
+        }
+        for (int r = 0; r < ROWS; r++) {
+            int base = (BOARD_TOP + r) * WIDTH;
+            putLabel(base, r + 1);
+            putLabel(base + OPPONENT_LEFT, r + 1);
+            for (int c = 0; c < COLS; c++) {
+                frame[base + 3 + 2 * c] = own[r * COLS + c];
+                frame[base + OPPONENT_LEFT + 3 + 2 * c] = opponent[r * COLS + c];
+            }
+        }
+        put(STATUS_ROW, 0, status);
+        put(RESULT_ROW, 0, result);
+        int row = MESSAGE_ROW;
+        for (String message : messages) {
+            put(row++, 0, message);
+        }
+    }
+
+    private void putLabel(int offset, int label) {
+        if (label >= 10) {
+            frame[offset] = (char) ('0' + label / 10);
+        }
+        frame[offset + 1] = (char) ('0' + label % 10);
+    }
+
+    private void put(int row, int col, String text) {
+        int length = Math.min(text.length(), WIDTH - col);
+        text.getChars(0, length, frame, row * WIDTH + col);
+    }
+
+    private static boolean isNumber(String token) {
+        if (token.isEmpty() || token.length() > 2) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
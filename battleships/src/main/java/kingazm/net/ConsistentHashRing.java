@@ -0,0 +1,83 @@
+package kingazm.net;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hashing ring with virtual nodes. Adding or removing a node only moves
+ * the keys that hash next to its points.
+ */
+public class ConsistentHashRing<T> {
+    private final int virtualNodes;
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public synchronized void add(T node) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.put(hash(node + "#" + i), node);
+        }
+    }
+
+    public synchronized void remove(T node) {
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.remove(hash(node + "#" + i), node);
+        }
+    }
+
+    /**
+     * @return the owner of {@code key}, or {@code null} on an empty ring
+     */
+    public synchronized T nodeFor(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Distinct nodes in ring order starting from the owner of {@code key}: the owner first,
+     * then the fallbacks to use when it cannot take the key.
+     */
+    public synchronized List<T> candidatesFor(String key) {
+        List<T> result = new ArrayList<>();
+        int distinct = ring.size() / virtualNodes;
+        long h = hash(key);
+        collectDistinct(ring.tailMap(h).values(), result, distinct);
+        collectDistinct(ring.headMap(h).values(), result, distinct);
+        return result;
+    }
+
+    private void collectDistinct(Collection<T> nodes, List<T> result, int distinct) {
+        for (T node : nodes) {
+            if (result.size() == distinct) {
+                return;
+            }
+            if (!result.contains(node)) {
+                result.add(node);
+            }
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a with a final avalanche step.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
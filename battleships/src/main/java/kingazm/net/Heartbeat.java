@@ -0,0 +1,196 @@
+package kingazm.net;
+
+import kingazm.engine.Player;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Connection liveness for {@link Server}: every connection owns a slot in one array of
+ * last-seen timestamps, stamped by its reading thread on each line, and a single sweeper
+ * thread scans the array. A connection silent for an interval gets a {@code ping}; one
+ * silent past the timeout is declared dead and torn down, which catches half-open TCP
+ * connections that would otherwise keep a game and a thread alive until a write fails.
+ *
+ * <p>The sweeper never writes itself: pings go through a pinger, since a peer that stopped
+ * reading blocks a write to it until it is declared dead and its connection closed. The
+ * default pinger is a few threads behind a bounded queue; a ping that does not fit is tried
+ * again on the next sweep.
+ */
+final class Heartbeat implements Closeable {
+    static final String PING = "ping";
+    static final String PONG = "pong";
+
+    private static final Logger logger = Logger.getLogger(Heartbeat.class.getName());
+    private static final int PINGER_THREADS = 4;
+    private static final int PINGER_QUEUE = 1024;
+
+    private final long intervalNanos;
+    private final long timeoutNanos;
+    private final AtomicLongArray lastSeen;
+    private final AtomicReferenceArray<Peer> peers;
+    // sweeper only
+    private final long[] lastPinged;
+    // free slots, guarded by the array itself
+    private final int[] free;
+    private int freeCount;
+    private final Thread sweeper;
+    private final Executor pinger;
+    private volatile boolean running = true;
+
+    /**
+     * @param pinging a ping handed to the pinger and not written yet; no second one is queued
+     */
+    private record Peer(Player player, Runnable onDead, AtomicBoolean pinging) {}
+
+    /**
+     * @param capacity most connections tracked at once; later ones go untracked
+     */
+    Heartbeat(long intervalMs, long timeoutMs, int capacity) {
+        this(intervalMs, timeoutMs, capacity, new ThreadPoolExecutor(PINGER_THREADS, PINGER_THREADS,
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(PINGER_QUEUE), r -> {
+                    Thread t = new Thread(r, "heartbeat-pinger");
+                    t.setDaemon(true);
+                    return t;
+                }));
+    }
+
+    /**
+     * @param pinger writes the pings; shut down with the heartbeat if it is an {@link ExecutorService}
+     */
+    Heartbeat(long intervalMs, long timeoutMs, int capacity, Executor pinger) {
+        if (intervalMs <= 0 || timeoutMs <= intervalMs) {
+            throw new IllegalArgumentException("need 0 < interval < timeout");
+        }
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.lastSeen = new AtomicLongArray(capacity);
+        this.peers = new AtomicReferenceArray<>(capacity);
+        this.lastPinged = new long[capacity];
+        this.free = new int[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            free[slot] = capacity - 1 - slot;
+        }
+        this.freeCount = capacity;
+        this.pinger = pinger;
+
+        long tick = Math.max(1, TimeUnit.NANOSECONDS.toMillis(intervalNanos) / 2);
+        this.sweeper = new Thread(() -> {
+            while (running) {
+                try {
+                    Thread.sleep(tick);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                sweep(System.nanoTime());
+            }
+        }, "heartbeat-sweeper");
+        sweeper.setDaemon(true);
+    }
+
+    void start() {
+        sweeper.start();
+    }
+
+    /**
+     * Starts tracking a connection.
+     * @param onDead closes the connection once the peer is declared dead
+     * @return the slot to pass to {@link #touch} and {@link #unregister}, or {@code -1} if full
+     */
+    int register(Player player, Runnable onDead) {
+        int slot;
+        synchronized (free) {
+            if (freeCount == 0) {
+                return -1;
+            }
+            slot = free[--freeCount];
+        }
+        lastSeen.set(slot, System.nanoTime());
+        peers.set(slot, new Peer(player, onDead, new AtomicBoolean()));
+        return slot;
+    }
+
+    /**
+     * The peer was heard from just now.
+     */
+    void touch(int slot) {
+        if (slot >= 0) {
+            lastSeen.lazySet(slot, System.nanoTime());
+        }
+    }
+
+    void unregister(int slot) {
+        if (slot < 0) {
+            return;
+        }
+        peers.set(slot, null);
+        synchronized (free) {
+            free[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * One pass over every slot: pings the quiet, tears down the dead.
+     */
+    void sweep(long now) {
+        for (int slot = 0; slot < peers.length(); slot++) {
+            Peer peer = peers.get(slot);
+            if (peer == null) {
+                continue;
+            }
+            long silent = now - lastSeen.get(slot);
+            if (silent > timeoutNanos) {
+                if (peers.compareAndSet(slot, peer, null)) {
+                    logger.info("no heartbeat from " + peer.player().getId() + " for "
+                            + TimeUnit.NANOSECONDS.toMillis(silent) + " ms, disconnecting");
+                    try {
+                        peer.onDead().run();
+                    } catch (RuntimeException e) {
+                        logger.log(Level.WARNING, "failed to close dead connection", e);
+                    }
+                }
+            } else if (silent >= intervalNanos && now - lastPinged[slot] >= intervalNanos
+                    && peer.pinging().compareAndSet(false, true) && ping(peer)) {
+                lastPinged[slot] = now;
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the pinger is full or closed and the ping was not queued
+     */
+    private boolean ping(Peer peer) {
+        try {
+            pinger.execute(() -> {
+                try {
+                    peer.player().send(PING);
+                } finally {
+                    peer.pinging().set(false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            peer.pinging().set(false);
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        sweeper.interrupt();
+        if (pinger instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package kingazm.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads UTF-8 lines from a socket stream with a hard limit on their length, unlike
+ * {@link java.io.BufferedReader#readLine()}, which buffers a line of any size. A client sending
+ * a longer line gets a {@link LineTooLongException} as soon as the limit is crossed, before
+ * the rest of it is read. Not thread-safe: one reader per connection thread.
+ */
+final class LineReader implements Closeable {
+    private static final int BUFFER_SIZE = 4096;
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private final byte[] line;
+    private int position;
+    private int limit;
+
+    /**
+     * Thrown when a line exceeds the limit; the connection should be dropped.
+     */
+    static final class LineTooLongException extends IOException {
+        LineTooLongException(int maxLength) {
+            super("line longer than " + maxLength + " bytes");
+        }
+    }
+
+    /**
+     * @param maxLength longest accepted line in bytes, without the line terminator
+     */
+    LineReader(InputStream in, int maxLength) {
+        this(in, BUFFER_SIZE, maxLength);
+    }
+
+    /**
+     * @param bufferSize bytes read from the stream at a time
+     * @param maxLength longest accepted line in bytes, without the line terminator
+     */
+    LineReader(InputStream in, int bufferSize, int maxLength) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        this.line = new byte[maxLength];
+    }
+
+    /**
+     * @return the next line without its {@code \n} or {@code \r\n}, or {@code null} at end of stream
+     * @throws LineTooLongException when the line is longer than the limit
+     */
+    String readLine() throws IOException {
+        int length = 0;
+        while (true) {
+            if (position == limit) {
+                int n = in.read(buffer);
+                if (n < 0) {
+                    return length > 0 ? decode(length) : null;
+                }
+                position = 0;
+                limit = n;
+            }
+            while (position < limit) {
+                byte b = buffer[position++];
+                if (b == '\n') {
+                    return decode(length);
+                }
+                if (length == line.length) {
+                    throw new LineTooLongException(line.length);
+                }
+                line[length++] = b;
+            }
+        }
+    }
+
+    /**
+     * Whether the client has sent more than has been read: buffered bytes or bytes the stream
+     * can give without blocking, like {@link java.io.BufferedReader#ready()}.
+     */
+    boolean ready() throws IOException {
+        return position < limit || in.available() > 0;
+    }
+
+    private String decode(int length) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,82 @@
+package kingazm.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer, single-consumer queue on a ring of sequenced slots.
+ *
+ * <p>Producers claim a slot by CAS on the tail and publish it by bumping the slot's sequence;
+ * the consumer owns the head and needs no atomics beyond reading that sequence. A full
+ * mailbox rejects the offer instead of blocking the producer.
+ */
+final class Mailbox<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    Mailbox(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        mask = capacity - 1;
+        slots = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return {@code false} if the mailbox is full
+     */
+    boolean offer(T item) {
+        long t = tail.get();
+        while (true) {
+            int index = (int) t & mask;
+            long diff = sequences.get(index) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    slots.set(index, item);
+                    sequences.set(index, t + 1);
+                    return true;
+                }
+                t = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                t = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Consumer only.
+     * @return the oldest published item, or {@code null} if there is none
+     */
+    T poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        T item = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return item;
+    }
+
+    /**
+     * Consumer only.
+     */
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
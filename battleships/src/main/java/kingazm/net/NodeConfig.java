@@ -0,0 +1,378 @@
+package kingazm.net;
+
+import kingazm.board.BoardConfig;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Settings of one node - server, cluster backend, router or client - taken from the command
+ * line and, with {@code -config <file>}, from a properties file keyed by the option names
+ * without the dash ({@code heartbeat=15}, {@code backend=true}). The command line wins over
+ * the file. An invalid value is logged and leaves the default in place.
+ *
+ * <p>Every setting that costs threads, memory or time lives here, so a node is sized in one
+ * place:
+ * <ul>
+ *   <li>threads: {@code -threads connection|actor|actor:N}, {@code -bot-threads N}</li>
+ *   <li>buffers: {@code -read-buffer bytes}, {@code -socket-buffer bytes}, {@code -max-line bytes}</li>
+ *   <li>pools: {@code -board-pool N}, {@code -mailbox N}, {@code -heartbeat-slots N}, {@code -offheap N}</li>
+ *   <li>timeouts: {@code -bot-timeout ms}, {@code -bot-delay ms}, {@code -handshake-timeout ms},
+ *       {@code -heartbeat s}, {@code -heartbeat-timeout s}, {@code -drain-timeout s}</li>
+ *   <li>limits: {@code -rate lines/s}, {@code -backlog N}</li>
+ * </ul>
+ */
+public final class NodeConfig {
+    private static final Logger logger = Logger.getLogger(NodeConfig.class.getName());
+    // options that take no value on the command line
+    private static final Set<String> FLAGS = Set.of("backend", "ansi");
+    // the longest line a client must be able to send: its map
+    private static final int MIN_LINE_LENGTH = Server.CMD_MAP.length() + BoardConfig.ROWS * BoardConfig.COLS;
+
+    private String mode = "server";
+    private String host = "localhost";
+    private int port = 12345;
+    private Path map;
+    private String tls;
+    private String tlsPassword;
+
+    private int actorWorkers = 0;
+    private int mailboxCapacity = 64;
+    private int botThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int boardPoolSize = 256;
+    private int heartbeatSlots = 1 << 16;
+    private int offHeapSlots = 0;
+    private int readBufferSize = 4096;
+    private int socketBufferSize = 0;
+    private int maxLineLength = 512;
+    private int linesPerSecond = 20;
+    private int backlog = 0;
+    private long botTimeoutMs = 30_000;
+    private long botMoveDelayMs = 400;
+    private long handshakeTimeoutMs = 10_000;
+    private long heartbeatIntervalMs = 15_000;
+    private long heartbeatTimeoutMs = 45_000;
+    private long drainTimeoutMs = 60_000;
+    private boolean backend = false;
+    private int adminPort = -1;
+    private Path snapshotDir;
+    private Path mapLibrary;
+    private Path ratings;
+    private Path replay;
+
+    private String login;
+    private boolean ansi = false;
+    private int retries = 5;
+    private long retryDelayMs = 1000;
+
+    private List<String> backends = List.of();
+    private long pollIntervalMs = 1000;
+    private int backendCapacity = Integer.MAX_VALUE;
+
+    private int warmupGames = 3;
+
+    private NodeConfig() {
+    }
+
+    /**
+     * @param args options as given to {@code main}, e.g. {@code -port 12345 -threads actor}
+     */
+    public static NodeConfig parse(String... args) {
+        NodeConfig config = new NodeConfig();
+        for (int i = 0; i + 1 < args.length; i++) {
+            if ("-config".equals(args[i])) {
+                config.load(Path.of(args[i + 1]));
+            }
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-")) {
+                logger.warning("unknown argument: " + args[i]);
+                continue;
+            }
+            String option = args[i].substring(1);
+            if (FLAGS.contains(option)) {
+                config.set(option, "true");
+            } else if ((i + 1) < args.length) {
+                config.set(option, args[++i]);
+            } else {
+                logger.warning("missing value for " + args[i]);
+            }
+        }
+        return config;
+    }
+
+    private void load(Path file) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "cannot read config file: " + file, e);
+            return;
+        }
+        for (String option : properties.stringPropertyNames()) {
+            set(option, properties.getProperty(option).trim());
+        }
+    }
+
+    private void set(String option, String value) {
+        try {
+            switch (option) {
+                case "config" -> { }
+                case "mode" -> mode = value;
+                case "host" -> host = value;
+                case "port" -> port = Integer.parseInt(value);
+                case "map" -> map = Path.of(value);
+                case "tls" -> tls = value;
+                case "tls-password" -> tlsPassword = value;
+                case "threads" -> actorWorkers = parseThreads(value);
+                case "mailbox" -> mailboxCapacity = positive(value);
+                case "bot-threads" -> botThreads = positive(value);
+                case "board-pool" -> boardPoolSize = positive(value);
+                case "heartbeat-slots" -> heartbeatSlots = positive(value);
+                case "offheap" -> offHeapSlots = Math.max(0, Integer.parseInt(value));
+                case "read-buffer" -> readBufferSize = positive(value);
+                case "socket-buffer" -> socketBufferSize = Math.max(0, Integer.parseInt(value));
+                case "max-line" -> maxLineLength = Math.max(MIN_LINE_LENGTH, Integer.parseInt(value));
+                case "rate" -> linesPerSecond = Math.max(0, Integer.parseInt(value));
+                case "backlog" -> backlog = Math.max(0, Integer.parseInt(value));
+                case "bot-timeout" -> botTimeoutMs = Long.parseLong(value);
+                case "bot-delay" -> botMoveDelayMs = Math.max(0, Long.parseLong(value));
+                case "handshake-timeout" -> handshakeTimeoutMs = Math.max(1, Long.parseLong(value));
+                case "heartbeat" -> heartbeatIntervalMs = Math.max(0, Long.parseLong(value) * 1000);
+                case "heartbeat-timeout" -> heartbeatTimeoutMs = Long.parseLong(value) * 1000;
+                case "drain-timeout" -> drainTimeoutMs = Long.parseLong(value) * 1000;
+                case "backend" -> backend = Boolean.parseBoolean(value);
+                case "admin-port" -> adminPort = Integer.parseInt(value);
+                case "snapshot-dir" -> snapshotDir = Path.of(value);
+                case "map-library" -> mapLibrary = Path.of(value);
+                case "ratings" -> ratings = Path.of(value);
+                case "replay" -> replay = Path.of(value);
+                case "login" -> login = value;
+                case "ansi" -> ansi = Boolean.parseBoolean(value);
+                case "retries" -> retries = Integer.parseInt(value);
+                case "delay" -> retryDelayMs = Long.parseLong(value);
+                case "backends" -> backends = List.of(value.split(","));
+                case "poll" -> pollIntervalMs = Long.parseLong(value);
+                case "capacity" -> backendCapacity = Integer.parseInt(value);
+                case "games" -> warmupGames = positive(value);
+                default -> logger.warning("unknown argument: -" + option);
+            }
+        } catch (NumberFormatException e) {
+            logger.warning("invalid -" + option + ": " + value);
+        }
+    }
+
+    /**
+     * {@code connection} for a thread per connection (0), {@code actor} for session actors on
+     * one worker per core, {@code actor:N} for N workers.
+     */
+    private static int parseThreads(String mode) {
+        if ("connection".equals(mode)) {
+            return 0;
+        }
+        if ("actor".equals(mode)) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        if (mode.startsWith("actor:")) {
+            return positive(mode.substring("actor:".length()));
+        }
+        throw new NumberFormatException("unknown threading mode");
+    }
+
+    private static int positive(String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed < 1) {
+            throw new NumberFormatException("must be at least 1");
+        }
+        return parsed;
+    }
+
+    /**
+     * {@code server}, {@code client}, {@code router}, {@code warmup} or {@code manual}.
+     */
+    public String mode() {
+        return mode;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    /**
+     * Server: the map for players without their own. Client: the map to play with.
+     */
+    public Path map() {
+        return map;
+    }
+
+    /**
+     * Server: the key store. Client: the trust store, or {@code default} for the JDK's.
+     */
+    public String tls() {
+        return tls;
+    }
+
+    public String tlsPassword() {
+        return tlsPassword;
+    }
+
+    /**
+     * Session actor workers, 0 for a thread per connection.
+     */
+    public int actorWorkers() {
+        return actorWorkers;
+    }
+
+    public int mailboxCapacity() {
+        return mailboxCapacity;
+    }
+
+    public int botThreads() {
+        return botThreads;
+    }
+
+    public int boardPoolSize() {
+        return boardPoolSize;
+    }
+
+    public int heartbeatSlots() {
+        return heartbeatSlots;
+    }
+
+    public int offHeapSlots() {
+        return offHeapSlots;
+    }
+
+    /**
+     * Bytes read from a connection's socket at a time.
+     */
+    public int readBufferSize() {
+        return readBufferSize;
+    }
+
+    /**
+     * Socket send and receive buffers in bytes, 0 for the system default.
+     */
+    public int socketBufferSize() {
+        return socketBufferSize;
+    }
+
+    public int maxLineLength() {
+        return maxLineLength;
+    }
+
+    /**
+     * Lines a client may send per second, 0 for no limit.
+     */
+    public int linesPerSecond() {
+        return linesPerSecond;
+    }
+
+    /**
+     * Connections waiting to be accepted, 0 for the JDK default.
+     */
+    public int backlog() {
+        return backlog;
+    }
+
+    public long botTimeoutMs() {
+        return botTimeoutMs;
+    }
+
+    public long botMoveDelayMs() {
+        return botMoveDelayMs;
+    }
+
+    public long handshakeTimeoutMs() {
+        return handshakeTimeoutMs;
+    }
+
+    /**
+     * 0 turns heartbeats off.
+     */
+    public long heartbeatIntervalMs() {
+        return heartbeatIntervalMs;
+    }
+
+    public long heartbeatTimeoutMs() {
+        return heartbeatTimeoutMs;
+    }
+
+    public long drainTimeoutMs() {
+        return drainTimeoutMs;
+    }
+
+    public boolean backend() {
+        return backend;
+    }
+
+    /**
+     * -1 for no admin console.
+     */
+    public int adminPort() {
+        return adminPort;
+    }
+
+    public Path snapshotDir() {
+        return snapshotDir;
+    }
+
+    public Path mapLibrary() {
+        return mapLibrary;
+    }
+
+    public Path ratings() {
+        return ratings;
+    }
+
+    public Path replay() {
+        return replay;
+    }
+
+    public String login() {
+        return login;
+    }
+
+    public boolean ansi() {
+        return ansi;
+    }
+
+    public int retries() {
+        return retries;
+    }
+
+    public long retryDelayMs() {
+        return retryDelayMs;
+    }
+
+    /**
+     * Router: backend addresses as {@code host:port}.
+     */
+    public List<String> backends() {
+        return backends;
+    }
+
+    public long pollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public int backendCapacity() {
+        return backendCapacity;
+    }
+
+    public int warmupGames() {
+        return warmupGames;
+    }
+}
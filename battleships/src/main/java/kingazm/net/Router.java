@@ -0,0 +1,339 @@
+package kingazm.net;
+
+import kingazm.engine.SessionIds;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Front router of a server cluster. It pairs incoming players itself, so players connected
+ * through the router are paired no matter which node ends up hosting them, and forwards
+ * both connections to the backend owning the new session id on a consistent-hashing ring.
+ *
+ * <p>Backends are plain {@link Server}s started with {@code -backend}. The router polls
+ * their load ({@code obciazenie} command) and skips nodes that are down or full, moving on
+ * to the next node on the ring.
+ */
+public class Router {
+    private static final Logger logger = Logger.getLogger(Router.class.getName());
+    private static final int VIRTUAL_NODES = 128;
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+    // how long a waiting client is read for when a peer arrives
+    private static final int PROBE_TIMEOUT_MS = 5;
+    // more than a waiting client may send before it is paired: a login and a map
+    private static final int MAX_EARLY_BYTES = 4096;
+    private static final String INFO_WAIT = "info;oczekiwanie na przeciwnika";
+
+    private int port;
+    private final List<Backend> backends = new ArrayList<>();
+    private final ConsistentHashRing<Backend> ring = new ConsistentHashRing<>(VIRTUAL_NODES);
+    private long pollIntervalMs = 1000;
+    private int backendCapacity = Integer.MAX_VALUE;
+    private Socket waiting;
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * A backend node with the load it last advertised.
+     */
+    static final class Backend {
+        final String host;
+        final int port;
+        volatile boolean healthy = true;
+        volatile int sessions;
+        volatile int waitingPlayers;
+
+        Backend(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    public Router(int port) {
+        this.port = port;
+    }
+
+    public void addBackend(String host, int port) {
+        Backend backend = new Backend(host, port);
+        backends.add(backend);
+        ring.add(backend);
+    }
+
+    public void start() throws IOException {
+        logger.info("router starting on port: " + port + ", backends: " + backends);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "backend-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::pollBackends, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+
+        try (ServerSocket listener = new ServerSocket(port)) {
+            serverSocket = listener;
+            while (!listener.isClosed()) {
+                Socket socket;
+                try {
+                    socket = listener.accept();
+                } catch (SocketException e) {
+                    if (listener.isClosed()) {
+                        break;
+                    }
+                    throw e;
+                }
+                executor.submit(() -> {
+                    try {
+                        pair(socket);
+                    } catch (Exception e) {
+                        logger.log(Level.SEVERE, "error routing client", e);
+                    }
+                });
+            }
+        } finally {
+            poller.shutdownNow();
+            executor.shutdownNow();
+            logger.info("router stopped");
+        }
+    }
+
+    public void stop() throws IOException {
+        ServerSocket listener = serverSocket;
+        if (listener != null) {
+            listener.close();
+        }
+    }
+
+    private void pair(Socket client) throws IOException {
+        while (true) {
+            Socket peer;
+            synchronized (this) {
+                if (waiting == null || waiting.isClosed()) {
+                    waiting = client;
+                    peer = null;
+                } else {
+                    peer = waiting;
+                    waiting = null;
+                }
+            }
+
+            if (peer == null) {
+                logger.info("client waiting at router: " + client.getRemoteSocketAddress());
+                send(client, INFO_WAIT);
+                return;
+            }
+
+            byte[] early = readWhileWaiting(peer);
+            if (early == null) {
+                // gone while it waited; the new client takes its place or finds another peer
+                logger.info("waiting client left: " + peer.getRemoteSocketAddress());
+                closeQuietly(peer);
+                continue;
+            }
+
+            String sessionId = SessionIds.next();
+            Backend backend = pick(sessionId);
+            if (backend == null) {
+                logger.severe("no backend available for " + sessionId);
+                send(peer, "błąd;brak dostępnego serwera");
+                send(client, "błąd;brak dostępnego serwera");
+                peer.close();
+                client.close();
+                return;
+            }
+
+            logger.info("session " + sessionId + " -> " + backend);
+            try {
+                forward(peer, backend, sessionId, early);
+            } catch (IOException e) {
+                // the backend is marked down and the peer dropped; the new client pairs again
+                logger.log(Level.WARNING, "failed to forward " + sessionId + " to " + backend, e);
+                continue;
+            }
+            try {
+                forward(client, backend, sessionId, new byte[0]);
+            } catch (IOException e) {
+                // the peer's pipes close its backend connection, which ends its half of the session
+                closeQuietly(peer);
+                throw e;
+            }
+            return;
+        }
+    }
+
+    /**
+     * Reads what a waiting client has sent so far, without waiting for more. A client that
+     * closed its side is only noticed by reading: {@link Socket#isClosed()} is about our side.
+     * @return the bytes read, to be passed on to the backend, or {@code null} if the client
+     *         is gone or sent more than a client waiting for a peer has to say
+     */
+    private static byte[] readWhileWaiting(Socket socket) {
+        ByteArrayOutputStream early = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        try {
+            socket.setSoTimeout(PROBE_TIMEOUT_MS);
+            InputStream in = socket.getInputStream();
+            while (early.size() <= MAX_EARLY_BYTES) {
+                int n = in.read(buffer);
+                if (n < 0) {
+                    return null;
+                }
+                early.write(buffer, 0, n);
+            }
+            return null;
+        } catch (SocketTimeoutException e) {
+            try {
+                socket.setSoTimeout(0);
+            } catch (SocketException closed) {
+                return null;
+            }
+            return early.toByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Owner of the session on the ring, or the next node when the owner is down or full.
+     */
+    Backend pick(String sessionId) {
+        Backend fallback = null;
+        for (Backend candidate : ring.candidatesFor(sessionId)) {
+            if (!candidate.healthy) {
+                continue;
+            }
+            if (candidate.sessions < backendCapacity) {
+                return candidate;
+            }
+            if (fallback == null) {
+                fallback = candidate;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * @param early what the client sent before it was paired, passed on after the session line
+     */
+    private void forward(Socket client, Backend backend, String sessionId, byte[] early) throws IOException {
+        Socket upstream = new Socket();
+        try {
+            upstream.connect(new InetSocketAddress(backend.host, backend.port), CONNECT_TIMEOUT_MS);
+            upstream.setTcpNoDelay(true);
+            client.setTcpNoDelay(true);
+            send(upstream, Server.CMD_SESSION + sessionId);
+            upstream.getOutputStream().write(early);
+        } catch (IOException e) {
+            backend.healthy = false;
+            upstream.close();
+            client.close();
+            throw e;
+        }
+
+        startPipe(client, upstream, "client->" + backend);
+        startPipe(upstream, client, backend + "->client");
+    }
+
+    private void startPipe(Socket from, Socket to, String name) {
+        Thread t = new Thread(() -> {
+            try (InputStream in = from.getInputStream()) {
+                OutputStream out = to.getOutputStream();
+                in.transferTo(out);
+            } catch (IOException ignored) {
+            } finally {
+                closeQuietly(from);
+                closeQuietly(to);
+            }
+        }, "pipe " + name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    int healthyBackends() {
+        int healthy = 0;
+        for (Backend backend : backends) {
+            if (backend.healthy) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    private void pollBackends() {
+        for (Backend backend : backends) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(backend.host, backend.port), CONNECT_TIMEOUT_MS);
+                socket.setSoTimeout(CONNECT_TIMEOUT_MS);
+                send(socket, Server.CMD_LOAD);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                String[] parts = String.valueOf(reader.readLine()).split(";");
+                backend.sessions = Integer.parseInt(parts[1]);
+                backend.waitingPlayers = Integer.parseInt(parts[2]);
+                if (!backend.healthy) {
+                    logger.info("backend up: " + backend);
+                }
+                backend.healthy = true;
+            } catch (IOException | RuntimeException e) {
+                if (backend.healthy) {
+                    logger.warning("backend down: " + backend + " (" + e.getMessage() + ")");
+                }
+                backend.healthy = false;
+            }
+        }
+    }
+
+    private static void send(Socket socket, String line) throws IOException {
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        out.println(line);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * Usage: {@code java kingazm.net.Router -port 12345 -backends host:port,host:port [-poll ms] [-capacity n]}
+     */
+    public static void launch(NodeConfig config) throws IOException {
+        Router router = new Router(config.port());
+        for (String address : config.backends()) {
+            int colon = address.lastIndexOf(':');
+            try {
+                router.addBackend(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                logger.warning("invalid backend address: " + address);
+            }
+        }
+        router.pollIntervalMs = config.pollIntervalMs();
+        router.backendCapacity = config.backendCapacity();
+        router.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        launch(NodeConfig.parse(args));
+    }
+}
@@ -1,25 +1,64 @@
 package kingazm.net;
 
+import kingazm.board.BoardConfig;
+import kingazm.board.MapLibrary;
+import kingazm.board.MapSource;
+import kingazm.board.MapValidator;
+import kingazm.bot.BotPlayer;
+import kingazm.engine.BoardPool;
+import kingazm.engine.BoardState;
 import kingazm.engine.GameLoop;
+import kingazm.engine.MoveOutcome;
 import kingazm.engine.Player;
+import kingazm.engine.SessionIds;
+import kingazm.engine.ShotResult;
+import kingazm.engine.SlotStore;
+import kingazm.engine.StatsRegistry;
 import kingazm.engine.ConsoleView;
+import kingazm.rating.Leaderboard;
+import kingazm.rating.Rating;
+import kingazm.rating.RatingStore;
+import kingazm.replay.Replay;
+import kingazm.replay.ReplayWriter;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 public class Server {
     private static final Logger logger = Logger.getLogger(Server.class.getName());
@@ -27,26 +66,107 @@ public class Server {
     private static final String STATUS_YOUR_TURN = "status;twoja tura";
     private static final String STATUS_WAIT = "status;czekaj";
     private static final String INFO_WAIT = "info;oczekiwanie na ruch przeciwnika";
-
+    private static final String INFO_BOT = "info;brak przeciwnika - grasz z komputerem";
+    // a bot whose turn is lost this many times in a row leaves the game
+    private static final int MAX_BOT_ATTEMPTS = 5;
+    private static final String INFO_SHUTDOWN = "info;serwer jest wyłączany";
+    private static final String INFO_LAST_GAME = "info;serwer zostanie wyłączony po zakończeniu tej gry";
+    private static final String INFO_ABORTED = "info;gra przerwana - serwer wyłączony";
+    private static final String INFO_PEER_LEFT = "info;przeciwnik rozłączył się - koniec gry";
+    private static final String INFO_BUSY = "info;serwer przeciążony - powtórz ruch";
+    static final String TLS_PASSWORD_ENV = "BATTLESHIPS_TLS_PASSWORD";
+    static final String INFO_FLOOD = "info;zbyt wiele komunikatów - rozłączono";
+    static final String CMD_MAP = "mapa;";
+    static final String CMD_SESSION = "sesja;";
+    static final String CMD_LOAD = "obciazenie";
+    static final String CMD_LOGIN = "login;";
+    private static final Pattern PLAYER_NAME = Pattern.compile("[\\p{L}\\p{N}_-]{1,24}");
+
+    private final NodeConfig config;
     private int port;
+    private ReplayWriter replayWriter;
+    private MapSource mapSource = MapSource.generated();
+    private final long botTimeoutMs;
+    // created on first use, see botScheduler()
+    private ScheduledExecutorService botScheduler;
+    private final boolean backendMode;
+    private volatile ServerSocket serverSocket;
+    private final long drainTimeoutMs;
+    private final Path snapshotDir;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final CountDownLatch drained = new CountDownLatch(1);
+    private final int actorWorkers;
+    private final int maxLineLength;
+    private int linesPerSecond;
+    private final long heartbeatIntervalMs;
+    // created once the listener is bound, see heartbeat()
+    private volatile Heartbeat heartbeat;
+    private SSLContext tls;
+    private SlotStore slotStore;
+    private ActorPool actorPool;
+    private final BoardPool boardPool;
+    private final ConcurrentMap<String, SessionActor> sessionActors = new ConcurrentHashMap<>();
     private final ConcurrentLinkedQueue<Player> waitingPlayers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, Player> routedWaiting = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, GameLoop> gameSessions = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, String> clientToSession = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Boolean> playerReady = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Boolean> sessionStarted = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Boolean> clientTerminated = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Socket> clientSockets = new ConcurrentHashMap<>();
+    private final StatsRegistry stats = new StatsRegistry();
+    private RatingStore ratings = RatingStore.inMemory();
 
     public Server(int port) {
-        this.port = port;
+        this(NodeConfig.parse("-port", Integer.toString(port)));
+    }
+
+    /**
+     * A server sized by {@code config}; files it names are opened by {@link #launch}.
+     */
+    public Server(NodeConfig config) {
+        this.config = config;
+        this.port = config.port();
+        this.botTimeoutMs = config.botTimeoutMs();
+        this.backendMode = config.backend();
+        this.drainTimeoutMs = config.drainTimeoutMs();
+        this.snapshotDir = config.snapshotDir();
+        this.actorWorkers = config.actorWorkers();
+        this.maxLineLength = config.maxLineLength();
+        this.linesPerSecond = config.linesPerSecond();
+        this.heartbeatIntervalMs = config.heartbeatIntervalMs();
+        this.boardPool = new BoardPool(config.boardPoolSize());
     }
 
     public void start() throws IOException {
         logger.info("server starting on port: " + port);
         ExecutorService executor = Executors.newCachedThreadPool();
 
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            while (!Thread.currentThread().isInterrupted()) {
-                Socket socket = serverSocket.accept();
+        if (actorWorkers > 0) {
+            actorPool = new ActorPool(actorWorkers, config.mailboxCapacity());
+            logger.info("session actors on " + actorWorkers + " workers");
+        }
+        if (config.offHeapSlots() > 0) {
+            slotStore = new SlotStore(config.offHeapSlots());
+            logger.info("off-heap session store: " + config.offHeapSlots() + " slots of " + SlotStore.slotSize() + " bytes");
+        }
+        if (config.adminPort() >= 0) {
+            new AdminServer(this, config.adminPort()).start();
+        }
+
+        try (ServerSocket listener = openListener()) {
+            serverSocket = listener;
+            executor.submit(this::heartbeat);
+            while (!Thread.currentThread().isInterrupted() && !listener.isClosed()) {
+                Socket socket;
+                try {
+                    socket = listener.accept();
+                } catch (SocketException e) {
+                    if (listener.isClosed()) {
+                        break;
+                    }
+                    throw e;
+                }
                 executor.submit(() -> {
                     try {
                         handleClient(socket);
@@ -56,45 +176,493 @@ public class Server {
                 });
             }
         } finally {
+            if (draining.get()) {
+                awaitDrained();
+            }
             executor.shutdown();
+            synchronized (this) {
+                if (botScheduler != null) {
+                    botScheduler.shutdownNow();
+                }
+                if (heartbeat != null) {
+                    heartbeat.close();
+                }
+            }
+            if (actorPool != null) {
+                actorPool.close();
+            }
+            closeReplayWriter();
+            closeRatings();
             logger.info("server stopped");
         }
     }
 
+    /**
+     * The scheduler for bot fallbacks and bot moves. Started on first use, so a server
+     * that never waits for a peer does not pay for its threads.
+     */
+    private synchronized ScheduledExecutorService botScheduler() {
+        if (botScheduler == null) {
+            botScheduler = Executors.newScheduledThreadPool(config.botThreads(), r -> {
+                Thread t = new Thread(r, "bot-scheduler");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return botScheduler;
+    }
+
+    /**
+     * The liveness tracker. Its slot tables are sized for {@code -heartbeat-slots} connections,
+     * so they are built on a pool thread once the listener is bound rather than before the
+     * bind or on the first connection; a connection arriving sooner waits here for them.
+     * @return {@code null} when heartbeats are off
+     */
+    private Heartbeat heartbeat() {
+        Heartbeat current = heartbeat;
+        if (current != null || heartbeatIntervalMs <= 0) {
+            return current;
+        }
+        synchronized (this) {
+            if (heartbeat == null) {
+                heartbeat = new Heartbeat(heartbeatIntervalMs, Math.max(config.heartbeatTimeoutMs(), 2 * heartbeatIntervalMs), config.heartbeatSlots());
+                heartbeat.start();
+            }
+            return heartbeat;
+        }
+    }
+
+    private ServerSocket openListener() throws IOException {
+        ServerSocket listener;
+        if (tls == null) {
+            listener = new ServerSocket();
+        } else {
+            SSLServerSocket secure = (SSLServerSocket) tls.getServerSocketFactory().createServerSocket();
+            secure.setEnabledProtocols(new String[] {Tls.PROTOCOL});
+            logger.info("TLS enabled");
+            listener = secure;
+        }
+        // accepted sockets inherit it; above 64 KiB it must be set before the bind
+        if (config.socketBufferSize() > 0) {
+            listener.setReceiveBufferSize(config.socketBufferSize());
+        }
+        listener.bind(new InetSocketAddress(port), config.backlog());
+        return listener;
+    }
+
+    /**
+     * Serve over TLS with this context; keep using the same one for the server's lifetime, as
+     * it holds the keys for the session tickets clients resume with.
+     */
+    public void useTls(SSLContext context) {
+        this.tls = context;
+    }
+
+    /**
+     * @param linesPerSecond lines a client may send per second, 0 for no limit
+     */
+    public void setRateLimit(int linesPerSecond) {
+        this.linesPerSecond = Math.max(0, linesPerSecond);
+    }
+
+    /**
+     * Keep player ratings in this store instead of in memory only.
+     */
+    public void useRatings(RatingStore store) {
+        this.ratings = store;
+    }
+
+    /**
+     * Stops accepting connections; {@link #start()} then returns.
+     */
+    public void stop() throws IOException {
+        ServerSocket listener = serverSocket;
+        if (listener != null) {
+            listener.close();
+        }
+    }
+
+    /**
+     * Drain for a rolling deploy: stop accepting connections and pairings, send waiting players
+     * away, let running games finish until {@code timeoutMs} passes, then snapshot the unfinished
+     * ones (with {@code -snapshot-dir}) and close them. Safe to call more than once.
+     * @param progress receives progress lines (the logging system may already be shut down
+     *                 when draining from a shutdown hook)
+     * @return whether every game finished before the deadline
+     */
+    public boolean drain(long timeoutMs, Consumer<String> progress) {
+        if (!draining.compareAndSet(false, true)) {
+            progress.accept("drain already in progress");
+            awaitDrained();
+            return gameSessions.isEmpty();
+        }
+
+        try {
+            progress.accept("draining: " + gameSessions.size() + " sessions, deadline " + timeoutMs + " ms");
+            try {
+                stop();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "failed to close listener", e);
+            }
+
+            sendAwayWaitingPlayers();
+            for (GameLoop game : gameSessions.values()) {
+                game.getPlayerA().send(INFO_LAST_GAME);
+                game.getPlayerB().send(INFO_LAST_GAME);
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            long lastReport = 0;
+            while (!gameSessions.isEmpty() && System.nanoTime() < deadline) {
+                long now = System.nanoTime();
+                if (now - lastReport >= TimeUnit.SECONDS.toNanos(5)) {
+                    progress.accept("draining: " + gameSessions.size() + " sessions left, "
+                            + TimeUnit.NANOSECONDS.toSeconds(deadline - now) + " s to deadline");
+                    lastReport = now;
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            boolean clean = gameSessions.isEmpty();
+            if (!clean) {
+                progress.accept("draining: aborting " + gameSessions.size() + " unfinished sessions");
+                abortRemainingSessions();
+            }
+            progress.accept("drain complete" + (clean ? "" : " (unfinished sessions aborted)"));
+            return clean;
+        } finally {
+            drained.countDown();
+        }
+    }
+
+    long getDrainTimeoutMs() {
+        return drainTimeoutMs;
+    }
+
+    public boolean isDraining() {
+        return draining.get();
+    }
+
+    private void awaitDrained() {
+        try {
+            drained.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Point-in-time copy of the active sessions, keyed by session id.
+     */
+    Map<String, GameLoop> activeSessions() {
+        return Map.copyOf(gameSessions);
+    }
+
+    /**
+     * Statistics of every player who finished a game on this node.
+     */
+    StatsRegistry stats() {
+        return stats;
+    }
+
+    RatingStore ratings() {
+        return ratings;
+    }
+
+    int waitingCount() {
+        return waitingPlayers.size();
+    }
+
+    int routedWaitingCount() {
+        return routedWaiting.size();
+    }
+
+    /**
+     * Closes the client's connection; its handler then ends the session as if it had left.
+     * @return whether the client was connected
+     */
+    boolean kick(String clientId) {
+        Socket socket = clientSockets.get(clientId);
+        if (socket == null) {
+            return false;
+        }
+        logger.info("kicking client " + clientId);
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+        return true;
+    }
+
+    private void sendAwayWaitingPlayers() {
+        List<Player> waiting = new ArrayList<>(waitingPlayers);
+        waiting.addAll(routedWaiting.values());
+        waitingPlayers.clear();
+        routedWaiting.clear();
+        for (Player player : waiting) {
+            player.send(INFO_SHUTDOWN);
+            closeWriterQuietly(player);
+        }
+    }
+
+    private void abortRemainingSessions() {
+        List<GameLoop> unfinished = List.copyOf(gameSessions.values());
+        snapshot(unfinished);
+        for (GameLoop game : unfinished) {
+            game.getPlayerA().send(INFO_ABORTED);
+            game.getPlayerB().send(INFO_ABORTED);
+            cleanupGameSession(game);
+        }
+    }
+
+    private void snapshot(List<GameLoop> unfinished) {
+        if (snapshotDir == null || unfinished.isEmpty()) {
+            return;
+        }
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = snapshotDir.resolve("unfinished-" + stamp + ".bsr");
+        try {
+            Files.createDirectories(snapshotDir);
+            try (ReplayWriter writer = ReplayWriter.open(file)) {
+                for (GameLoop game : unfinished) {
+                    Replay replay = game.toReplay();
+                    if (replay != null) {
+                        writer.append(replay);
+                    }
+                }
+            }
+            logger.info("snapshot of " + unfinished.size() + " unfinished sessions written to " + file);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "failed to snapshot unfinished sessions", e);
+        }
+    }
+
     private void handleClient(Socket socket) {
         String clientId = UUID.randomUUID().toString();
-        logger.info("client connected: " + socket.getRemoteSocketAddress() + " -> " + clientId);
+        int beat = -1;
 
         try (Socket s = socket;
-             InputStream in = s.getInputStream();
-             BufferedReader reader = new BufferedReader(new InputStreamReader(in));
-             PrintWriter out = new PrintWriter(s.getOutputStream(), true)) {
-
+             InputStream in = handshake(s).getInputStream();
+             LineReader reader = new LineReader(in, config.readBufferSize(), maxLineLength);
+             PrintWriter out = new PrintWriter(s.getOutputStream(), true, StandardCharsets.UTF_8)) {
+
+            // a move is answered with several short lines; Nagle would hold each behind the ACK of the last
+            s.setTcpNoDelay(true);
+            if (config.socketBufferSize() > 0) {
+                s.setSendBufferSize(config.socketBufferSize());
+            }
             Player me = new Player(clientId, out);
+            clientSockets.put(clientId, s);
+            Heartbeat liveness = heartbeat();
+            beat = liveness == null ? -1 : liveness.register(me, () -> kick(clientId));
+            if (backendMode) {
+                handleBackendConnection(s, me, reader, out, beat);
+                return;
+            }
+
+            logger.info("client connected: " + socket.getRemoteSocketAddress() + " -> " + clientId);
             initializeSession(clientId, me);
-            handleGameLoop(clientId, reader, out);
+            handleGameLoop(me, reader, out, beat);
 
+        } catch (LineReader.LineTooLongException e) {
+            logger.warning("dropping client " + clientId + ": " + e.getMessage());
+        } catch (SSLException e) {
+            logger.warning("TLS failure with client " + clientId + ": " + e.getMessage());
         } catch (IOException e) {
             logger.log(Level.SEVERE, "I/O error with client " + clientId, e);
         } finally {
-            cleanupClientSession();
+            if (heartbeat != null) {
+                heartbeat.unregister(beat);
+            }
+            clientSockets.remove(clientId);
+            abandonSession(clientId);
+            clientTerminated.remove(clientId);
+            cleanupClientSession(clientId);
         }
     }
 
+    /**
+     * Completes a TLS handshake on the handler thread, bounded by a timeout, so a client that
+     * never speaks cannot leave a later write (e.g. a heartbeat ping) stuck in the handshake.
+     */
+    private Socket handshake(Socket socket) throws IOException {
+        if (socket instanceof SSLSocket secure) {
+            secure.setSoTimeout((int) config.handshakeTimeoutMs());
+            secure.startHandshake();
+            secure.setSoTimeout(0);
+        }
+        return socket;
+    }
+
+    /**
+     * Cluster backend: the router opens every connection with {@code sesja;<id>} to join
+     * the session it paired, or asks for the node's load with {@code obciazenie}.
+     */
+    private void handleBackendConnection(Socket socket, Player me, LineReader reader, PrintWriter out, int beat) throws IOException {
+        String first = reader.readLine();
+        if (first == null) {
+            return;
+        }
+
+        if (CMD_LOAD.equals(first.trim())) {
+            out.println(loadReport());
+            return;
+        }
+
+        logger.info("client connected: " + socket.getRemoteSocketAddress() + " -> " + me.getId());
+        if (first.startsWith(CMD_SESSION)) {
+            joinRoutedSession(first.substring(CMD_SESSION.length()).trim(), me);
+            handleGameLoop(me, reader, out, beat);
+        } else {
+            initializeSession(me.getId(), me);
+            processLine(me, first, out, 0);
+            handleGameLoop(me, reader, out, beat);
+        }
+    }
+
+    private void joinRoutedSession(String sessionId, Player me) {
+        Player[] peer = new Player[1];
+        routedWaiting.compute(sessionId, (id, waiting) -> {
+            if (waiting == null) {
+                return me;
+            }
+            peer[0] = waiting;
+            return null;
+        });
+
+        if (peer[0] != null) {
+            startGameSession(peer[0], me, sessionId);
+        } else {
+            logger.info("client " + me.getId() + " waiting for routed peer in " + sessionId);
+        }
+    }
+
+    /**
+     * @return {@code obciazenie;<active sessions>;<waiting players>}
+     */
+    String loadReport() {
+        return CMD_LOAD + ";" + gameSessions.size() + ";" + (waitingPlayers.size() + routedWaiting.size());
+    }
+
     private void initializeSession(String clientId, Player me) {
+        if (draining.get()) {
+            me.send(INFO_SHUTDOWN);
+            closeWriterQuietly(me);
+            return;
+        }
+
         Player peer = waitingPlayers.poll();
         if (peer == null) {
             waitingPlayers.add(me);
             logger.info("client waiting: " + clientId);
             me.send("czekaj;" + clientId);
+            scheduleBotFallback(me);
         } else {
             startGameSession(me, peer);
         }
     }
 
+    private void scheduleBotFallback(Player me) {
+        if (botTimeoutMs <= 0) {
+            return;
+        }
+        botScheduler().schedule(() -> {
+            if (draining.get() || !waitingPlayers.remove(me)) {
+                return;
+            }
+            logger.info("no peer for " + me.getId() + " within " + botTimeoutMs + " ms, pairing with a bot");
+            me.send(INFO_BOT);
+            startGameSession(me, new BotPlayer(this::scheduleBotMove));
+        }, botTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduleBotMove(BotPlayer bot) {
+        scheduleBotMove(bot, 1);
+    }
+
+    /**
+     * A bot's turn is not dropped: when the session's mailbox is full or the move is
+     * rejected, the move is tried again, and a bot that still cannot move leaves its game.
+     */
+    private void scheduleBotMove(BotPlayer bot, int attempt) {
+        botScheduler().schedule(() -> {
+            boolean queued = inSession(bot.getId(), () -> {
+                boolean done;
+                try {
+                    done = playBotMove(bot);
+                } catch (Exception e) {
+                    logger.log(Level.SEVERE, "bot move failed for " + bot.getId(), e);
+                    done = false;
+                }
+                if (!done) {
+                    retryBotMove(bot, attempt);
+                }
+            });
+            if (!queued) {
+                retryBotMove(bot, attempt);
+            }
+        }, config.botMoveDelayMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void retryBotMove(BotPlayer bot, int attempt) {
+        if (attempt < MAX_BOT_ATTEMPTS) {
+            scheduleBotMove(bot, attempt + 1);
+            return;
+        }
+        logger.warning("bot " + bot.getId() + " could not move in " + attempt + " attempts, ending its game");
+        abandonSession(bot.getId());
+    }
+
+    /**
+     * Runs {@code task} on the actor of the client's session, or right here when sessions
+     * have no actors (thread-per-connection mode) or the client is not in a session.
+     * @return {@code false} if the session's mailbox was full and the task was dropped
+     */
+    private boolean inSession(String clientId, Runnable task) {
+        String sessionId = clientToSession.get(clientId);
+        SessionActor actor = sessionId == null ? null : sessionActors.get(sessionId);
+        if (actor == null) {
+            task.run();
+            return true;
+        }
+        return actor.tell(task);
+    }
+
+    /**
+     * @return {@code false} if the move was rejected while the bot still holds the turn
+     */
+    private boolean playBotMove(BotPlayer bot) {
+        String sessionId = clientToSession.get(bot.getId());
+        GameLoop game = sessionId == null ? null : gameSessions.get(sessionId);
+        if (game == null) {
+            return true;
+        }
+
+        String coord = bot.nextMove();
+        MoveOutcome outcome = game.applyMove(bot.getId(), coord);
+        if (!outcome.isAccepted()) {
+            logger.warning("bot move rejected in " + sessionId + ": " + outcome.rejection());
+            return game.isClosed() || !bot.getId().equals(game.getCurrentTurn());
+        }
+
+        bot.onResult(coord, outcome.result());
+        processMoveOutcome(game, outcome);
+        return true;
+    }
+
     private void startGameSession(Player me, Player peer) {
-        String sessionId = UUID.randomUUID().toString();
-        GameLoop game = new GameLoop(me, peer);
+        startGameSession(me, peer, SessionIds.next());
+    }
+
+    /**
+     * @param sessionId the id the game and every map key use; routed sessions keep the router's
+     */
+    private void startGameSession(Player me, Player peer, String sessionId) {
+        GameLoop game = newGame(sessionId, me, peer);
 
         gameSessions.put(sessionId, game);
         clientToSession.put(me.getId(), sessionId);
@@ -105,9 +673,26 @@ public class Server {
 
         logger.info("paired " + me.getId() + " with " + peer.getId() + " in " + sessionId);
 
-        me.send("start;" + sessionId + ";" + me.getId());
-        peer.send("start;" + sessionId + ";" + peer.getId());
-        sendInitialGameState(game, me, peer);
+        Runnable start = () -> {
+            me.send("start;" + sessionId + ";" + me.getId());
+            peer.send("start;" + sessionId + ";" + peer.getId());
+            sendInitialGameState(game, me, peer);
+        };
+        if (actorPool != null) {
+            SessionActor actor = actorPool.actorFor(sessionId);
+            sessionActors.put(sessionId, actor);
+            actor.tell(start);
+        } else {
+            start.run();
+        }
+    }
+
+    /**
+     * A game in the off-heap store while it has room, on the heap with pooled boards otherwise.
+     */
+    private GameLoop newGame(String sessionId, Player me, Player peer) {
+        GameLoop game = slotStore == null ? null : GameLoop.inSlot(sessionId, me, peer, mapSource, slotStore);
+        return game != null ? game : new GameLoop(sessionId, me, peer, mapSource, boardPool);
     }
 
     private void sendInitialGameState(GameLoop game, Player me, Player peer) {
@@ -138,73 +723,214 @@ public class Server {
 
     private void sendTurnNotification(GameLoop game, Player me, Player peer) {
         String currentTurn = game.getCurrentTurn();
-        me.send("tura;" + currentTurn);
-        peer.send("tura;" + currentTurn);
-
-        if (currentTurn.equals(me.getId())) {
-            me.send(STATUS_YOUR_TURN);
-            peer.send(STATUS_WAIT);
-            peer.send(INFO_WAIT);
-        } else {
-            me.send(STATUS_WAIT);
-            me.send(INFO_WAIT);
-            peer.send(STATUS_YOUR_TURN);
-        }
+        boolean mine = currentTurn.equals(me.getId());
+        Player waiting = mine ? peer : me;
+        Player moving = mine ? me : peer;
+        // the player to move hears last: once it may fire, the other player's thread can
+        // notify this one of the next turn, and a late czekaj would take that turn away
+        waiting.send("tura;" + currentTurn);
+        waiting.send(STATUS_WAIT);
+        waiting.send(INFO_WAIT);
+        moving.send("tura;" + currentTurn);
+        moving.send(STATUS_YOUR_TURN);
+        moving.onTurn();
     }
 
-    private void handleGameLoop(String clientId, BufferedReader reader, PrintWriter out) throws IOException {
-        int communicationFailures = 0;
+    /**
+     * @param beat the connection's {@link Heartbeat} slot, stamped on every line
+     */
+    private void handleGameLoop(Player me, LineReader reader, PrintWriter out, int beat) throws IOException {
+        // written by whichever thread processes the client's lines, read here
+        AtomicInteger communicationFailures = new AtomicInteger();
+        TokenBucket bucket = linesPerSecond > 0 ? new TokenBucket(linesPerSecond, linesPerSecond) : null;
         String line;
+        long arrived = System.nanoTime();
 
-        while ((line = reader.readLine()) != null) {
-            if (clientTerminated.getOrDefault(clientId, false)) {
-                logger.info("terminating handler for client: " + clientId + " (session ended)");
+        while (true) {
+            // a line already waiting when the last one was done arrived no later than that one
+            boolean waiting = bucket != null && reader.ready();
+            if ((line = reader.readLine()) == null) {
                 break;
             }
-
-            String sessionId = clientToSession.get(clientId);
-            if (sessionId == null) {
-                continue;
+            if (!waiting) {
+                arrived = System.nanoTime();
             }
-
-            GameLoop game = gameSessions.get(sessionId);
-            if (game == null) {
-                out.println("error: no active session");
+            if (clientTerminated.getOrDefault(me.getId(), false)) {
+                logger.info("terminating handler for client: " + me.getId() + " (session ended)");
+                break;
+            }
+            if (bucket != null && !pace(me, bucket, arrived)) {
+                break;
+            }
+            if (heartbeat != null) {
+                heartbeat.touch(beat);
+            }
+            if (isHeartbeat(me, line)) {
                 continue;
             }
 
-            String normalized = normalizeInput(line);
-            if (normalized == null) {
-                continue;
+            String command = line;
+            boolean queued = inSession(me.getId(), () -> {
+                int failures = processLine(me, command, out, communicationFailures.get());
+                communicationFailures.set(failures);
+                if (failures >= MAX_COMMUNICATION_FAILURES && actorPool != null) {
+                    kick(me.getId());
+                }
+            });
+            if (!queued) {
+                me.send(INFO_BUSY);
             }
+            if (communicationFailures.get() >= MAX_COMMUNICATION_FAILURES) {
+                break;
+            }
+        }
+    }
 
-            String moveCoord = handleStartCommandIfPresent(clientId, normalized);
-            if (moveCoord == null && normalized.toLowerCase().startsWith("start")) {
-                continue;
+    /**
+     * Over the rate limit, stops reading the client until its line's token is due; the line is
+     * then handled as usual, so a client that sends a little too fast is slowed down, never
+     * ignored. A client whose unread lines pile up past a second burst is flooding and is dropped.
+     * @param arrived when the line reached the server, as far as the reader can tell
+     * @return {@code false} if the connection should end: a flood, or the thread was interrupted
+     */
+    private boolean pace(Player me, TokenBucket bucket, long arrived) {
+        long wait = bucket.acquire(arrived);
+        if (bucket.isFlood(wait)) {
+            logger.warning("dropping client " + me.getId() + ": more than " + linesPerSecond + " lines/s");
+            me.send(INFO_FLOOD);
+            return false;
+        }
+        long due = arrived + wait - System.nanoTime();
+        if (due > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(due);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
             }
+        }
+        return true;
+    }
 
-            String coord = moveCoord != null ? moveCoord : normalized;
-            String[] outcome = game.applyMove(clientId, coord);
-            String status = getStatus(outcome);
+    /**
+     * Handles one line from a client.
+     * @return the client's communication failure count after this line
+     */
+    private int processLine(Player me, String line, PrintWriter out, int communicationFailures) {
+        String clientId = me.getId();
 
-            if ("odrzucono".equals(status)) {
-                communicationFailures = handleRejectedMove(out, clientId, communicationFailures, outcome);
-                continue;
-            }
+        if (handleLoginIfPresent(me, line.trim()) || handleMapCommandIfPresent(me, line.trim())) {
+            return communicationFailures;
+        }
 
-            if (!"zaakceptowano".equals(status)) {
-                communicationFailures = handleCommunicationError(out, clientId, communicationFailures, "Błąd: Nieprawdłowa odpowiedź");
-                continue;
-            }
+        String sessionId = clientToSession.get(clientId);
+        if (sessionId == null) {
+            return communicationFailures;
+        }
 
-            if (outcome.length < 4) {
-                communicationFailures = handleCommunicationError(out, clientId, communicationFailures, "Błąd: Nieprawidłowa długość odpowiedzi");
-                continue;
+        GameLoop game = gameSessions.get(sessionId);
+        if (game == null) {
+            out.println("error: no active session");
+            return communicationFailures;
+        }
+
+        String normalized = normalizeInput(line);
+        if (normalized == null) {
+            return communicationFailures;
+        }
+
+        String moveCoord = handleStartCommandIfPresent(clientId, normalized);
+        if (moveCoord == null && normalized.toLowerCase().startsWith("start")) {
+            return communicationFailures;
+        }
+
+        String coord = moveCoord != null ? moveCoord : normalized;
+        MoveOutcome outcome = game.applyMove(clientId, coord);
+        if (!outcome.isAccepted()) {
+            return handleRejectedMove(out, clientId, communicationFailures, outcome.rejection());
+        }
+
+        processMoveOutcome(game, outcome);
+        return 0;
+    }
+
+    /**
+     * {@code mapa;<100 chars>} sets the player's own map. It is used when the session is created,
+     * or swapped in if the session already exists but no shot has been fired.
+     */
+    private boolean handleMapCommandIfPresent(Player me, String input) {
+        if (!input.toLowerCase().startsWith(CMD_MAP)) {
+            return false;
+        }
+
+        String map = input.substring(CMD_MAP.length()).trim();
+        MapValidator.Violation violation = MapValidator.check(map);
+        if (violation != MapValidator.Violation.NONE) {
+            me.send("błąd;nieprawidłowa mapa (" + violation + ")");
+            return true;
+        }
+
+        me.setPreferredMap(map);
+        String sessionId = clientToSession.get(me.getId());
+        GameLoop game = sessionId == null ? null : gameSessions.get(sessionId);
+        if (game != null) {
+            if (game.replaceBoard(me.getId(), map)) {
+                renderAndSendUi(game, game.getPlayerA(), game.getPlayerB());
+            } else {
+                me.send("info;gra już trwa - mapa odrzucona");
             }
+        }
+        logger.info("client " + me.getId() + " uses its own map");
+        return true;
+    }
+
+    /**
+     * {@code login;<name>} plays under a name, which is rated and keeps its statistics
+     * across connections. Optional and sent before the game starts. Names are not
+     * authenticated, so a game between two connections of one name is not rated.
+     */
+    private boolean handleLoginIfPresent(Player me, String input) {
+        if (!input.toLowerCase().startsWith(CMD_LOGIN)) {
+            return false;
+        }
+
+        String name = input.substring(CMD_LOGIN.length()).trim();
+        if (!PLAYER_NAME.matcher(name).matches()) {
+            me.send("błąd;nieprawidłowa nazwa gracza");
+            return true;
+        }
+        if (me.getName() != null) {
+            me.send("info;już zalogowano jako " + me.getName());
+            return true;
+        }
+        GameLoop game = game(me);
+        if (game != null && game.getMoveCount() > 0) {
+            me.send("info;logowanie możliwe tylko przed grą");
+            return true;
+        }
+        me.setName(name);
+        Rating rating = ratings.ratingOf(name);
+        me.send(String.format(Locale.ROOT, "info;zalogowano jako %s - ranking %.0f", name, rating.rating()));
+        logger.info("client " + me.getId() + " logged in as " + name);
+        return true;
+    }
+
+    private GameLoop game(Player me) {
+        String sessionId = clientToSession.get(me.getId());
+        return sessionId == null ? null : gameSessions.get(sessionId);
+    }
 
-            communicationFailures = 0;
-            processMoveOutcome(game, outcome);
+    /**
+     * Answers a client's {@code ping}; a {@code pong} only proves the client is alive.
+     * @return whether the line was a heartbeat
+     */
+    private boolean isHeartbeat(Player me, String line) {
+        String trimmed = line.trim();
+        if (Heartbeat.PING.equalsIgnoreCase(trimmed)) {
+            me.send(Heartbeat.PONG);
+            return true;
         }
+        return Heartbeat.PONG.equalsIgnoreCase(trimmed);
     }
 
     private String normalizeInput(String line) {
@@ -217,10 +943,6 @@ public class Server {
             return null;
         }
 
-        if (trimmed.toLowerCase().startsWith("ping")) {
-            return null;
-        }
-
         return trimmed;
     }
 
@@ -260,29 +982,23 @@ public class Server {
         if (playerB != null) playerB.send("info;gra rozpoczęta");
 
         String currentTurn = game.getCurrentTurn();
-        if (playerA != null) playerA.send("tura;" + currentTurn);
-        if (playerB != null) playerB.send("tura;" + currentTurn);
-
         if (playerA != null && playerB != null) {
-            if (currentTurn.equals(playerA.getId())) {
-                playerA.send(STATUS_YOUR_TURN);
-                playerB.send(STATUS_WAIT);
-            } else {
-                playerA.send(STATUS_WAIT);
-                playerB.send(STATUS_YOUR_TURN);
-            }
+            // as in sendTurnNotification, the player to move hears last
+            Player moving = currentTurn.equals(playerA.getId()) ? playerA : playerB;
+            Player waiting = moving == playerA ? playerB : playerA;
+            waiting.send("tura;" + currentTurn);
+            waiting.send(STATUS_WAIT);
+            moving.send("tura;" + currentTurn);
+            moving.send(STATUS_YOUR_TURN);
+            moving.onTurn();
+        } else {
+            if (playerA != null) playerA.send("tura;" + currentTurn);
+            if (playerB != null) playerB.send("tura;" + currentTurn);
         }
     }
 
-    private String getStatus(String[] outcome) {
-        return (outcome != null && outcome.length > 0 && outcome[0] != null)
-                ? outcome[0].toLowerCase()
-                : "";
-    }
-
-    private int handleRejectedMove(PrintWriter out, String clientId, int failures, String[] outcome) {
-        String reason = outcome.length > 1 ? outcome[1] : "odrzucono";
-        String lowerReason = reason == null ? "" : reason.toLowerCase();
+    private int handleRejectedMove(PrintWriter out, String clientId, int failures, String reason) {
+        String lowerReason = reason.toLowerCase();
 
         if (lowerReason.contains("nie") && lowerReason.contains("twoja")) {
             out.println("\nNie twoja tura. Poczekaj na ruch przeciwnika.");
@@ -305,18 +1021,16 @@ public class Server {
 
         if (nextFailures >= MAX_COMMUNICATION_FAILURES) {
             out.println("\nBłąd komunikacji");
-            logger.info("comm failures >= " + MAX_COMMUNICATION_FAILURES + " for client: " + clientId + " - exiting server");
-            System.exit(1);
+            logger.info("comm failures >= " + MAX_COMMUNICATION_FAILURES + " for client: " + clientId + " - disconnecting client");
         }
 
         return nextFailures;
     }
 
-    private void processMoveOutcome(GameLoop game, String[] outcome) {
-        String attacker = outcome[1];
-        String coord = outcome[2];
-        String nextTurn = outcome[3];
-        String resultToken = outcome.length > 4 ? outcome[4] : "";
+    private void processMoveOutcome(GameLoop game, MoveOutcome outcome) {
+        String attacker = outcome.attackerId();
+        String coord = outcome.coord();
+        String nextTurn = outcome.nextTurnId();
 
         Player playerA = game.getPlayerA();
         Player playerB = game.getPlayerB();
@@ -328,14 +1042,12 @@ public class Server {
         Player attackingPlayer = playerA.getId().equals(attacker) ? playerA : playerB;
         Player defendingPlayer = attackingPlayer == playerA ? playerB : playerA;
 
-        String rt = resultToken == null ? "" : resultToken;
-
-        if ("ostatni_zatopiony".equals(rt)) {
+        if (outcome.result() == ShotResult.LAST_SUNK) {
             handleGameEnd(game, attackingPlayer, defendingPlayer);
             return;
         }
 
-        String command = ("trafiony".equals(rt) ? "trafiony" : "pudło");
+        String command = outcome.result() == ShotResult.HIT ? "trafiony" : "pudło";
         attackingPlayer.send(command + ";" + coord);
         defendingPlayer.send(command + ";" + coord);
 
@@ -367,9 +1079,66 @@ public class Server {
             defender.send("moja plansza\n" + Objects.toString(game.getBoardFor(defender.getId()), ""));
         }
 
+        stats.recordGame(game, attacker.getId());
+        rate(attacker, defender);
+        recordReplay(game);
         cleanupGameSession(game);
     }
 
+    /**
+     * Rates a finished game between two named players and tells them their new ratings.
+     */
+    private void rate(Player winner, Player loser) {
+        String winnerName = winner.getName();
+        String loserName = loser.getName();
+        if (winnerName == null || loserName == null || winnerName.equals(loserName)) {
+            return;
+        }
+        try {
+            Rating[] updated = ratings.recordWin(winnerName, loserName);
+            Leaderboard board = ratings.leaderboard();
+            winner.send(String.format(Locale.ROOT, "info;ranking %.0f (miejsce %d)", updated[0].rating(), board.rank(winnerName)));
+            loser.send(String.format(Locale.ROOT, "info;ranking %.0f (miejsce %d)", updated[1].rating(), board.rank(loserName)));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "failed to record rating of " + winnerName + " vs " + loserName, e);
+        }
+    }
+
+    private void recordReplay(GameLoop game) {
+        ReplayWriter writer = replayWriter;
+        if (writer == null) {
+            return;
+        }
+        try {
+            Replay replay = game.toReplay();
+            if (replay != null) {
+                writer.append(replay);
+                writer.flush();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "failed to record replay of " + game.getSessionId(), e);
+        }
+    }
+
+    private void closeRatings() {
+        try {
+            ratings.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "failed to close rating log", e);
+        }
+    }
+
+    private void closeReplayWriter() {
+        if (replayWriter == null) {
+            return;
+        }
+        try {
+            replayWriter.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "failed to close replay archive", e);
+        }
+    }
+
     private void updateBoardsAndTurn(GameLoop game, Player playerA, Player playerB, String nextTurn) {
         try {
             ConsoleView view = new ConsoleView(game);
@@ -387,24 +1156,22 @@ public class Server {
         Player nextPlayer = playerA.getId().equals(nextTurn) ? playerA : playerB;
         Player otherPlayer = (nextPlayer == playerA) ? playerB : playerA;
 
-        if (nextPlayer != null) {
-            nextPlayer.send("tura;" + nextTurn);
-            nextPlayer.send(STATUS_YOUR_TURN);
-        }
-
-        if (otherPlayer != null) {
-            otherPlayer.send(STATUS_WAIT);
-            otherPlayer.send(INFO_WAIT);
-        }
+        // as in sendTurnNotification, the player to move hears last
+        otherPlayer.send(STATUS_WAIT);
+        otherPlayer.send(INFO_WAIT);
+        nextPlayer.send("tura;" + nextTurn);
+        nextPlayer.send(STATUS_YOUR_TURN);
+        nextPlayer.onTurn();
     }
 
     private void cleanupGameSession(GameLoop game) {
         Player playerA = game.getPlayerA();
         Player playerB = game.getPlayerB();
 
-        String sessionId = clientToSession.get(playerA.getId());
-        if (sessionId != null) {
-            gameSessions.remove(sessionId);
+        String sessionId = game.getSessionId();
+        if (gameSessions.remove(sessionId, game)) {
+            game.close();
+            sessionActors.remove(sessionId);
             clientToSession.remove(playerA.getId());
             clientToSession.remove(playerB.getId());
             sessionStarted.remove(sessionId);
@@ -421,6 +1188,21 @@ public class Server {
         }
     }
 
+    /**
+     * A client went away mid-game: end its session and tell the opponent.
+     */
+    private void abandonSession(String clientId) {
+        String sessionId = clientToSession.get(clientId);
+        GameLoop game = sessionId == null ? null : gameSessions.get(sessionId);
+        if (game == null) {
+            return;
+        }
+        Player peer = game.getPlayerA().getId().equals(clientId) ? game.getPlayerB() : game.getPlayerA();
+        peer.send(INFO_PEER_LEFT);
+        logger.info("client " + clientId + " left session " + sessionId);
+        cleanupGameSession(game);
+    }
+
     private void closeWriterQuietly(Player player) {
         try {
             if (player.getWriter() != null) {
@@ -429,7 +1211,10 @@ public class Server {
         } catch (Exception ignored) {}
     }
 
-    private void cleanupClientSession() {
+    private void cleanupClientSession(String clientId) {
+        waitingPlayers.removeIf(p -> p.getId().equals(clientId));
+        // a routed player whose peer never arrives, e.g. because the router failed to forward it
+        routedWaiting.values().removeIf(p -> p.getId().equals(clientId) || p.getWriter() == null || p.getWriter().checkError());
         waitingPlayers.removeIf(p -> {
             PrintWriter writer = p.getWriter();
             try {
@@ -440,16 +1225,49 @@ public class Server {
         });
     }
 
-    private void handleArgs(String[] args) {
-        for (int i = 0; i < args.length; i++) {
-            if ("-port".equals(args[i]) && (i + 1) < args.length) {
-                try {
-                    port = Integer.parseInt(args[++i]);
-                } catch (NumberFormatException e) {
-                    logger.warning("invalid port: " + args[i]);
-                }
-            } else {
-                logger.warning("unknown argument: " + args[i]);
+    /**
+     * Opens the files {@code config} names: maps, ratings, the replay archive and the TLS key store.
+     * @throws IOException if TLS was asked for but its key store cannot be loaded
+     */
+    private void openResources(NodeConfig config) throws IOException {
+        if (config.map() != null) {
+            try {
+                mapSource = MapSource.fixed(BoardState.readMapFile(config.map()));
+            } catch (IOException | IllegalArgumentException e) {
+                logger.log(Level.WARNING, "cannot use map file: " + config.map(), e);
+            }
+        }
+        if (config.mapLibrary() != null) {
+            try {
+                MapLibrary library = MapLibrary.open(config.mapLibrary());
+                mapSource = library;
+                logger.info("map library " + config.mapLibrary() + " with " + library.size() + " maps");
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "cannot open map library: " + config.mapLibrary(), e);
+            }
+        }
+        if (config.ratings() != null) {
+            try {
+                ratings = RatingStore.open(config.ratings());
+                logger.info("ratings in " + config.ratings() + " for " + ratings.leaderboard().size() + " players");
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "cannot open ratings: " + config.ratings(), e);
+            }
+        }
+        if (config.replay() != null) {
+            try {
+                replayWriter = ReplayWriter.open(config.replay());
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "cannot open replay archive: " + config.replay(), e);
+            }
+        }
+        if (config.tls() != null) {
+            String password = config.tlsPassword() != null ? config.tlsPassword() : System.getenv(TLS_PASSWORD_ENV);
+            try {
+                tls = Tls.serverContext(Path.of(config.tls()), password == null ? new char[0] : password.toCharArray());
+            } catch (IOException | GeneralSecurityException e) {
+                // never fall back to plaintext when TLS was asked for
+                throw new IOException("cannot load TLS key store " + config.tls(), e);
             }
         }
     }
@@ -472,9 +1290,17 @@ public class Server {
                             """);
     }
 
-    public static void main(String[] args) throws IOException {
-        Server server = new Server(12345);
-        server.handleArgs(args);
+    /**
+     * Runs a server until it is stopped; a shutdown signal drains it first.
+     */
+    public static void launch(NodeConfig config) throws IOException {
+        Server server = new Server(config);
+        server.openResources(config);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.drain(server.drainTimeoutMs, System.err::println), "drain"));
         server.start();
     }
+
+    public static void main(String[] args) throws IOException {
+        launch(NodeConfig.parse(args));
+    }
 }
\ No newline at end of file
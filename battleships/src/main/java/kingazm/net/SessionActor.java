@@ -0,0 +1,72 @@
+package kingazm.net;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs every command of one game session, one at a time and in arrival order, on the
+ * worker of {@link ActorPool} the session is pinned to. Network threads only {@link #tell}.
+ */
+final class SessionActor {
+    private static final Logger logger = Logger.getLogger(SessionActor.class.getName());
+
+    private final String sessionId;
+    private final Mailbox<Runnable> mailbox;
+    private final ActorPool pool;
+    private final int worker;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    SessionActor(String sessionId, int mailboxCapacity, ActorPool pool, int worker) {
+        this.sessionId = sessionId;
+        this.mailbox = new Mailbox<>(mailboxCapacity);
+        this.pool = pool;
+        this.worker = worker;
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    int getWorker() {
+        return worker;
+    }
+
+    /**
+     * Queues a command for the session.
+     * @return {@code false} if the mailbox is full and the command was dropped
+     */
+    boolean tell(Runnable command) {
+        if (!mailbox.offer(command)) {
+            return false;
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            pool.schedule(this);
+        }
+        return true;
+    }
+
+    /**
+     * Runs up to {@code budget} commands on the calling worker, then yields it to other
+     * sessions, rescheduling itself if commands are left.
+     */
+    void runBatch(int budget) {
+        for (int i = 0; i < budget; i++) {
+            Runnable command = mailbox.poll();
+            if (command == null) {
+                break;
+            }
+            try {
+                command.run();
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "command failed in session " + sessionId, e);
+            }
+        }
+
+        scheduled.set(false);
+        // a producer that published after the last poll may have seen the flag still set
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            pool.schedule(this);
+        }
+    }
+}
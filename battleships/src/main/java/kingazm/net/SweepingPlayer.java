@@ -0,0 +1,71 @@
+package kingazm.net;
+
+import kingazm.board.BoardConfig;
+import kingazm.engine.ShotResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Programmatic player that fires at every cell in order, one per turn, and leaves when the
+ * game is over. Used by the warmup run, the transport benchmark and the session tests.
+ *
+ * <p>Like its {@link BattleshipsSession}, it is only touched from the loop's thread until
+ * the loop has finished.
+ */
+public final class SweepingPlayer implements BattleshipsSession.Listener {
+    private final BattleshipsSession session = new BattleshipsSession(this);
+    private final List<ShotResult> results = new ArrayList<>();
+    private int next;
+    private int failures;
+    private boolean won;
+
+    public SweepingPlayer() {}
+
+    public SweepingPlayer(String name) {
+        session.useName(name);
+    }
+
+    public BattleshipsSession getSession() {
+        return session;
+    }
+
+    /**
+     * Results of this player's shots, in the order they were fired.
+     */
+    public List<ShotResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Shots the server did not accept.
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    public boolean hasWon() {
+        return won;
+    }
+
+    @Override
+    public void onTurn(boolean mine) {
+        if (mine && next < BoardConfig.ROWS * BoardConfig.COLS) {
+            int cell = next++;
+            String coord = (char) ('A' + cell % BoardConfig.COLS) + Integer.toString(cell / BoardConfig.COLS + 1);
+            session.fire(coord).whenComplete((result, error) -> {
+                if (error != null) {
+                    failures++;
+                } else {
+                    results.add(result);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onGameOver(boolean won) {
+        this.won = won;
+        session.leave();
+    }
+}
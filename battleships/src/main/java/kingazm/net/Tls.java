@@ -0,0 +1,100 @@
+package kingazm.net;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManagerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TLS setup shared by {@link Server} and the clients: TLS 1.3 only, PKCS#12 key and trust
+ * stores, host name verification on the client side.
+ *
+ * <p>Session resumption comes from reusing one {@link SSLContext}: the server issues
+ * session tickets after every full handshake and a client context keeps them per host and
+ * port, so a client reconnecting through the same context skips the certificate exchange.
+ */
+public final class Tls {
+    static final String PROTOCOL = "TLSv1.3";
+
+    private Tls() {}
+
+    /**
+     * Server context with the key pair from {@code keyStore}.
+     */
+    public static SSLContext serverContext(Path keyStore, char[] password) throws IOException, GeneralSecurityException {
+        KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keys.init(load(keyStore, password), password);
+        SSLContext context = SSLContext.getInstance(PROTOCOL);
+        context.init(keys.getKeyManagers(), null, null);
+        return context;
+    }
+
+    /**
+     * Client context trusting the certificates in {@code trustStore} (a server's key store
+     * will do), or the JDK's default authorities when it is {@code null}.
+     */
+    public static SSLContext clientContext(Path trustStore, char[] password) throws IOException, GeneralSecurityException {
+        TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(trustStore == null ? null : load(trustStore, password));
+        SSLContext context = SSLContext.getInstance(PROTOCOL);
+        context.init(null, trust.getTrustManagers(), null);
+        return context;
+    }
+
+    /**
+     * A client engine for {@code host:port}; the host name is checked against the certificate
+     * and keys the session cache used for resumption.
+     */
+    static SSLEngine clientEngine(SSLContext context, String host, int port) {
+        SSLEngine engine = context.createSSLEngine(host, port);
+        engine.setUseClientMode(true);
+        SSLParameters parameters = engine.getSSLParameters();
+        parameters.setProtocols(new String[] {PROTOCOL});
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        engine.setSSLParameters(parameters);
+        return engine;
+    }
+
+    /**
+     * Generates a self-signed key store for {@code localhost} with the JDK's {@code keytool},
+     * for tests and benchmarks.
+     */
+    public static Path selfSignedKeyStore(Path file, String password) throws IOException {
+        Path keytool = Path.of(System.getProperty("java.home"), "bin", "keytool");
+        Process process = new ProcessBuilder(keytool.toString(), "-genkeypair",
+                "-alias", "battleships", "-keyalg", "EC", "-groupname", "secp256r1",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+                "-validity", "30", "-storetype", "PKCS12",
+                "-keystore", file.toString(), "-storepass", password)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                process.destroyForcibly();
+                throw new IOException("keytool failed to create " + file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while creating " + file, e);
+        }
+        return file;
+    }
+
+    private static KeyStore load(Path file, char[] password) throws IOException, GeneralSecurityException {
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(file)) {
+            store.load(in, password);
+        }
+        return store;
+    }
+}
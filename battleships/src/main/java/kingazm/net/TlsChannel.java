@@ -0,0 +1,225 @@
+package kingazm.net;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * An {@link SSLEngine} over a non-blocking {@link SocketChannel}, for {@link ClientEventLoop}.
+ *
+ * <p>{@link #read} and {@link #write} move plaintext and drive the handshake as a side effect.
+ * A write always takes all of its input: plaintext waits in a buffer until the handshake
+ * allows it to be encrypted, and encrypted bytes the socket cannot take yet wait for
+ * {@link #flush}. The caller watches for {@code OP_WRITE} while {@link #hasPendingOutput}.
+ * A read decrypts everything the socket has, so the caller must read until it returns
+ * {@code 0}: buffered plaintext does not make the selector fire again.
+ *
+ * <p>All four buffers stay in write mode between calls.
+ */
+final class TlsChannel implements ByteChannel {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private ByteBuffer appIn;
+    private ByteBuffer appOut;
+    private boolean inboundDone;
+
+    TlsChannel(SocketChannel channel, SSLEngine engine) throws IOException {
+        this.channel = channel;
+        this.engine = engine;
+        int packet = engine.getSession().getPacketBufferSize();
+        int application = engine.getSession().getApplicationBufferSize();
+        this.netIn = ByteBuffer.allocate(packet);
+        this.netOut = ByteBuffer.allocate(packet);
+        this.appIn = ByteBuffer.allocate(application);
+        this.appOut = ByteBuffer.allocate(application);
+        engine.beginHandshake();
+        pump();
+    }
+
+    SSLEngine engine() {
+        return engine;
+    }
+
+    /**
+     * @return plaintext bytes copied into {@code dst}, or {@code -1} once the peer has closed
+     *         and everything it sent has been read
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (appIn.position() == 0 && !inboundDone) {
+            int n = channel.read(netIn);
+            if (n < 0) {
+                inboundDone = true;
+                try {
+                    engine.closeInbound();
+                } catch (SSLException ignored) {
+                    // the peer closed without close_notify; what was received is still valid
+                }
+            }
+            pump();
+        }
+        if (appIn.position() == 0) {
+            return inboundDone ? -1 : 0;
+        }
+        appIn.flip();
+        int n = Math.min(appIn.remaining(), dst.remaining());
+        dst.put(appIn.slice(appIn.position(), n));
+        appIn.position(appIn.position() + n);
+        appIn.compact();
+        return n;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int n = src.remaining();
+        appOut = ensure(appOut, n);
+        appOut.put(src);
+        pump();
+        return n;
+    }
+
+    /**
+     * Sends what it can of the encrypted output.
+     * @return whether everything has been sent
+     */
+    boolean flush() throws IOException {
+        pump();
+        return !hasPendingOutput();
+    }
+
+    /**
+     * Whether encrypted bytes are waiting for the socket. Plaintext held back by the
+     * handshake does not count: the peer's next message releases it.
+     */
+    boolean hasPendingOutput() {
+        return netOut.position() > 0;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Sends {@code close_notify} if the socket takes it right away, then closes the socket.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            engine.closeOutbound();
+            pump();
+        } catch (IOException ignored) {
+            // closing anyway
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Runs the engine until it can make no more progress with the data at hand, then writes
+     * out what it produced.
+     */
+    private void pump() throws IOException {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK -> {
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                    progress = true;
+                }
+                case NEED_WRAP -> progress = wrap(EMPTY);
+                case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> progress = unwrap();
+                default -> {
+                    progress = netIn.position() > 0 && unwrap();
+                    if (appOut.position() > 0 && !engine.isOutboundDone()) {
+                        appOut.flip();
+                        try {
+                            progress |= wrap(appOut);
+                        } finally {
+                            appOut.compact();
+                        }
+                    }
+                }
+            }
+        }
+        if (netOut.position() > 0) {
+            netOut.flip();
+            try {
+                channel.write(netOut);
+            } finally {
+                netOut.compact();
+            }
+        }
+    }
+
+    private boolean wrap(ByteBuffer source) throws IOException {
+        while (true) {
+            SSLEngineResult result = engine.wrap(source, netOut);
+            switch (result.getStatus()) {
+                case BUFFER_OVERFLOW -> netOut = ensure(netOut, engine.getSession().getPacketBufferSize());
+                case CLOSED -> {
+                    return result.bytesProduced() > 0;
+                }
+                default -> {
+                    return result.bytesConsumed() > 0 || result.bytesProduced() > 0;
+                }
+            }
+        }
+    }
+
+    private boolean unwrap() throws IOException {
+        netIn.flip();
+        try {
+            while (true) {
+                SSLEngineResult result = engine.unwrap(netIn, appIn);
+                switch (result.getStatus()) {
+                    case BUFFER_OVERFLOW -> appIn = ensure(appIn, engine.getSession().getApplicationBufferSize());
+                    case BUFFER_UNDERFLOW -> {
+                        if (netIn.limit() == netIn.capacity()) {
+                            // a record larger than the buffer: make room for it
+                            netIn.compact();
+                            netIn = ensure(netIn, engine.getSession().getPacketBufferSize());
+                            netIn.flip();
+                        }
+                        return false;
+                    }
+                    case CLOSED -> {
+                        inboundDone = true;
+                        return false;
+                    }
+                    default -> {
+                        return result.bytesConsumed() > 0 || result.bytesProduced() > 0;
+                    }
+                }
+            }
+        } finally {
+            netIn.compact();
+        }
+    }
+
+    /**
+     * {@code buffer} (in write mode) with room for {@code extra} more bytes.
+     */
+    private static ByteBuffer ensure(ByteBuffer buffer, int extra) {
+        if (buffer.remaining() >= extra) {
+            return buffer;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+}
@@ -0,0 +1,56 @@
+package kingazm.net;
+
+/**
+ * Per-connection rate limit: a token bucket of {@code burst} tokens refilled at {@code rate}
+ * per second, kept as a single timestamp (the time the bucket will be full again) so a check
+ * is a few arithmetic operations and never allocates.
+ *
+ * <p>{@link #acquire} takes the line's token and tells how long to wait until it is due; the
+ * connection's reader stops reading for that long and then handles the line, so a client a
+ * little above the rate is paced to it. A line is charged from when it arrived: one that was
+ * already waiting unread owes for the lines before it, and once that debt outgrows a second
+ * burst the client is flooding ({@link #isFlood}) and is dropped. Not thread-safe: owned by
+ * the connection's reading thread.
+ */
+final class TokenBucket {
+    private final long interval;
+    private final long burstWindow;
+    private long fullAt;
+
+    /**
+     * @param rate tokens per second
+     * @param burst tokens available at once
+     */
+    TokenBucket(int rate, int burst) {
+        this(rate, burst, System.nanoTime());
+    }
+
+    TokenBucket(int rate, int burst, long now) {
+        if (rate <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.interval = 1_000_000_000L / rate;
+        this.burstWindow = interval * burst;
+        this.fullAt = now;
+    }
+
+    /**
+     * @param now when the line arrived
+     * @return nanoseconds from {@code now} until the token is due, 0 if it is available now
+     */
+    long acquire(long now) {
+        if (fullAt - now < 0) {
+            fullAt = now;
+        }
+        fullAt += interval;
+        return Math.max(0, fullAt - now - burstWindow);
+    }
+
+    /**
+     * @param wait what {@link #acquire} returned for a line
+     * @return whether the line is more than a second burst over the rate
+     */
+    boolean isFlood(long wait) {
+        return wait > burstWindow;
+    }
+}
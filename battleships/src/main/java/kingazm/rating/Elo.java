@@ -0,0 +1,40 @@
+package kingazm.rating;
+
+/**
+ * Elo ratings: every player starts at {@link #INITIAL}, and a game moves
+ * {@code K * (1 - expected)} points from the loser to the winner.
+ */
+public final class Elo {
+    public static final double INITIAL = 1500;
+    /** a new player's ratings move faster until it has played this many games */
+    static final int PROVISIONAL_GAMES = 20;
+    static final double K = 24;
+    static final double K_PROVISIONAL = 40;
+
+    private Elo() {}
+
+    /**
+     * Probability that a player rated {@code rating} beats one rated {@code opponent}.
+     */
+    public static double expected(double rating, double opponent) {
+        return 1 / (1 + Math.pow(10, (opponent - rating) / 400));
+    }
+
+    /**
+     * Both ratings after {@code winner} beat {@code loser}.
+     * @return the winner's and the loser's new rating, in that order
+     */
+    public static Rating[] afterWin(Rating winner, Rating loser) {
+        double expected = expected(winner.rating(), loser.rating());
+        double gain = k(winner) * (1 - expected);
+        double loss = k(loser) * (1 - expected);
+        return new Rating[] {
+                new Rating(winner.name(), winner.rating() + gain, winner.games() + 1),
+                new Rating(loser.name(), loser.rating() - loss, loser.games() + 1)
+        };
+    }
+
+    private static double k(Rating rating) {
+        return rating.games() < PROVISIONAL_GAMES ? K_PROVISIONAL : K;
+    }
+}
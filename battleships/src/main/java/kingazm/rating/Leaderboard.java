@@ -0,0 +1,172 @@
+package kingazm.rating;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Ratings ordered best first, as a treap whose nodes also count their subtree: a rating
+ * update (remove and re-insert), the rank of a player and the start of a top-N listing all
+ * take O(log n) expected time. Ties on rating are broken by name, so ranks are stable.
+ */
+public class Leaderboard {
+    static final Comparator<Rating> ORDER = Comparator.comparingDouble(Rating::rating).reversed()
+            .thenComparing(Rating::name);
+
+    private static final class Node {
+        final Rating rating;
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(Rating rating, int priority) {
+            this.rating = rating;
+            this.priority = priority;
+        }
+    }
+
+    private final Map<String, Rating> byName = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom();
+    private Node root;
+
+    /**
+     * @return the player's rating, or {@code null} if it has none yet
+     */
+    public synchronized Rating get(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Sets a player's rating, replacing the previous one.
+     */
+    public synchronized void put(Rating rating) {
+        Rating previous = byName.put(rating.name(), rating);
+        if (previous != null) {
+            root = remove(root, previous);
+        }
+        root = insert(root, new Node(rating, random.nextInt()));
+    }
+
+    /**
+     * @return the player's place, 1 for the best, or 0 if it has no rating
+     */
+    public synchronized int rank(String name) {
+        Rating rating = byName.get(name);
+        if (rating == null) {
+            return 0;
+        }
+        int before = 0;
+        Node node = root;
+        while (node != null) {
+            int c = ORDER.compare(rating, node.rating);
+            if (c < 0) {
+                node = node.left;
+            } else if (c > 0) {
+                before += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return before + size(node.left) + 1;
+            }
+        }
+        throw new IllegalStateException("index out of sync for " + name);
+    }
+
+    /**
+     * The best {@code n} ratings, best first.
+     */
+    public synchronized List<Rating> top(int n) {
+        List<Rating> top = new ArrayList<>(Math.min(n, byName.size()));
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        while (top.size() < n && (node != null || !path.isEmpty())) {
+            if (node != null) {
+                path.push(node);
+                node = node.left;
+            } else {
+                node = path.pop();
+                top.add(node.rating);
+                node = node.right;
+            }
+        }
+        return top;
+    }
+
+    public synchronized int size() {
+        return byName.size();
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (ORDER.compare(added.rating, node.rating) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        resize(node);
+        return node;
+    }
+
+    private static Node remove(Node node, Rating rating) {
+        if (node == null) {
+            return null;
+        }
+        int c = ORDER.compare(rating, node.rating);
+        if (c < 0) {
+            node.left = remove(node.left, rating);
+        } else if (c > 0) {
+            node.right = remove(node.right, rating);
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        } else if (node.left.priority > node.right.priority) {
+            node = rotateRight(node);
+            node.right = remove(node.right, rating);
+        } else {
+            node = rotateLeft(node);
+            node.left = remove(node.left, rating);
+        }
+        resize(node);
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        resize(node);
+        resize(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        resize(node);
+        resize(right);
+        return right;
+    }
+
+    private static void resize(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,11 @@
+package kingazm.rating;
+
+/**
+ * A named player's rating after {@code games} rated games.
+ */
+public record Rating(String name, double rating, int games) {
+
+    public static Rating initial(String name) {
+        return new Rating(name, Elo.INITIAL, 0);
+    }
+}
@@ -0,0 +1,247 @@
+package kingazm.rating;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.logging.Logger;
+
+/**
+ * Elo ratings of named players, kept in a {@link Leaderboard} and, when opened on a
+ * directory, persisted as a snapshot plus a write-ahead log:
+ *
+ * <pre>
+ * ratings.snapshot := SNAPSHOT_MAGIC:int VERSION:byte count:int entry[count]
+ * ratings.wal      := LOG_MAGIC:int VERSION:byte game*
+ * game             := length:int winner:entry loser:entry crc32:int
+ * entry            := name:UTF rating:double games:int
+ * </pre>
+ *
+ * A log record is one game: the new ratings of both players, its length in bytes and a CRC32
+ * of them. Replaying the log over the snapshot is idempotent, and replay stops at the first
+ * record that is torn or does not match its checksum, so a crash loses the last game whole
+ * and never only one side of it. Every game is appended and flushed before the leaderboard
+ * changes; the snapshot is rewritten (to a temporary file, synced, then renamed over the old
+ * one) and the log restarted on open and every {@link #COMPACT_AFTER} games.
+ */
+public class RatingStore implements Closeable {
+    static final int SNAPSHOT_MAGIC = 0x42535253; // "BSRS"
+    static final int LOG_MAGIC = 0x4253524C; // "BSRL"
+    static final byte VERSION = 1;
+    static final String SNAPSHOT = "ratings.snapshot";
+    static final String LOG = "ratings.wal";
+    static final int COMPACT_AFTER = 10_000;
+    // two entries with the longest names writeUTF allows
+    private static final int MAX_GAME_BYTES = 2 * (2 + 0xFFFF + 8 + 4);
+
+    private static final Logger logger = Logger.getLogger(RatingStore.class.getName());
+
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final Path dir;
+    private DataOutputStream log;
+    private int logged;
+
+    private RatingStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Ratings that last as long as the process.
+     */
+    public static RatingStore inMemory() {
+        return new RatingStore(null);
+    }
+
+    /**
+     * Loads the ratings kept in {@code dir} (created if needed) and keeps them there.
+     */
+    public static RatingStore open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        RatingStore store = new RatingStore(dir);
+        Path snapshot = dir.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = open(snapshot, SNAPSHOT_MAGIC)) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    store.leaderboard.put(readEntry(in));
+                }
+            }
+        }
+        Path log = dir.resolve(LOG);
+        if (Files.exists(log)) {
+            int replayed = 0;
+            try (DataInputStream in = open(log, LOG_MAGIC)) {
+                Rating[] game;
+                while ((game = readGame(in)) != null) {
+                    store.leaderboard.put(game[0]);
+                    store.leaderboard.put(game[1]);
+                    replayed++;
+                }
+            }
+            logger.info("replayed " + replayed + " rated games from " + log);
+        }
+        store.compact();
+        return store;
+    }
+
+    public Leaderboard leaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * The player's rating, or the initial one if it has not played a rated game.
+     */
+    public Rating ratingOf(String name) {
+        Rating rating = leaderboard.get(name);
+        return rating == null ? Rating.initial(name) : rating;
+    }
+
+    /**
+     * Rates a game {@code winner} won against {@code loser}.
+     * @return the winner's and the loser's new rating, in that order
+     */
+    public synchronized Rating[] recordWin(String winner, String loser) throws IOException {
+        Rating[] updated = Elo.afterWin(ratingOf(winner), ratingOf(loser));
+        if (log != null) {
+            writeGame(log, updated);
+            log.flush();
+            logged++;
+        }
+        leaderboard.put(updated[0]);
+        leaderboard.put(updated[1]);
+        if (logged >= COMPACT_AFTER) {
+            compact();
+        }
+        return updated;
+    }
+
+    /**
+     * Writes a new snapshot of every rating and starts an empty log.
+     */
+    public synchronized void compact() throws IOException {
+        if (dir == null) {
+            return;
+        }
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+        List<Rating> all = leaderboard.top(Integer.MAX_VALUE);
+        Path temporary = dir.resolve(SNAPSHOT + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(all.size());
+            for (Rating rating : all) {
+                writeEntry(out, rating);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dir.resolve(LOG).toFile())));
+        log.writeInt(LOG_MAGIC);
+        log.writeByte(VERSION);
+        log.flush();
+        logged = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    private static DataInputStream open(Path file, int magic) throws IOException {
+        InputStream raw = Files.newInputStream(file);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16));
+        try {
+            int found = in.readInt();
+            if (found != magic) {
+                throw new IOException("not a rating file (bad magic " + Integer.toHexString(found) + "): " + file);
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("unsupported rating file version " + version + ": " + file);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * @return the winner's and the loser's rating, or {@code null} at the end of the log or at
+     *         a record torn by a crash or damaged since
+     */
+    private static Rating[] readGame(DataInputStream in) throws IOException {
+        byte[] payload;
+        int checksum;
+        try {
+            int length = in.readInt();
+            if (length < 0 || length > MAX_GAME_BYTES) {
+                logger.warning("rating log record of " + length + " bytes, ignoring the rest of the log");
+                return null;
+            }
+            payload = new byte[length];
+            in.readFully(payload);
+            checksum = in.readInt();
+        } catch (EOFException e) {
+            // the end of the log, possibly in the middle of a game torn by a crash
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            logger.warning("rating log record does not match its checksum, ignoring the rest of the log");
+            return null;
+        }
+        DataInputStream entries = new DataInputStream(new ByteArrayInputStream(payload));
+        return new Rating[] {readEntry(entries), readEntry(entries)};
+    }
+
+    private static void writeGame(DataOutput out, Rating[] game) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream entries = new DataOutputStream(bytes);
+        writeEntry(entries, game[0]);
+        writeEntry(entries, game[1]);
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static Rating readEntry(DataInput in) throws IOException {
+        String name = in.readUTF();
+        double rating = in.readDouble();
+        int games = in.readInt();
+        return new Rating(name, rating, games);
+    }
+
+    private static void writeEntry(DataOutput out, Rating rating) throws IOException {
+        out.writeUTF(rating.name());
+        out.writeDouble(rating.rating());
+        out.writeInt(rating.games());
+    }
+}
@@ -0,0 +1,30 @@
+package kingazm.replay;
+
+/**
+ * A finished (or interrupted) match: both initial maps and the cells fired at, in order.
+ * Only the first {@code moveCount} entries of {@code moves} are meaningful; {@code truncated}
+ * tells that the match went on after them but its later moves were not kept.
+ */
+public record Replay(String mapA, String mapB, byte[] moves, int moveCount, boolean truncated) {
+
+    public Replay {
+        if (moveCount < 0 || moveCount > moves.length || moveCount > ReplayFormat.MAX_MOVES) {
+            throw new IllegalArgumentException("invalid move count: " + moveCount);
+        }
+    }
+
+    public Replay(String mapA, String mapB, byte[] moves, int moveCount) {
+        this(mapA, mapB, moves, moveCount, false);
+    }
+
+    public int cellAt(int move) {
+        return moves[move];
+    }
+
+    /**
+     * Whether the given move was fired by player A (players alternate, A starts).
+     */
+    public static boolean isPlayerAMove(int move) {
+        return (move & 1) == 0;
+    }
+}
@@ -0,0 +1,109 @@
+package kingazm.replay;
+
+import kingazm.board.BoardConfig;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Binary layout of a replay archive.
+ *
+ * <pre>
+ * file   := MAGIC:int VERSION:byte record*
+ * record := mapA:13 bytes  mapB:13 bytes  moveCount:u16  move:byte[moveCount]
+ * </pre>
+ *
+ * A map is stored as a 100-bit mask of masts (bit {@code i} = cell {@code row * 10 + col}),
+ * a move is the cell index that was fired at. Players alternate, starting with player A,
+ * exactly as {@link kingazm.engine.GameLoop} enforces, so results are never stored:
+ * they are derived by re-firing the moves at the initial boards.
+ *
+ * <p>A match that went on after its log was full ends with one {@link #TRUNCATED} move,
+ * counted in {@code moveCount}, where the dropped moves would have been.
+ */
+public final class ReplayFormat {
+    public static final int MAGIC = 0x42535250; // "BSRP"
+    public static final byte VERSION = 1;
+    public static final int CELLS = BoardConfig.ROWS * BoardConfig.COLS;
+    public static final int MAP_BYTES = (CELLS + 7) / 8;
+    /** moves a record can hold, leaving room in the u16 count for the truncation marker */
+    public static final int MAX_MOVES = 0xFFFE;
+    /** not a cell: marks that the moves after it were not kept */
+    public static final byte TRUNCATED = (byte) 0xFF;
+
+    private ReplayFormat() {}
+
+    static void writeHeader(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    static void readHeader(DataInput in) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("not a replay archive (bad magic " + Integer.toHexString(magic) + ")");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported replay version: " + version);
+        }
+    }
+
+    static void writeRecord(DataOutput out, Replay replay, byte[] scratch) throws IOException {
+        packMap(replay.mapA(), scratch);
+        out.write(scratch, 0, MAP_BYTES);
+        packMap(replay.mapB(), scratch);
+        out.write(scratch, 0, MAP_BYTES);
+        out.writeShort(replay.moveCount() + (replay.truncated() ? 1 : 0));
+        out.write(replay.moves(), 0, replay.moveCount());
+        if (replay.truncated()) {
+            out.writeByte(TRUNCATED);
+        }
+    }
+
+    /**
+     * Reads the next record, or returns {@code null} on a clean end of stream: one that ends
+     * where a record would start. An archive cut inside a record fails with an {@link EOFException}.
+     */
+    static Replay readRecord(DataInput in, byte[] scratch) throws IOException {
+        try {
+            scratch[0] = (byte) in.readUnsignedByte();
+        } catch (EOFException e) {
+            return null;
+        }
+        in.readFully(scratch, 1, MAP_BYTES - 1);
+        String mapA = unpackMap(scratch);
+        in.readFully(scratch, 0, MAP_BYTES);
+        String mapB = unpackMap(scratch);
+
+        int moveCount = in.readUnsignedShort();
+        byte[] moves = new byte[moveCount];
+        in.readFully(moves);
+        boolean truncated = moveCount > 0 && moves[moveCount - 1] == TRUNCATED;
+        return new Replay(mapA, mapB, moves, truncated ? moveCount - 1 : moveCount, truncated);
+    }
+
+    public static void packMap(CharSequence map, byte[] dst) {
+        if (map.length() != CELLS) {
+            throw new IllegalArgumentException("map must be " + CELLS + " chars");
+        }
+        for (int i = 0; i < MAP_BYTES; i++) {
+            dst[i] = 0;
+        }
+        for (int i = 0; i < CELLS; i++) {
+            if (map.charAt(i) == BoardConfig.MAST) {
+                dst[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+    }
+
+    public static String unpackMap(byte[] src) {
+        char[] cells = new char[CELLS];
+        for (int i = 0; i < CELLS; i++) {
+            cells[i] = (src[i >>> 3] & (1 << (i & 7))) != 0 ? BoardConfig.MAST : BoardConfig.WATER;
+        }
+        return new String(cells);
+    }
+}
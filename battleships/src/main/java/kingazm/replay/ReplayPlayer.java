@@ -0,0 +1,93 @@
+package kingazm.replay;
+
+import kingazm.board.BoardConfig;
+import kingazm.engine.BoardState;
+import kingazm.engine.ShotResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Re-simulates stored matches by firing their moves at fresh boards.
+ */
+public class ReplayPlayer {
+    private static final int COLS = BoardConfig.COLS;
+
+    /**
+     * Derived outcome of a replay. {@code winner} is {@code 'A'}, {@code 'B'} or {@code '-'}
+     * when the match was not played to the end.
+     */
+    public record Summary(int shotsA, int hitsA, int shotsB, int hitsB, char winner) {}
+
+    public Summary play(Replay replay) {
+        BoardState boardA = new BoardState(replay.mapA());
+        BoardState boardB = new BoardState(replay.mapB());
+
+        int shotsA = 0;
+        int hitsA = 0;
+        int shotsB = 0;
+        int hitsB = 0;
+        char winner = '-';
+
+        int moves = replay.moveCount();
+        for (int i = 0; i < moves; i++) {
+            int cell = replay.cellAt(i);
+            boolean byA = Replay.isPlayerAMove(i);
+            BoardState target = byA ? boardB : boardA;
+            ShotResult result = target.fireAt(cell / COLS, cell % COLS);
+
+            boolean hit = result != ShotResult.MISS;
+            if (byA) {
+                shotsA++;
+                if (hit) hitsA++;
+            } else {
+                shotsB++;
+                if (hit) hitsB++;
+            }
+
+            if (result == ShotResult.LAST_SUNK) {
+                winner = byA ? 'A' : 'B';
+                break;
+            }
+        }
+        return new Summary(shotsA, hitsA, shotsB, hitsB, winner);
+    }
+
+    /**
+     * Re-simulates every replay of the archive, streaming it from disk.
+     * @return number of replays played
+     */
+    public long playAll(ReplayReader reader, Consumer<Summary> sink) throws IOException {
+        long count = 0;
+        Replay replay;
+        while ((replay = reader.next()) != null) {
+            sink.accept(play(replay));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Usage: {@code java kingazm.replay.ReplayPlayer archive.bsr}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: ReplayPlayer <archive>");
+            System.exit(2);
+        }
+
+        ReplayPlayer player = new ReplayPlayer();
+        long[] winners = new long[3];
+        long start = System.nanoTime();
+        long games;
+
+        try (ReplayReader reader = ReplayReader.open(Path.of(args[0]))) {
+            games = player.playAll(reader, s -> winners[s.winner() == 'A' ? 0 : s.winner() == 'B' ? 1 : 2]++);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("games: %d (A: %d, B: %d, unfinished: %d)%n", games, winners[0], winners[1], winners[2]);
+        System.out.printf("time: %.2f s, %.0f games/min%n", seconds, seconds > 0 ? games / seconds * 60 : 0.0);
+    }
+}
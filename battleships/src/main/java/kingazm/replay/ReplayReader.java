@@ -0,0 +1,85 @@
+package kingazm.replay;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Streams replays from an archive one record at a time, so archives of any size
+ * can be scanned with constant memory.
+ */
+public class ReplayReader implements Closeable, Iterable<Replay> {
+    private final DataInputStream in;
+    private final byte[] scratch = new byte[ReplayFormat.MAP_BYTES];
+
+    public ReplayReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        ReplayFormat.readHeader(this.in);
+    }
+
+    public static ReplayReader open(Path path) throws IOException {
+        return new ReplayReader(Files.newInputStream(path));
+    }
+
+    /**
+     * @return the next replay, or {@code null} at the end of the archive
+     */
+    public Replay next() throws IOException {
+        return ReplayFormat.readRecord(in, scratch);
+    }
+
+    /**
+     * Feeds every remaining replay to {@code consumer}; returns how many were read.
+     */
+    public long forEachRemaining(Consumer<Replay> consumer) throws IOException {
+        long count = 0;
+        Replay replay;
+        while ((replay = next()) != null) {
+            consumer.accept(replay);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<Replay> iterator() {
+        return new Iterator<>() {
+            private Replay pending;
+
+            @Override
+            public boolean hasNext() {
+                if (pending == null) {
+                    try {
+                        pending = ReplayReader.this.next();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return pending != null;
+            }
+
+            @Override
+            public Replay next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Replay r = pending;
+                pending = null;
+                return r;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,58 @@
+package kingazm.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends replays to an archive. Safe to share between game sessions.
+ */
+public class ReplayWriter implements Closeable {
+    private final DataOutputStream out;
+    private final byte[] scratch = new byte[ReplayFormat.MAP_BYTES];
+
+    public ReplayWriter(OutputStream out) throws IOException {
+        this(out, true);
+    }
+
+    private ReplayWriter(OutputStream out, boolean header) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        if (header) {
+            ReplayFormat.writeHeader(this.out);
+        }
+    }
+
+    /**
+     * Opens the archive at {@code path} for appending, so replays of earlier runs are kept.
+     * A missing or empty file is started with a header; an existing one must have a valid one.
+     */
+    public static ReplayWriter open(Path path) throws IOException {
+        boolean fresh = Files.notExists(path) || Files.size(path) == 0;
+        if (!fresh) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+                ReplayFormat.readHeader(in);
+            }
+        }
+        return new ReplayWriter(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE), fresh);
+    }
+
+    public synchronized void append(Replay replay) throws IOException {
+        ReplayFormat.writeRecord(out, replay, scratch);
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,41 @@
+package kingazm.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PlacementStatsTest {
+
+    @Test
+    public void everyRunCountsOnlyItsOwnMaps() {
+        PlacementStats stats = new PlacementStats(42);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        long[] first = stats.run(pool, 20_000);
+        long[] second = stats.run(pool, 5_000);
+        pool.shutdown();
+
+        assertThat(first[PlacementStats.MAPS]).isEqualTo(20_000);
+        assertThat(second[PlacementStats.MAPS]).isEqualTo(5_000);
+        assertThat(second[PlacementStats.INVALID]).isZero();
+        assertThat(second[PlacementStats.WRONG_MASTS]).isZero();
+    }
+
+    @Test
+    public void shipsLieAlongBothAxesAboutEqually() {
+        PlacementStats stats = new PlacementStats(7);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        long[] totals = stats.run(pool, 20_000);
+        pool.shutdown();
+
+        // a generator that never picks one of the axes, or stacks maps on a board it did not
+        // clear, fails one of these
+        long horizontal = totals[PlacementStats.HORIZONTAL];
+        long vertical = totals[PlacementStats.VERTICAL];
+        assertThat((double) horizontal / (horizontal + vertical)).isBetween(0.45, 0.55);
+        assertThat(totals[PlacementStats.WRONG_MASTS]).isZero();
+        assertThat(totals[PlacementStats.TOUCHING]).isZero();
+        assertThat(totals[PlacementStats.BENT]).isZero();
+    }
+}
@@ -0,0 +1,35 @@
+package kingazm.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TournamentTest {
+
+    @Test
+    public void everyPairingPlaysItsGamesAndDensityBeatsRandom() {
+        Tournament tournament = new Tournament(List.of("density", "random"), 300, 42);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        long[] totals = tournament.run(pool);
+        pool.shutdown();
+
+        int density = 0;
+        int random = Tournament.PER_STRATEGY;
+        assertThat(totals[tournament.draws]).isZero();
+        assertThat(totals[tournament.total]).isEqualTo(300);
+        assertThat(totals[density + Tournament.GAMES]).isEqualTo(300);
+        assertThat(totals[random + Tournament.GAMES]).isEqualTo(300);
+        assertThat(totals[density + Tournament.WINS] + totals[random + Tournament.WINS]).isEqualTo(300);
+        assertThat(totals[density + Tournament.WINS]).isGreaterThan(270);
+    }
+
+    @Test
+    public void unknownStrategyIsRejected() {
+        assertThatThrownBy(() -> new Tournament(List.of("density", "oracle"), 1, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,49 @@
+package kingazm.board;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MapLibraryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void drawsMapsByIndexAndInOrder() throws IOException {
+        BoardGenerator generator = BoardGenerator.withRandom(new SplittableRandom(7));
+        List<String> maps = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            maps.add(generator.generateMap());
+        }
+        Path file = dir.resolve("maps.lib");
+        MapLibrary.write(file, maps);
+
+        MapLibrary library = MapLibrary.open(file);
+        assertThat(library.size()).isEqualTo(1000);
+        assertThat(library.mapAt(517).toString()).isEqualTo(maps.get(517));
+        for (int i = 0; i < 1001; i++) {
+            assertThat(library.nextMap().toString()).isEqualTo(maps.get(i % 1000));
+        }
+    }
+
+    @Test
+    public void rejectsInvalidLibraries() throws IOException {
+        Path truncated = dir.resolve("truncated.lib");
+        Files.writeString(truncated, ".".repeat(150));
+        assertThatThrownBy(() -> MapLibrary.open(truncated)).isInstanceOf(IOException.class);
+
+        Path empty = dir.resolve("empty-board.lib");
+        MapLibrary.write(empty, List.of(".".repeat(100)));
+        assertThatThrownBy(() -> MapLibrary.open(empty)).hasMessageContaining("FLEET");
+    }
+}
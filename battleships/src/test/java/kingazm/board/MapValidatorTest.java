@@ -0,0 +1,59 @@
+package kingazm.board;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MapValidatorTest {
+
+    private static String map(String rows) {
+        return (rows + ".".repeat(100)).substring(0, 100);
+    }
+
+    @Test
+    public void acceptsHandWrittenMap() {
+        String full = map(
+                "####.###.." +
+                ".........." +
+                "###.##.##." +
+                ".........." +
+                "##.#.#.#.#");
+        assertThat(MapValidator.check(full)).isEqualTo(MapValidator.Violation.NONE);
+    }
+
+    @Test
+    public void reportsEachViolation() {
+        assertThat(MapValidator.check("#".repeat(99))).isEqualTo(MapValidator.Violation.SIZE);
+        assertThat(MapValidator.check(map("x"))).isEqualTo(MapValidator.Violation.CHARACTERS);
+        assertThat(MapValidator.check(map("##........" + "#........."))).isEqualTo(MapValidator.Violation.SHAPE);
+        assertThat(MapValidator.check(map("#........." + ".#........"))).isEqualTo(MapValidator.Violation.TOUCHING);
+        assertThat(MapValidator.check(map("#####"))).isEqualTo(MapValidator.Violation.FLEET);
+    }
+
+    @Test
+    public void acceptsMillionsOfGeneratedMapsAndRejectsEverySingleCellMutation() {
+        SplittableRandom random = new SplittableRandom(42);
+        BoardGenerator generator = BoardGenerator.withRandom(random);
+
+        for (int i = 0; i < 1_000_000; i++) {
+            String generated = generator.generateMap();
+            assertThat(MapValidator.check(generated))
+                    .withFailMessage("generated map rejected:\n%s", generated)
+                    .isEqualTo(MapValidator.Violation.NONE);
+
+            if (i % 1000 == 0) {
+                char[] cells = generated.toCharArray();
+                for (int cell = 0; cell < cells.length; cell++) {
+                    char original = cells[cell];
+                    cells[cell] = original == BoardConfig.MAST ? BoardConfig.WATER : BoardConfig.MAST;
+                    assertThat(MapValidator.isValid(new String(cells)))
+                            .withFailMessage("map with cell %d flipped accepted:\n%s", cell, new String(cells))
+                            .isFalse();
+                    cells[cell] = original;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package kingazm.bot;
+
+import kingazm.board.BoardGenerator;
+import kingazm.engine.BoardState;
+import kingazm.engine.ShotResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.random.RandomGenerator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DensityTargetingTest {
+
+    @Test
+    public void sinksWholeFleetWithoutRepeatingShots() {
+        DensityTargeting targeting = new DensityTargeting(RandomGenerator.of("L64X128MixRandom"));
+        long totalShots = 0;
+        int games = 200;
+
+        for (int game = 0; game < games; game++) {
+            targeting.reset();
+            BoardState board = new BoardState(BoardGenerator.defaultInstance().generateMap());
+            boolean[] fired = new boolean[100];
+            int shots = 0;
+            ShotResult result = ShotResult.MISS;
+
+            while (result != ShotResult.LAST_SUNK) {
+                int cell = targeting.nextShot();
+                assertThat(fired[cell]).withFailMessage("cell %d fired twice", cell).isFalse();
+                fired[cell] = true;
+                result = board.fireAt(cell / 10, cell % 10);
+                targeting.onResult(cell, result);
+                shots++;
+            }
+            totalShots += shots;
+        }
+
+        assertThat((double) totalShots / games).isLessThan(75.0);
+    }
+
+    @Test
+    public void aDecisionTakesWellUnderAMillisecond() {
+        DensityTargeting targeting = new DensityTargeting(RandomGenerator.of("L64X128MixRandom"));
+        BoardGenerator generator = BoardGenerator.defaultInstance();
+        // the first games warm the JIT up and are not measured
+        playGames(targeting, generator, 500);
+        long start = System.nanoTime();
+        long decisions = playGames(targeting, generator, 500);
+        long perDecision = (System.nanoTime() - start) / decisions;
+
+        // maps, firing and feedback included, so the bound is loose on the decision itself
+        assertThat(perDecision).isLessThan(100_000L);
+    }
+
+    private static long playGames(DensityTargeting targeting, BoardGenerator generator, int games) {
+        long decisions = 0;
+        for (int game = 0; game < games; game++) {
+            targeting.reset();
+            BoardState board = new BoardState(generator.generateMap());
+            ShotResult result = ShotResult.MISS;
+            while (result != ShotResult.LAST_SUNK) {
+                int cell = targeting.nextShot();
+                result = board.fireAt(cell / 10, cell % 10);
+                targeting.onResult(cell, result);
+                decisions++;
+            }
+        }
+        return decisions;
+    }
+}
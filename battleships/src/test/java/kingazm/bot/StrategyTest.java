@@ -0,0 +1,44 @@
+package kingazm.bot;
+
+import kingazm.board.BoardGenerator;
+import kingazm.engine.BoardState;
+import kingazm.engine.ShotResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StrategyTest {
+
+    @Test
+    public void everyStrategyFinishesAGameWithoutRepeatingShots() {
+        BoardGenerator generator = BoardGenerator.withRandom(RandomGenerator.of("L64X128MixRandom"));
+        BoardState board = new BoardState(generator.generateMap());
+        List<Strategy> strategies = List.of(
+                new DensityTargeting(RandomGenerator.of("L64X128MixRandom")),
+                new HuntTargetStrategy(RandomGenerator.of("L64X128MixRandom")),
+                new RandomStrategy(RandomGenerator.of("L64X128MixRandom")));
+
+        for (Strategy strategy : strategies) {
+            for (int game = 0; game < 100; game++) {
+                strategy.reset();
+                board.reset(generator.generateMap());
+                boolean[] fired = new boolean[100];
+                ShotResult result = ShotResult.MISS;
+                int shots = 0;
+
+                while (result != ShotResult.LAST_SUNK) {
+                    int cell = strategy.nextShot();
+                    assertThat(fired[cell]).withFailMessage("%s fired at %d twice", strategy, cell).isFalse();
+                    fired[cell] = true;
+                    result = board.fireAt(cell / 10, cell % 10);
+                    strategy.onResult(cell, result);
+                    shots++;
+                }
+                assertThat(shots).isLessThanOrEqualTo(100);
+            }
+        }
+    }
+}
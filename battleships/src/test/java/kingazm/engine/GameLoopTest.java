@@ -0,0 +1,256 @@
+package kingazm.engine;
+
+import kingazm.board.BoardConfig;
+import kingazm.board.BoardGenerator;
+import kingazm.board.MapSource;
+import kingazm.replay.Replay;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GameLoopTest {
+
+    @Test
+    public void racingMovesOfTheSamePlayerAcceptExactlyOne() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            GameLoop game = new GameLoop(new Player("a", null), new Player("b", null));
+            int threads = 8;
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger accepted = new AtomicInteger();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String coord = (char) ('A' + t) + "1";
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (game.applyMove("a", coord).isAccepted()) {
+                        accepted.incrementAndGet();
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            assertThat(accepted.get()).isEqualTo(1);
+            assertThat(game.getMoveCount()).isEqualTo(1);
+            assertThat(game.getCurrentTurn()).isEqualTo("b");
+        }
+    }
+
+    @Test
+    public void readersNeverSeeABoardBehindTheMoveCounter() throws InterruptedException {
+        String map = BoardGenerator.defaultInstance().generateMap();
+        GameLoop game = new GameLoop(new Player("a", null), new Player("b", null), MapSource.fixed(map));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger torn = new AtomicInteger();
+
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                // the move counter is read first, so B's board must show at least the shots A had made by then
+                int moves = game.getMoveCount();
+                long shots = game.getMaskedOpponentView("a").chars()
+                        .filter(ch -> ch == BoardConfig.HIT || ch == BoardConfig.MISS).count();
+                if (shots < (moves + 1) / 2) {
+                    torn.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+
+        for (int cell = 0; cell < 100; cell++) {
+            String coord = (char) ('A' + cell % 10) + Integer.toString(cell / 10 + 1);
+            assertThat(game.applyMove("a", coord).isAccepted()).isTrue();
+            assertThat(game.applyMove("b", coord).isAccepted()).isTrue();
+        }
+        done.set(true);
+        reader.join();
+
+        assertThat(torn.get()).isZero();
+        assertThat(game.getMoveCount()).isEqualTo(200);
+        assertThat(game.toReplay().moveCount()).isEqualTo(200);
+        assertThat(game.replaceBoard("a", map)).isFalse();
+    }
+
+    @Test
+    public void everySwapMovesTheStateWordOn() {
+        BoardGenerator generator = BoardGenerator.defaultInstance();
+        String[] maps = {generator.generateMap(), generator.generateMap()};
+        // slot grids are rewritten in place, so only the state word tells a reader to retry
+        GameLoop slot = GameLoop.inSlot("s-1", new Player("a", null), new Player("b", null), MapSource.fixed(maps[0]), new SlotStore(1));
+        GameLoop heap = new GameLoop(new Player("a", null), new Player("b", null), MapSource.fixed(maps[0]));
+
+        for (GameLoop game : new GameLoop[] {slot, heap}) {
+            Set<Long> seen = new HashSet<>();
+            seen.add(game.version());
+            for (int swap = 0; swap < 100; swap++) {
+                assertThat(game.replaceBoard(swap % 3 == 0 ? "b" : "a", maps[swap & 1])).isTrue();
+                // a reader that started before any of these swaps must not validate
+                assertThat(seen.add(game.version())).isTrue();
+            }
+            assertThat(game.getMoveCount()).isZero();
+            assertThat(game.applyMove("a", "A1").isAccepted()).isTrue();
+            assertThat(seen.add(game.version())).isTrue();
+            assertThat(game.replaceBoard("a", maps[0])).isFalse();
+        }
+    }
+
+    @Test
+    public void closedSessionRejectsMovesAndRecyclesItsBoards() {
+        String map = BoardGenerator.defaultInstance().generateMap();
+        BoardPool pool = new BoardPool(4);
+        Player a = new Player("a", null);
+        Player b = new Player("b", null);
+        GameLoop game = new GameLoop("s-1", a, b, MapSource.fixed(map), pool);
+        BoardState boardB = b.getBoard();
+        assertThat(game.applyMove("a", "A1").isAccepted()).isTrue();
+
+        assertThat(game.close()).isTrue();
+        assertThat(game.close()).isFalse();
+        assertThat(game.applyMove("b", "A1")).isEqualTo(MoveOutcome.rejected("nieprawidlowa sesja"));
+        assertThat(game.getBoardFor("a")).isNull();
+        assertThat(game.toReplay().moveCount()).isEqualTo(1);
+        assertThat(pool.available()).isEqualTo(2);
+
+        GameLoop next = new GameLoop("s-2", new Player("c", null), new Player("d", null), MapSource.fixed(map), pool);
+        assertThat(pool.available()).isZero();
+        assertThat(next.getPlayerB().getBoard()).isSameAs(boardB);
+        assertThat(next.getBoardFor("d")).isEqualTo(new BoardState(map).fullView());
+    }
+
+    @Test
+    public void sessionIdsAreDistinct() {
+        assertThat(SessionIds.next()).isNotEqualTo(SessionIds.next());
+    }
+
+    @Test
+    public void slotSessionPlaysExactlyLikeAHeapSession() {
+        BoardGenerator generator = BoardGenerator.defaultInstance();
+        String mapA = generator.generateMap();
+        String mapB = generator.generateMap();
+        SlotStore store = new SlotStore(2);
+        GameLoop heap = new GameLoop(new Player("a", null), playerWithMap("b", mapB), MapSource.fixed(mapA));
+        GameLoop slot = GameLoop.inSlot("s-1", new Player("a", null), playerWithMap("b", mapB), MapSource.fixed(mapA), store);
+
+        MoveOutcome last = null;
+        for (int cell = 0; cell < BoardConfig.ROWS * BoardConfig.COLS; cell++) {
+            String coord = (char) ('A' + cell % BoardConfig.COLS) + Integer.toString(cell / BoardConfig.COLS + 1);
+            for (String player : new String[] {"a", "b"}) {
+                last = heap.applyMove(player, coord);
+                assertThat(slot.applyMove(player, coord)).isEqualTo(last);
+                assertThat(slot.getBoardFor(player)).isEqualTo(heap.getBoardFor(player));
+                assertThat(slot.getMaskedOpponentView(player)).isEqualTo(heap.getMaskedOpponentView(player));
+                if (last.result() == ShotResult.LAST_SUNK) {
+                    break;
+                }
+            }
+            if (last.result() == ShotResult.LAST_SUNK) {
+                break;
+            }
+        }
+
+        assertThat(last.result()).isEqualTo(ShotResult.LAST_SUNK);
+        assertThat(slot.getRevealedOpponentView("b")).isEqualTo(heap.getRevealedOpponentView("b"));
+        Replay expected = heap.toReplay();
+        Replay actual = slot.toReplay();
+        assertThat(actual.mapA()).isEqualTo(mapA);
+        assertThat(actual.mapB()).isEqualTo(mapB);
+        assertThat(actual.moveCount()).isEqualTo(expected.moveCount());
+        assertThat(Arrays.copyOf(actual.moves(), actual.moveCount()))
+                .isEqualTo(Arrays.copyOf(expected.moves(), expected.moveCount()));
+    }
+
+    @Test
+    public void reusedSlotReadsAsClosedToItsFormerSession() {
+        String map = BoardGenerator.defaultInstance().generateMap();
+        SlotStore store = new SlotStore(1);
+        GameLoop first = GameLoop.inSlot("s-1", new Player("a", null), new Player("b", null), MapSource.fixed(map), store);
+        assertThat(GameLoop.inSlot("s-2", new Player("c", null), new Player("d", null), MapSource.fixed(map), store)).isNull();
+        assertThat(first.applyMove("a", "A1").isAccepted()).isTrue();
+        assertThat(first.close()).isTrue();
+
+        GameLoop second = GameLoop.inSlot("s-2", new Player("c", null), new Player("d", null), MapSource.fixed(map), store);
+        assertThat(second).isNotNull();
+        assertThat(second.getMoveCount()).isZero();
+        assertThat(second.getMaskedOpponentView("c")).doesNotContain(String.valueOf(BoardConfig.MISS))
+                .doesNotContain(String.valueOf(BoardConfig.HIT));
+
+        assertThat(first.isClosed()).isTrue();
+        assertThat(first.getMoveCount()).isEqualTo(1);
+        assertThat(first.getBoardFor("a")).isNull();
+        assertThat(first.toReplay()).isNull();
+        assertThat(first.applyMove("b", "A1")).isEqualTo(MoveOutcome.rejected("nieprawidlowa sesja"));
+        assertThat(first.close()).isFalse();
+        assertThat(second.applyMove("c", "B2").isAccepted()).isTrue();
+    }
+
+    @Test
+    public void finishedGameFoldsIntoPlayerStats() {
+        String map = BoardGenerator.defaultInstance().generateMap();
+        Player playerA = new Player("a", null);
+        Player playerB = new Player("b", null);
+        GameLoop game = new GameLoop(playerA, playerB, MapSource.fixed(map));
+
+        int shotsA = 0;
+        for (int cell = 0; cell < BoardConfig.ROWS * BoardConfig.COLS; cell++) {
+            String coord = (char) ('A' + cell % BoardConfig.COLS) + Integer.toString(cell / BoardConfig.COLS + 1);
+            shotsA++;
+            if (game.applyMove("a", coord).result() == ShotResult.LAST_SUNK) {
+                break;
+            }
+            game.applyMove("b", "A1");
+        }
+
+        MatchLog log = game.getLog();
+        assertThat(log.shots()).isEqualTo(2 * shotsA - 1);
+        assertThat(game.toReplay().cellAt(2)).isEqualTo(1);
+        MatchState folded = log.state();
+        assertThat(folded.isOver()).isTrue();
+        assertThat(folded.endReason()).isEqualTo(MatchEvent.END_SUNK);
+        assertThat(folded.winner()).isZero();
+        assertThat(folded.view(1, BoardState.View.FULL)).isEqualTo(game.getBoardFor("b"));
+        assertThat(folded.view(0, BoardState.View.FULL)).isEqualTo(game.getBoardFor("a"));
+
+        StatsRegistry registry = new StatsRegistry();
+        registry.recordGame(game, "a");
+        // anonymous players leave no trace
+        assertThat(registry.size()).isZero();
+
+        playerA.setName("a");
+        playerB.setName("b");
+        registry.recordGame(game, "a");
+        PlayerStats a = registry.get("a");
+        PlayerStats b = registry.get("b");
+        assertThat(a).isEqualTo(new PlayerStats(1, 1, shotsA, 20, shotsA, a.thinkNanos()));
+        assertThat(b.wins()).isZero();
+        assertThat(b.shots()).isEqualTo(shotsA - 1);
+        assertThat(b.hits()).isEqualTo(map.charAt(0) == BoardConfig.MAST ? shotsA - 1 : 0);
+        assertThat(registry.all()).extracting(Map.Entry::getKey).containsExactly("a", "b");
+
+        registry.recordGame(game, "a");
+        assertThat(registry.get("a").shotsToWin()).isEqualTo(shotsA);
+        assertThat(registry.get("a").games()).isEqualTo(2);
+    }
+
+    private static Player playerWithMap(String id, String map) {
+        Player player = new Player(id, null);
+        player.setPreferredMap(map);
+        return player;
+    }
+}
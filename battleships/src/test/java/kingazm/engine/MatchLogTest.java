@@ -0,0 +1,167 @@
+package kingazm.engine;
+
+import kingazm.board.BoardConfig;
+import kingazm.board.BoardGenerator;
+import kingazm.board.MapSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MatchLogTest {
+
+    @Test
+    public void rebuildingFromAnySnapshotMatchesAFullFold() {
+        GameLoop game = randomGame(11);
+        MatchLog log = game.getLog();
+        assertThat(log.snapshots()).isGreaterThan(2);
+        int[] events = events(log);
+
+        MatchState fromStart = new MatchState();
+        MatchState rebuilt = new MatchState();
+        for (int at = 0; ; at = log.next(at)) {
+            fromStart.apply(events, 0, at);
+            log.rebuild(at, rebuilt);
+            assertSameState(rebuilt, fromStart);
+            if (at == log.size()) {
+                break;
+            }
+        }
+        assertSameState(fromStart, log.state());
+        assertThat(fromStart.view(0, BoardState.View.FULL)).isEqualTo(game.getBoardFor("a"));
+        assertThat(fromStart.view(1, BoardState.View.FULL)).isEqualTo(game.getBoardFor("b"));
+    }
+
+    @Test
+    public void logSurvivesAWriteAndReadButNotATruncation() throws IOException {
+        GameLoop game = randomGame(12);
+        game.close();
+        MatchLog log = game.getLog();
+        assertThat(log.state().isOver()).isTrue();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        log.writeTo(new DataOutputStream(bytes));
+        MatchLog read = MatchLog.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(events(read)).isEqualTo(events(log));
+        assertThat(read.shots()).isEqualTo(log.shots());
+        assertThat(read.snapshots()).isEqualTo(log.snapshots());
+        assertSameState(read.state(), log.state());
+
+        byte[] torn = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+        assertThatThrownBy(() -> MatchLog.readFrom(new DataInputStream(new ByteArrayInputStream(torn))))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void foldingAllocatesNothing() {
+        MatchLog log = randomGame(13).getLog();
+        int[] events = events(log);
+        MatchState state = new MatchState();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (int i = 0; i < 10_000; i++) {
+            state.apply(events, 0, events.length);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 10_000; i++) {
+            state.apply(events, 0, events.length);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // the measurement itself may allocate a little, a fold per iteration would not fit
+        assertThat(allocated).isLessThan(10_000);
+        assertThat(state.shots()).isEqualTo(log.shots());
+    }
+
+    @Test
+    public void slotSessionRebuildsTheLogItDoesNotKeep() {
+        BoardGenerator generator = BoardGenerator.defaultInstance();
+        String map = generator.generateMap();
+        GameLoop heap = new GameLoop(new Player("a", null), new Player("b", null), MapSource.fixed(map));
+        GameLoop slot = GameLoop.inSlot("s-1", new Player("a", null), new Player("b", null), MapSource.fixed(map), new SlotStore(1));
+        for (int cell = 0; cell < BoardConfig.ROWS * BoardConfig.COLS; cell++) {
+            String coord = (char) ('A' + cell % BoardConfig.COLS) + Integer.toString(cell / BoardConfig.COLS + 1);
+            assertThat(slot.applyMove("a", coord)).isEqualTo(heap.applyMove("a", coord));
+            if (heap.getLog().state().isOver()) {
+                break;
+            }
+            assertThat(slot.applyMove("b", "J10")).isEqualTo(heap.applyMove("b", "J10"));
+        }
+
+        MatchLog rebuilt = slot.getLog();
+        assertThat(events(rebuilt)).isEqualTo(events(heap.getLog()));
+        assertSameState(rebuilt.state(), heap.getLog().state());
+        assertThat(slot.close()).isTrue();
+        assertThat(slot.getLog()).isNull();
+    }
+
+    @Test
+    public void repeatedShotsStopGrowingTheLog() {
+        String map = BoardGenerator.defaultInstance().generateMap();
+        GameLoop game = new GameLoop(new Player("a", null), new Player("b", null), MapSource.fixed(map));
+        String water = null;
+        for (int cell = 0; water == null; cell++) {
+            if (map.charAt(cell) != BoardConfig.MAST) {
+                water = (char) ('A' + cell % BoardConfig.COLS) + Integer.toString(cell / BoardConfig.COLS + 1);
+            }
+        }
+        for (int move = 0; move < MatchLog.MAX_SHOTS + 100; move++) {
+            assertThat(game.applyMove(move % 2 == 0 ? "a" : "b", water).isAccepted()).isTrue();
+        }
+
+        MatchLog log = game.getLog();
+        assertThat(log.shots()).isEqualTo(MatchLog.MAX_SHOTS);
+        assertThat(log.state().shots()).isEqualTo(MatchLog.MAX_SHOTS);
+        assertThat(game.getMoveCount()).isEqualTo(MatchLog.MAX_SHOTS + 100);
+        assertThat(game.toReplay().moveCount()).isEqualTo(MatchLog.MAX_SHOTS);
+        assertThat(game.toReplay().truncated()).isTrue();
+    }
+
+    /**
+     * A game between two random shooters that repeat cells, long enough for several snapshots.
+     */
+    private static GameLoop randomGame(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String map = BoardGenerator.defaultInstance().generateMap();
+        GameLoop game = new GameLoop(new Player("a", null), new Player("b", null), MapSource.fixed(map));
+        String[] players = {"a", "b"};
+        for (int shot = 0; ; shot++) {
+            int cell = random.nextInt(BoardConfig.ROWS * BoardConfig.COLS);
+            String coord = (char) ('A' + cell % BoardConfig.COLS) + Integer.toString(cell / BoardConfig.COLS + 1);
+            if (game.applyMove(players[shot & 1], coord).result() == ShotResult.LAST_SUNK) {
+                return game;
+            }
+        }
+    }
+
+    private static int[] events(MatchLog log) {
+        int[] events = new int[log.size()];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = log.eventAt(i);
+        }
+        return events;
+    }
+
+    private static void assertSameState(MatchState actual, MatchState expected) {
+        assertThat(actual.position()).isEqualTo(expected.position());
+        assertThat(actual.shots()).isEqualTo(expected.shots());
+        assertThat(actual.sideToMove()).isEqualTo(expected.sideToMove());
+        assertThat(actual.isOver()).isEqualTo(expected.isOver());
+        assertThat(actual.winner()).isEqualTo(expected.winner());
+        assertThat(actual.endReason()).isEqualTo(expected.endReason());
+        for (int side = 0; side < 2; side++) {
+            assertThat(actual.afloat(side)).isEqualTo(expected.afloat(side));
+            assertThat(actual.view(side, BoardState.View.FULL)).isEqualTo(expected.view(side, BoardState.View.FULL));
+        }
+    }
+}
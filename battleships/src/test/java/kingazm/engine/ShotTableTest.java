@@ -0,0 +1,79 @@
+package kingazm.engine;
+
+import kingazm.board.BoardConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShotTableTest {
+    private static final int CELLS = BoardConfig.ROWS * BoardConfig.COLS;
+
+    @Test
+    public void everyEntryFollowsTheRules() {
+        for (int state = 0; state < ShotTable.STATES; state++) {
+            for (int event = 0; event < ShotTable.EVENTS; event++) {
+                boolean mast = (state & 1) != 0;
+                boolean shotBefore = (state & 2) != 0;
+                ShotResult expected = !mast ? ShotResult.MISS
+                        : !shotBefore && event == ShotTable.SHOT_LAST ? ShotResult.LAST_SUNK
+                        : ShotResult.HIT;
+
+                int entry = ShotTable.lookup(state, event);
+                assertThat(ShotTable.nextState(entry)).as("state %d, event %d", state, event)
+                        .isEqualTo(mast ? ShotTable.HIT : ShotTable.MISS);
+                assertThat(ShotTable.result(entry)).as("state %d, event %d", state, event).isEqualTo(expected);
+                assertThat(ShotTable.resultCode(entry)).isEqualTo(expected.code());
+            }
+        }
+    }
+
+    @Test
+    public void symbolsRoundTrip() {
+        for (int state = 0; state < ShotTable.STATES; state++) {
+            assertThat(ShotTable.stateOf(ShotTable.symbol(state))).isEqualTo(state);
+        }
+        assertThat(ShotTable.stateOf(BoardConfig.UNKNOWN)).isEqualTo(ShotTable.WATER);
+        for (ShotResult result : ShotResult.values()) {
+            assertThat(ShotResult.ofCode(result.code())).isSameAs(result);
+        }
+    }
+
+    /**
+     * Cell 0 in every state, with one or two masts left afloat, fired at on a heap board and
+     * in a slot: both land on the table's entry and leave the same grid.
+     */
+    @Test
+    public void boardStateAndSlotStoreResolveShotsThroughTheTable() {
+        SlotStore store = new SlotStore(1);
+        for (int state = 0; state < ShotTable.STATES; state++) {
+            for (int event = 0; event < ShotTable.EVENTS; event++) {
+                int afloat = event == ShotTable.SHOT_LAST ? 1 : 2;
+                int extra = afloat - (state == ShotTable.MAST ? 1 : 0);
+                char[] map = new char[CELLS];
+                Arrays.fill(map, BoardConfig.WATER);
+                for (int i = 0; i < extra; i++) {
+                    map[CELLS - 1 - i] = BoardConfig.MAST;
+                }
+
+                map[0] = ShotTable.symbol(state);
+                BoardState board = new BoardState(new String(map));
+
+                map[0] = ShotTable.symbol(state & ShotTable.MAST);
+                int handle = store.allocate();
+                store.setMap(handle, 0, new String(map));
+                if ((state & 2) != 0) {
+                    store.fireAt(handle, 0, 0);
+                }
+
+                ShotResult expected = ShotTable.result(ShotTable.lookup(state, event));
+                assertThat(board.fireAt(0, 0)).as("state %d, event %d", state, event).isEqualTo(expected);
+                assertThat(store.fireAt(handle, 0, 0)).as("state %d, event %d", state, event).isEqualTo(expected);
+                assertThat(BoardState.view(store.cells(handle, 0), BoardState.View.FULL)).isEqualTo(board.fullView());
+                assertThat(board.allSunk()).isEqualTo(expected == ShotResult.LAST_SUNK);
+                store.free(handle);
+            }
+        }
+    }
+}
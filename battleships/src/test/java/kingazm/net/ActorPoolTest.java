@@ -0,0 +1,100 @@
+package kingazm.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ActorPoolTest {
+
+    @Test
+    public void mailboxKeepsEachProducersOrderAndRejectsWhenFull() throws InterruptedException {
+        Mailbox<int[]> mailbox = new Mailbox<>(1024);
+        int producers = 4;
+        int perProducer = 256;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    assertThat(mailbox.offer(new int[] {producer, i})).isTrue();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(mailbox.offer(new int[] {-1, -1})).isFalse();
+
+        int[] next = new int[producers];
+        int[] item;
+        int count = 0;
+        while ((item = mailbox.poll()) != null) {
+            assertThat(item[1]).isEqualTo(next[item[0]]++);
+            count++;
+        }
+        assertThat(count).isEqualTo(producers * perProducer);
+        assertThat(mailbox.isEmpty()).isTrue();
+        assertThat(mailbox.offer(new int[] {0, 0})).isTrue();
+    }
+
+    @Test
+    public void commandsOfOneSessionNeverOverlap() throws InterruptedException {
+        int sessions = 16;
+        int producers = 4;
+        int perProducer = 2_000;
+        try (ActorPool pool = new ActorPool(4, 256)) {
+            List<SessionActor> actors = new ArrayList<>();
+            List<AtomicInteger> inside = new ArrayList<>();
+            int[] executed = new int[sessions];
+            AtomicInteger overlaps = new AtomicInteger();
+            for (int s = 0; s < sessions; s++) {
+                actors.add(pool.actorFor("session-" + s));
+                inside.add(new AtomicInteger());
+            }
+
+            CountDownLatch done = new CountDownLatch(sessions * producers * perProducer);
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        for (int s = 0; s < sessions; s++) {
+                            int session = s;
+                            Runnable command = () -> {
+                                if (inside.get(session).incrementAndGet() != 1) {
+                                    overlaps.incrementAndGet();
+                                }
+                                executed[session]++;
+                                inside.get(session).decrementAndGet();
+                                done.countDown();
+                            };
+                            while (!actors.get(session).tell(command)) {
+                                Thread.onSpinWait();
+                            }
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+            assertThat(overlaps.get()).isZero();
+            for (int s = 0; s < sessions; s++) {
+                // plain increments only add up if the actor ran its commands one at a time
+                assertThat(executed[s]).isEqualTo(producers * perProducer);
+            }
+        }
+    }
+}
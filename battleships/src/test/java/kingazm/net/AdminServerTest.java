@@ -0,0 +1,84 @@
+package kingazm.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdminServerTest {
+
+    @Test
+    public void answersEveryCommandWithOkOrAnError() throws Exception {
+        int port = freePort();
+        int adminPort = freePort();
+        Server server = new Server(NodeConfig.parse("-port", Integer.toString(port), "-admin-port", Integer.toString(adminPort)));
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException ignored) {}
+        });
+        serverThread.start();
+
+        try (RawClient a = RawClient.connect(port);
+             RawClient b = RawClient.connect(port);
+             RawClient admin = RawClient.connect(adminPort)) {
+            String[] start = a.await("start;").split(";");
+            String sessionId = start[1];
+            String playerA = start[2];
+            b.await("start;");
+
+            assertThat(ask(admin, "help")).singleElement().asString().contains("sessions", "kick <clientId>", "quit");
+            assertThat(ask(admin, "sessions")).hasSize(2)
+                    .first().isEqualTo("sessions;1");
+            assertThat(ask(admin, "sessions").get(1)).startsWith(sessionId + ";").contains(playerA, "ruchy=0");
+            assertThat(ask(admin, "queue")).containsExactly("waiting;0;routed;0");
+
+            List<String> dump = ask(admin, "dump " + sessionId);
+            // a header and a board of a header row and ten rows for each player
+            assertThat(dump).hasSize(2 * 12).contains("plansza;" + playerA);
+            assertThat(ask(admin, "dump no-such-session")).containsExactly("error;no such session");
+            assertThat(ask(admin, "dump")).containsExactly("error;usage: dump <sessionId>");
+
+            assertThat(ask(admin, "frobnicate")).containsExactly("error;unknown command: frobnicate");
+            assertThat(ask(admin, "top x")).singleElement().asString().startsWith("error;");
+
+            assertThat(ask(admin, "kick " + playerA)).isEmpty();
+            b.await("info;przeciwnik rozłączył się");
+            assertThat(ask(admin, "kick no-such-client")).containsExactly("error;no such client");
+        } finally {
+            server.stop();
+            serverThread.join(5_000);
+        }
+    }
+
+    /**
+     * Sends a command and collects its answer up to the closing line.
+     * @return the lines before {@code ok}, or only the {@code error;} line
+     */
+    private static List<String> ask(RawClient admin, String command) throws IOException {
+        admin.out.println(command);
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = admin.in.readLine()) != null) {
+            if ("ok".equals(line)) {
+                return lines;
+            }
+            if (line.startsWith("error;")) {
+                assertThat(lines).isEmpty();
+                return List.of(line);
+            }
+            lines.add(line);
+        }
+        throw new IOException("admin connection closed during " + command);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+}
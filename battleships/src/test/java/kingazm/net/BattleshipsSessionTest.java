@@ -0,0 +1,188 @@
+package kingazm.net;
+
+import kingazm.engine.ShotResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.SSLContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BattleshipsSessionTest {
+
+    @Test
+    public void programmaticPlayersFinishAGameOnOneThread() throws Exception {
+        int port = freePort();
+        // default config: the players answer every turn at once, above the per-connection
+        // line rate, and are paced rather than ignored
+        Server server = new Server(port);
+        playGame(server, port, null);
+    }
+
+    @Test
+    public void programmaticPlayersFinishAGameOverTls(@TempDir Path dir) throws Exception {
+        char[] password = "battleships".toCharArray();
+        Path keyStore = Tls.selfSignedKeyStore(dir.resolve("server.p12"), new String(password));
+        int port = freePort();
+        Server server = new Server(port);
+        server.useTls(Tls.serverContext(keyStore, password));
+        playGame(server, port, Tls.clientContext(keyStore, password));
+    }
+
+    private static void playGame(Server server, int port, SSLContext tls) throws Exception {
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException ignored) {}
+        });
+        serverThread.start();
+
+        SweepingPlayer first = new SweepingPlayer();
+        SweepingPlayer second = new SweepingPlayer();
+        try (ClientEventLoop loop = new ClientEventLoop()) {
+            connectWithRetry(loop, first.getSession(), port, tls);
+            connectWithRetry(loop, second.getSession(), port, tls);
+
+            Thread driver = new Thread(() -> {
+                try {
+                    loop.run();
+                } catch (IOException ignored) {}
+            });
+            driver.start();
+            driver.join(30_000);
+            assertThat(driver.isAlive()).isFalse();
+        } finally {
+            server.stop();
+            serverThread.join(5_000);
+        }
+
+        assertThat(first.hasWon() ^ second.hasWon()).isTrue();
+        SweepingPlayer winner = first.hasWon() ? first : second;
+        assertThat(winner.getResults()).last().isEqualTo(ShotResult.LAST_SUNK);
+        assertThat(winner.getResults()).contains(ShotResult.HIT);
+        assertThat(first.getFailures() + second.getFailures()).isZero();
+        assertThat(first.getSession().isGameOver() && second.getSession().isGameOver()).isTrue();
+    }
+
+    @Test
+    public void aLonePlayerPlaysABotToTheEnd() throws Exception {
+        playBot("-bot-timeout", "200", "-bot-delay", "0");
+    }
+
+    @Test
+    public void aLonePlayerPlaysABotToTheEndOnSessionActors() throws Exception {
+        playBot("-bot-timeout", "200", "-bot-delay", "0", "-threads", "actor:1");
+    }
+
+    private static void playBot(String... options) throws Exception {
+        int port = freePort();
+        List<String> args = new ArrayList<>(List.of("-port", Integer.toString(port)));
+        args.addAll(List.of(options));
+        Server server = new Server(NodeConfig.parse(args.toArray(new String[0])));
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException ignored) {}
+        });
+        serverThread.start();
+
+        SweepingPlayer human = new SweepingPlayer();
+        try (ClientEventLoop loop = new ClientEventLoop()) {
+            connectWithRetry(loop, human.getSession(), port, null);
+            Thread driver = new Thread(() -> {
+                try {
+                    loop.run();
+                } catch (IOException ignored) {}
+            });
+            driver.start();
+            driver.join(30_000);
+            assertThat(driver.isAlive()).isFalse();
+        } finally {
+            server.stop();
+            serverThread.join(5_000);
+        }
+
+        assertThat(human.getSession().isGameOver()).isTrue();
+        assertThat(human.getResults()).isNotEmpty();
+        assertThat(human.getFailures()).isZero();
+        if (human.hasWon()) {
+            assertThat(human.getResults()).last().isEqualTo(ShotResult.LAST_SUNK);
+        }
+    }
+
+    @Test
+    public void fireOutsideOfAGameFails() {
+        BattleshipsSession session = new BattleshipsSession(new BattleshipsSession.Listener() {});
+        CompletableFuture<ShotResult> result = session.fire("A1");
+        assertThat(result).isCompletedExceptionally();
+    }
+
+    @Test
+    public void remembersCellsFiredAtUnlessTheServerRejectsTheShot() {
+        BattleshipsSession session = new BattleshipsSession(new BattleshipsSession.Listener() {});
+        List<String> sent = new ArrayList<>();
+        session.attach(sent::add, () -> {});
+        session.handleServerLine("start;s-1;p-1");
+
+        session.handleServerLine("tura;p-1");
+        CompletableFuture<ShotResult> first = session.fire("d7");
+        session.handleServerLine("pudło;D7");
+        assertThat(first).isCompletedWithValue(ShotResult.MISS);
+        assertThat(session.hasShotAt(" D7")).isTrue();
+
+        session.handleServerLine("tura;p-1");
+        assertThat(session.fire("D7")).isCompletedExceptionally();
+        CompletableFuture<ShotResult> rejected = session.fire("J10");
+        session.handleServerLine("nie twoja tura");
+        assertThat(rejected).isCompletedExceptionally();
+        assertThat(session.hasShotAt("J10")).isFalse();
+        assertThat(sent).containsExactly("D7", "J10");
+    }
+
+    @Test
+    public void answersServerPingsWithoutTellingTheListener() {
+        List<String> texts = new ArrayList<>();
+        BattleshipsSession session = new BattleshipsSession(new BattleshipsSession.Listener() {
+            @Override
+            public void onText(String line) {
+                texts.add(line);
+            }
+        });
+        List<String> sent = new ArrayList<>();
+        session.attach(sent::add, () -> {});
+
+        session.handleServerLine("ping");
+        session.handleServerLine("pong");
+
+        assertThat(sent).containsExactly("pong");
+        assertThat(texts).isEmpty();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+
+    private static void connectWithRetry(ClientEventLoop loop, BattleshipsSession session, int port, SSLContext tls) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                loop.connect(session, new InetSocketAddress("localhost", port), tls);
+                return;
+            } catch (IOException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+}
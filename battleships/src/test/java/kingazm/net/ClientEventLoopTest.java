@@ -0,0 +1,72 @@
+package kingazm.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientEventLoopTest {
+
+    @Test
+    public void scriptedSessionsPlayAFullGameOnOneThread() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Server server = new Server(port);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException ignored) {}
+        });
+        serverThread.start();
+
+        BattleshipsSession first = new BattleshipsSession(new BattleshipsSession.Listener() {});
+        BattleshipsSession second = new BattleshipsSession(new BattleshipsSession.Listener() {});
+        try (ClientEventLoop loop = new ClientEventLoop()) {
+            connectWithRetry(loop, first, port);
+            connectWithRetry(loop, second, port);
+            assertThat(loop.size()).isEqualTo(2);
+
+            Thread driver = new Thread(() -> {
+                try {
+                    loop.run();
+                } catch (IOException ignored) {}
+            });
+            driver.start();
+            driver.join(30_000);
+
+            assertThat(driver.isAlive()).isFalse();
+            assertThat(first.isGameOver()).isTrue();
+            assertThat(second.isGameOver()).isTrue();
+        } finally {
+            server.stop();
+            serverThread.join(5_000);
+        }
+    }
+
+    private static void connectWithRetry(ClientEventLoop loop, BattleshipsSession session, int port) throws Exception {
+        List<String> cells = new ArrayList<>();
+        for (int row = 1; row <= 10; row++) {
+            for (char col = 'A'; col <= 'J'; col++) {
+                cells.add(col + Integer.toString(row));
+            }
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                loop.connect(session, new InetSocketAddress("localhost", port), ClientEventLoop.scripted(cells.iterator()));
+                return;
+            } catch (IOException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package kingazm.net;
+
+import kingazm.board.BoardGenerator;
+import kingazm.engine.ConsoleView;
+import kingazm.engine.GameLoop;
+import kingazm.engine.Player;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientRendererTest {
+    private static final Pattern CURSOR_MOVE = Pattern.compile("\033\\[\\d+;\\d+H");
+
+    @Test
+    public void redrawsOnlyCellsThatChanged() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ClientRenderer renderer = new ClientRenderer(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        GameLoop game = new GameLoop(new Player("a", null), new Player("b", null));
+        ConsoleView view = new ConsoleView(game);
+
+        feed(renderer, view.renderFor("a"));
+        assertThat(drain(bytes)).contains("\033[2J").contains("Plansza przeciwnika");
+
+        feed(renderer, view.renderFor("a"));
+        assertThat(CURSOR_MOVE.matcher(drain(bytes)).results().count()).isZero();
+
+        game.applyMove("a", "C5");
+        feed(renderer, view.renderFor("a"));
+        String update = drain(bytes);
+        // one cell on the opponent's board: column C is the 3rd cell, row 5 is frame row 7
+        assertThat(CURSOR_MOVE.matcher(update).results().count()).isEqualTo(1);
+        assertThat(update).contains("\033[7;34H");
+
+        renderer.setStatus("Twoja tura");
+        assertThat(drain(bytes)).contains("Twoja tura");
+    }
+
+    @Test
+    public void ignoresLinesThatAreNotBoardRows() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ClientRenderer renderer = new ClientRenderer(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+
+        renderer.onUiLine("     Twoja plansza        Plansza przeciwnika");
+        renderer.onUiLine("   A B C D E F G H I J    A B C D E F G H I J");
+        renderer.onUiLine("");
+        assertThat(bytes.size()).isZero();
+    }
+
+    private static void feed(ClientRenderer renderer, String frame) {
+        for (String line : frame.split("\\n")) {
+            renderer.onUiLine(line);
+        }
+    }
+
+    private static String drain(ByteArrayOutputStream bytes) {
+        String text = bytes.toString(StandardCharsets.UTF_8);
+        bytes.reset();
+        return text;
+    }
+}
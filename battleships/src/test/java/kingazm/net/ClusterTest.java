@@ -0,0 +1,225 @@
+package kingazm.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two backend {@link Server} processes behind an in-process {@link Router}.
+ */
+public class ClusterTest {
+
+    private final List<Process> backends = new ArrayList<>();
+    private final List<Socket> clients = new ArrayList<>();
+    private Router router;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (Socket client : clients) {
+            client.close();
+        }
+        if (router != null) {
+            router.stop();
+        }
+        for (Process backend : backends) {
+            backend.destroyForcibly();
+        }
+    }
+
+    @Test
+    public void pairsPlayersOnTheRingOwnerAndFailsOver() throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        int routerPort = freePort();
+        backends.add(startBackend(portA));
+        backends.add(startBackend(portB));
+        awaitLoad(portA);
+        awaitLoad(portB);
+
+        router = new Router(routerPort);
+        router.addBackend("localhost", portA);
+        router.addBackend("localhost", portB);
+        Thread routerThread = new Thread(() -> {
+            try {
+                router.start();
+            } catch (IOException ignored) {}
+        });
+        routerThread.setDaemon(true);
+        routerThread.start();
+
+        for (int i = 0; i < 6; i++) {
+            String[] sessions = match(routerPort);
+            assertThat(sessions[0]).isEqualTo(sessions[1]);
+        }
+        assertThat(sessions(portA) + sessions(portB)).isEqualTo(6);
+
+        backends.get(0).destroyForcibly().waitFor();
+        awaitCondition(() -> router.healthyBackends() == 1);
+
+        int before = sessions(portB);
+        String[] sessions = match(routerPort);
+        assertThat(sessions[0]).isEqualTo(sessions[1]);
+        assertThat(sessions(portB)).isEqualTo(before + 1);
+
+        // a client that gave up while waiting is not paired: the next one waits in its place
+        BufferedReader gone = connect(routerPort);
+        assertThat(gone.readLine()).startsWith("info;");
+        clients.get(clients.size() - 1).close();
+        sessions = match(routerPort);
+        assertThat(sessions[0]).isEqualTo(sessions[1]);
+        assertThat(sessions(portB)).isEqualTo(before + 2);
+    }
+
+    @Test
+    public void backendForgetsARoutedPlayerWhosePeerNeverCame() throws Exception {
+        int port = freePort();
+        Server backend = new Server(NodeConfig.parse("-port", Integer.toString(port), "-backend", "-bot-timeout", "0"));
+        Thread serverThread = new Thread(() -> {
+            try {
+                backend.start();
+            } catch (IOException ignored) {}
+        });
+        serverThread.start();
+        try {
+            awaitLoad(port);
+            try (Socket routed = new Socket("localhost", port)) {
+                new PrintWriter(routed.getOutputStream(), true).println(Server.CMD_SESSION + "lonely-1");
+                awaitCondition(() -> backend.routedWaitingCount() == 1);
+            }
+            awaitCondition(() -> backend.routedWaitingCount() == 0);
+        } finally {
+            backend.stop();
+            serverThread.join(5_000);
+        }
+    }
+
+    @Test
+    public void ringOnlyMovesKeysOfRemovedNode() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(128);
+        for (String node : List.of("a", "b", "c", "d")) {
+            ring.add(node);
+        }
+        int[] owned = new int[4];
+        List<String> before = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String owner = ring.nodeFor("session-" + i);
+            before.add(owner);
+            owned[owner.charAt(0) - 'a']++;
+        }
+        for (int count : owned) {
+            assertThat(count).isBetween(1500, 3500);
+        }
+
+        ring.remove("c");
+        for (int i = 0; i < 10_000; i++) {
+            String owner = ring.nodeFor("session-" + i);
+            if (!"c".equals(before.get(i))) {
+                assertThat(owner).isEqualTo(before.get(i));
+            } else {
+                assertThat(owner).isNotEqualTo("c");
+            }
+        }
+        assertThat(ring.candidatesFor("x")).hasSize(3);
+    }
+
+    private Process startBackend(int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "kingazm.net.Server", "-port", Integer.toString(port), "-backend", "-bot-timeout", "0")
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    /**
+     * Connects two players through the router and returns the session id each of them was told.
+     */
+    private String[] match(int port) throws IOException {
+        BufferedReader first = connect(port);
+        assertThat(first.readLine()).startsWith("info;");
+        BufferedReader second = connect(port);
+        return new String[] {readStart(first), readStart(second)};
+    }
+
+    private BufferedReader connect(int port) throws IOException {
+        Socket socket = null;
+        for (int attempt = 0; socket == null; attempt++) {
+            try {
+                socket = new Socket("localhost", port);
+            } catch (IOException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                sleep(100);
+            }
+        }
+        clients.add(socket);
+        socket.setSoTimeout(10_000);
+        return new BufferedReader(new InputStreamReader(socket.getInputStream()));
+    }
+
+    private String readStart(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("start;")) {
+                return line.split(";")[1];
+            }
+        }
+        throw new IOException("connection closed before start");
+    }
+
+    private int sessions(int port) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            new PrintWriter(socket.getOutputStream(), true).println(Server.CMD_LOAD);
+            String report = new BufferedReader(new InputStreamReader(socket.getInputStream())).readLine();
+            return Integer.parseInt(report.split(";")[1]);
+        }
+    }
+
+    private void awaitLoad(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                sessions(port);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("backend on port " + port + " did not start");
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) {
+        for (int attempt = 0; !condition.getAsBoolean(); attempt++) {
+            if (attempt == 100) {
+                throw new IllegalStateException("condition not met within 10 s");
+            }
+            sleep(100);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
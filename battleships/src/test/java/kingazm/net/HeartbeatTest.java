@@ -0,0 +1,152 @@
+package kingazm.net;
+
+import kingazm.engine.Player;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HeartbeatTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void pingsQuietPeersOnceAnIntervalAndTearsDownSilentOnes() {
+        Heartbeat heartbeat = new Heartbeat(1_000, 3_000, 4, Runnable::run);
+        StringWriter written = new StringWriter();
+        AtomicInteger dead = new AtomicInteger();
+        int slot = heartbeat.register(new Player("a", new PrintWriter(written, true)), dead::incrementAndGet);
+        long start = System.nanoTime();
+
+        heartbeat.sweep(start + SECOND / 2);
+        assertThat(written.toString()).isEmpty();
+        heartbeat.sweep(start + SECOND + 1);
+        heartbeat.sweep(start + SECOND + 2);
+        assertThat(written.toString().lines()).containsExactly(Heartbeat.PING);
+
+        heartbeat.sweep(start + 3 * SECOND + 1);
+        heartbeat.sweep(start + 4 * SECOND);
+        assertThat(dead.get()).isEqualTo(1);
+
+        heartbeat.unregister(slot);
+        assertThat(heartbeat.register(new Player("b", null), () -> {})).isEqualTo(slot);
+    }
+
+    @Test
+    public void aPeerThatStopsReadingDoesNotStallTheSweep() throws Exception {
+        Heartbeat heartbeat = new Heartbeat(1_000, 3_000, 4);
+        CountDownLatch closed = new CountDownLatch(1);
+        // a full send buffer: the write returns once the connection is closed
+        Writer full = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+                try {
+                    closed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+        StringWriter written = new StringWriter();
+        heartbeat.register(new Player("stuck", new PrintWriter(full, true)), closed::countDown);
+        heartbeat.register(new Player("idle", new PrintWriter(written, true)), () -> {});
+        long start = System.nanoTime();
+
+        Thread sweeper = new Thread(() -> {
+            heartbeat.sweep(start + SECOND + 1);
+            awaitLines(written, 1);
+            heartbeat.sweep(start + 2 * SECOND + 2);
+            awaitLines(written, 2);
+            heartbeat.sweep(start + 3 * SECOND + 1);
+        });
+        sweeper.start();
+        sweeper.join(10_000);
+        assertThat(sweeper.isAlive()).isFalse();
+        assertThat(written.toString().lines()).containsExactly(Heartbeat.PING, Heartbeat.PING);
+        assertThat(closed.getCount()).isZero();
+        heartbeat.close();
+    }
+
+    @Test
+    public void aPingThePingerHasNoRoomForIsTriedAgainOnTheNextSweep() {
+        AtomicInteger offered = new AtomicInteger();
+        Heartbeat heartbeat = new Heartbeat(1_000, 3_000, 4, task -> {
+            if (offered.incrementAndGet() == 1) {
+                throw new RejectedExecutionException("queue full");
+            }
+            task.run();
+        });
+        StringWriter written = new StringWriter();
+        heartbeat.register(new Player("a", new PrintWriter(written, true)), () -> {});
+        long start = System.nanoTime();
+
+        heartbeat.sweep(start + SECOND + 1);
+        assertThat(written.toString()).isEmpty();
+        heartbeat.sweep(start + SECOND + 2);
+        assertThat(written.toString().lines()).containsExactly(Heartbeat.PING);
+    }
+
+    @Test
+    public void touchedPeersStayAlive() {
+        Heartbeat heartbeat = new Heartbeat(1_000, 3_000, 1);
+        AtomicInteger dead = new AtomicInteger();
+        int slot = heartbeat.register(new Player("a", null), dead::incrementAndGet);
+        assertThat(heartbeat.register(new Player("b", null), () -> {})).isEqualTo(-1);
+
+        heartbeat.touch(slot);
+        heartbeat.sweep(System.nanoTime() + 2 * SECOND);
+        assertThat(dead.get()).isZero();
+    }
+
+    @Test
+    public void aLineThatOnlyStartsWithPingIsAnsweredLikeAnyOther() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Server server = new Server(port);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException ignored) {}
+        });
+        serverThread.start();
+        try (RawClient a = RawClient.connect(port); RawClient b = RawClient.connect(port)) {
+            a.await("status;");
+            b.await("status;");
+            // whoever holds the turn hears about the coordinates, the other one about the turn
+            a.out.println("pingfoo");
+            b.out.println("pingfoo");
+            assertThat(a.await("Nie")).isNotEmpty();
+            assertThat(b.await("Nie")).isNotEmpty();
+        } finally {
+            server.stop();
+            serverThread.join(5_000);
+        }
+    }
+
+    private static void awaitLines(StringWriter written, int lines) {
+        for (int attempt = 0; written.toString().lines().count() < lines && attempt < 100; attempt++) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package kingazm.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LineReaderTest {
+
+    @Test
+    public void splitsUtf8LinesAcrossReadsLikeBufferedReader() throws IOException {
+        byte[] bytes = "pudło;A1\r\nB2\n\nlast".getBytes(StandardCharsets.UTF_8);
+        // one byte per read, so multi-byte characters and CRLF are split between reads
+        InputStream trickle = new InputStream() {
+            private int next;
+
+            @Override
+            public int read() {
+                return next < bytes.length ? bytes[next++] & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                int c = read();
+                if (c < 0) {
+                    return -1;
+                }
+                b[off] = (byte) c;
+                return 1;
+            }
+        };
+        LineReader reader = new LineReader(trickle, 16);
+
+        assertThat(reader.readLine()).isEqualTo("pudło;A1");
+        assertThat(reader.readLine()).isEqualTo("B2");
+        assertThat(reader.readLine()).isEmpty();
+        assertThat(reader.readLine()).isEqualTo("last");
+        assertThat(reader.readLine()).isNull();
+    }
+
+    @Test
+    public void stopsAtTheLimitWithoutReadingTheRestOfTheLine() throws IOException {
+        int[] consumed = new int[1];
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                consumed[0]++;
+                return 'x';
+            }
+        };
+        LineReader reader = new LineReader(new ByteArrayInputStream("A1\n".getBytes(StandardCharsets.UTF_8)), 2);
+        assertThat(reader.readLine()).isEqualTo("A1");
+
+        LineReader flooded = new LineReader(endless, 8);
+        assertThatThrownBy(flooded::readLine).isInstanceOf(LineReader.LineTooLongException.class);
+        assertThat(consumed[0]).isLessThanOrEqualTo(4096);
+    }
+}
@@ -0,0 +1,45 @@
+package kingazm.net;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NodeConfigTest {
+
+    @Test
+    public void commandLineWinsOverTheConfigFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("node.properties");
+        Files.writeString(file, "port=4000\nthreads=actor:3\nbackend=true\nheartbeat=5\n", StandardCharsets.UTF_8);
+
+        NodeConfig config = NodeConfig.parse("-mode", "server", "-config", file.toString(), "-port", "5000", "-board-pool", "8");
+
+        assertThat(config.mode()).isEqualTo("server");
+        assertThat(config.port()).isEqualTo(5000);
+        assertThat(config.actorWorkers()).isEqualTo(3);
+        assertThat(config.backend()).isTrue();
+        assertThat(config.heartbeatIntervalMs()).isEqualTo(5_000);
+        assertThat(config.boardPoolSize()).isEqualTo(8);
+    }
+
+    @Test
+    public void invalidValuesKeepTheDefaults() {
+        NodeConfig defaults = NodeConfig.parse();
+        NodeConfig config = NodeConfig.parse("-port", "x", "-threads", "fibers", "-mailbox", "0", "-max-line", "1", "-ansi",
+                "-backends", "a:1,b:2");
+
+        assertThat(config.port()).isEqualTo(defaults.port());
+        assertThat(config.actorWorkers()).isEqualTo(defaults.actorWorkers());
+        assertThat(config.mailboxCapacity()).isEqualTo(defaults.mailboxCapacity());
+        // a map must still fit on one line
+        assertThat(config.maxLineLength()).isEqualTo(Server.CMD_MAP.length() + 100);
+        assertThat(config.ansi()).isTrue();
+        assertThat(config.backends()).isEqualTo(List.of("a:1", "b:2"));
+    }
+}
@@ -0,0 +1,58 @@
+package kingazm.net;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A player or admin speaking a line protocol over a plain socket.
+ */
+final class RawClient implements AutoCloseable {
+    private final Socket socket;
+    final BufferedReader in;
+    final PrintWriter out;
+
+    RawClient(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setSoTimeout(10_000);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Connects to a local port, retrying while the server is still starting.
+     */
+    static RawClient connect(int port) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new RawClient(new Socket("localhost", port));
+            } catch (IOException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    /**
+     * Reads until a line starting with {@code prefix}; fails on end of stream or timeout.
+     */
+    String await(String prefix) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith(prefix)) {
+                return line;
+            }
+        }
+        throw new IOException("connection closed before " + prefix);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,91 @@
+package kingazm.net;
+
+import kingazm.replay.Replay;
+import kingazm.replay.ReplayReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServerDrainTest {
+
+    @Test
+    public void drainRefusesNewPlayersEndsLeftGamesAndSnapshotsTheRestAtTheDeadline(@TempDir Path dir) throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Server server = new Server(NodeConfig.parse("-port", Integer.toString(port), "-snapshot-dir", dir.toString()));
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException ignored) {}
+        });
+        serverThread.start();
+
+        try (RawClient a = RawClient.connect(port); RawClient b = RawClient.connect(port)) {
+            a.await("start;");
+            b.await("start;");
+            try (RawClient c = RawClient.connect(port); RawClient d = RawClient.connect(port)) {
+                c.await("start;");
+                d.await("start;");
+                assertThat(server.activeSessions()).hasSize(2);
+
+                List<String> progress = new ArrayList<>();
+                CompletableFuture<Boolean> drained = CompletableFuture.supplyAsync(() -> server.drain(1_500, progress::add));
+                a.await("info;serwer zostanie wyłączony");
+                c.await("info;serwer zostanie wyłączony");
+                assertThat(server.isDraining()).isTrue();
+                assertThat(isTurnedAway(port)).isTrue();
+
+                // a player leaving a running game still ends it for the opponent
+                a.close();
+                b.await("info;przeciwnik rozłączył się");
+
+                // the other game is still running at the deadline: snapshotted and closed
+                assertThat(drained.get()).isFalse();
+                c.await("info;gra przerwana");
+                d.await("info;gra przerwana");
+                assertThat(server.activeSessions()).isEmpty();
+                assertThat(progress).last().asString().startsWith("drain complete");
+            }
+        } finally {
+            serverThread.join(5_000);
+        }
+        assertThat(serverThread.isAlive()).isFalse();
+
+        Path snapshot;
+        try (Stream<Path> files = Files.list(dir)) {
+            snapshot = files.filter(f -> f.getFileName().toString().startsWith("unfinished-")).findFirst().orElseThrow();
+        }
+        List<Replay> unfinished = new ArrayList<>();
+        try (ReplayReader reader = ReplayReader.open(snapshot)) {
+            reader.forEachRemaining(unfinished::add);
+        }
+        assertThat(unfinished).hasSize(1);
+    }
+
+    /**
+     * Whether a new player is refused: the connection fails, or one that reached the listener's
+     * backlog before it closed is reset or sent away with the shutdown info.
+     */
+    private static boolean isTurnedAway(int port) throws IOException {
+        try (RawClient late = new RawClient(new Socket("localhost", port))) {
+            String line = late.in.readLine();
+            return line == null || line.startsWith("info;serwer jest wyłączany");
+        } catch (SocketException e) {
+            return true;
+        }
+    }
+}
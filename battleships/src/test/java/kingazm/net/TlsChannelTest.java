@@ -0,0 +1,104 @@
+package kingazm.net;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TlsChannelTest {
+
+    @Test
+    public void serverWithAnUnreadableKeyStoreFailsToLaunch(@TempDir Path dir) {
+        NodeConfig config = NodeConfig.parse("-port", "0", "-tls", dir.resolve("missing.p12").toString());
+        assertThatThrownBy(() -> Server.launch(config))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("missing.p12");
+    }
+
+    @Test
+    public void echoesManyRecordsAndResumesTheSessionOnReconnect(@TempDir Path dir) throws Exception {
+        char[] password = "battleships".toCharArray();
+        Path keyStore = Tls.selfSignedKeyStore(dir.resolve("server.p12"), new String(password));
+        SSLContext client = Tls.clientContext(keyStore, password);
+
+        try (SSLServerSocket server = (SSLServerSocket) Tls.serverContext(keyStore, password)
+                .getServerSocketFactory().createServerSocket(0)) {
+            Thread echo = new Thread(() -> {
+                while (!server.isClosed()) {
+                    try (SSLSocket socket = (SSLSocket) server.accept()) {
+                        InputStream in = socket.getInputStream();
+                        OutputStream out = socket.getOutputStream();
+                        byte[] buffer = new byte[8192];
+                        int n;
+                        while ((n = in.read(buffer)) >= 0) {
+                            out.write(buffer, 0, n);
+                        }
+                    } catch (IOException ignored) {
+                        // next connection, or the server socket was closed
+                    }
+                }
+            });
+            echo.setDaemon(true);
+            echo.start();
+
+            // larger than one TLS record, so it is split and reassembled on both sides
+            byte[] payload = new byte[100_000];
+            new Random(7).nextBytes(payload);
+            long firstCreated = roundTrip(client, server.getLocalPort(), payload);
+            long secondCreated = roundTrip(client, server.getLocalPort(), payload);
+
+            // a resumed TLS 1.3 session carries over the creation time of the one it resumes
+            assertThat(secondCreated).isEqualTo(firstCreated);
+        }
+    }
+
+    /**
+     * Sends {@code payload} through a non-blocking {@link TlsChannel} and reads the echo back.
+     * @return the session's creation time
+     */
+    private static long roundTrip(SSLContext context, int port, byte[] payload) throws IOException {
+        try (Selector selector = Selector.open()) {
+            SocketChannel socket = SocketChannel.open(new InetSocketAddress("localhost", port));
+            socket.configureBlocking(false);
+            TlsChannel tls = new TlsChannel(socket, Tls.clientEngine(context, "localhost", port));
+            SelectionKey key = socket.register(selector, SelectionKey.OP_READ);
+
+            tls.write(ByteBuffer.wrap(payload));
+            ByteBuffer received = ByteBuffer.allocate(payload.length);
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (received.hasRemaining() && System.nanoTime() < deadline) {
+                key.interestOps(tls.flush() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                selector.select(100);
+                selector.selectedKeys().clear();
+                int n;
+                while ((n = tls.read(received)) > 0) {
+                    // drain everything decrypted so far
+                }
+                assertThat(n).isZero();
+            }
+
+            assertThat(received.hasRemaining()).isFalse();
+            assertThat(Arrays.equals(received.array(), payload)).isTrue();
+            long created = tls.engine().getSession().getCreationTime();
+            tls.close();
+            return created;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package kingazm.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketTest {
+
+    @Test
+    public void allowsABurstThenPacesToTheRate() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        long now = 0;
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.acquire(now)).isZero();
+        }
+        // the sixth line waits for the next token, the seventh for the one after
+        assertThat(bucket.acquire(now)).isEqualTo(100_000_000L);
+        assertThat(bucket.acquire(now)).isEqualTo(200_000_000L);
+
+        now += 10_000_000_000L;
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.acquire(now)).isZero();
+        }
+    }
+
+    @Test
+    public void aClientThatWaitsAsToldKeepsToTheRate() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        long now = 0;
+        for (int line = 0; line < 1000; line++) {
+            // sending as fast as it can, held back only by the reader's waits
+            long wait = bucket.acquire(now);
+            assertThat(bucket.isFlood(wait)).isFalse();
+            now += wait;
+        }
+        // the burst is free, every other line costs one interval
+        assertThat(now).isEqualTo(995 * 100_000_000L);
+    }
+
+    @Test
+    public void linesPilingUpUnreadPastASecondBurstAreAFlood() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        int sent = 0;
+        // every line was already waiting at 0, so each one owes for all the lines before it
+        while (sent < 100 && !bucket.isFlood(bucket.acquire(0))) {
+            sent++;
+        }
+        assertThat(sent).isEqualTo(10);
+    }
+
+    @Test
+    public void aClientFloodingTheServerIsDisconnected() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Server server = new Server(NodeConfig.parse("-port", Integer.toString(port), "-rate", "20"));
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException ignored) {}
+        });
+        serverThread.start();
+        try (RawClient flooder = RawClient.connect(port)) {
+            // far above 20 lines/s, all sent before the server reads the first one
+            for (int line = 0; line < 1000; line++) {
+                flooder.out.println(Heartbeat.PONG);
+            }
+            flooder.await(Server.INFO_FLOOD);
+            assertThat(flooder.in.readLine()).isNull();
+        } finally {
+            server.stop();
+            serverThread.join(5_000);
+        }
+    }
+}
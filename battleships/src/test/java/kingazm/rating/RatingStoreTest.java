@@ -0,0 +1,110 @@
+package kingazm.rating;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class RatingStoreTest {
+
+    @Test
+    public void leaderboardAgreesWithASortedList() {
+        SplittableRandom random = new SplittableRandom(7);
+        Leaderboard leaderboard = new Leaderboard();
+        Map<String, Rating> expected = new HashMap<>();
+
+        for (int i = 0; i < 5_000; i++) {
+            String name = "p" + random.nextInt(300);
+            // few distinct ratings, so ties are broken by name
+            Rating rating = new Rating(name, 1400 + random.nextInt(20) * 10, i);
+            leaderboard.put(rating);
+            expected.put(name, rating);
+
+            if (i % 500 == 499) {
+                List<Rating> sorted = new ArrayList<>(expected.values());
+                sorted.sort(Leaderboard.ORDER);
+                assertThat(leaderboard.size()).isEqualTo(sorted.size());
+                assertThat(leaderboard.top(Integer.MAX_VALUE)).containsExactlyElementsOf(sorted);
+                assertThat(leaderboard.top(10)).containsExactlyElementsOf(sorted.subList(0, 10));
+                for (int place = 0; place < sorted.size(); place++) {
+                    assertThat(leaderboard.rank(sorted.get(place).name())).isEqualTo(place + 1);
+                }
+            }
+        }
+        assertThat(leaderboard.rank("nobody")).isZero();
+    }
+
+    @Test
+    public void winnerTakesWhatTheLoserGives() throws IOException {
+        RatingStore store = RatingStore.inMemory();
+        Rating[] first = store.recordWin("ala", "ola");
+        assertThat(first[0].rating()).isCloseTo(Elo.INITIAL + Elo.K_PROVISIONAL / 2, within(1e-9));
+        assertThat(first[1].rating()).isCloseTo(Elo.INITIAL - Elo.K_PROVISIONAL / 2, within(1e-9));
+
+        // the favourite gains less than the underdog would have
+        Rating[] second = store.recordWin("ala", "ola");
+        assertThat(second[0].rating() - first[0].rating()).isLessThan(Elo.K_PROVISIONAL / 2);
+        assertThat(second[0].games()).isEqualTo(2);
+        assertThat(store.leaderboard().rank("ala")).isEqualTo(1);
+        assertThat(store.ratingOf("ewa")).isEqualTo(Rating.initial("ewa"));
+    }
+
+    @Test
+    public void ratingsSurviveARestartAndATornLog(@TempDir Path dir) throws IOException {
+        try (RatingStore store = RatingStore.open(dir)) {
+            for (int i = 0; i < 50; i++) {
+                store.recordWin("p" + i % 7, "p" + (i + 3) % 7);
+            }
+        }
+        List<Rating> before;
+        try (RatingStore store = RatingStore.open(dir)) {
+            before = store.leaderboard().top(Integer.MAX_VALUE);
+            assertThat(before).hasSize(7);
+            store.recordWin("p1", "p2");
+            before = store.leaderboard().top(Integer.MAX_VALUE);
+        }
+        // a crash in the middle of the next entry
+        Files.write(dir.resolve(RatingStore.LOG), new byte[] {0, 2, 'p'}, StandardOpenOption.APPEND);
+
+        try (RatingStore store = RatingStore.open(dir)) {
+            assertThat(store.leaderboard().top(Integer.MAX_VALUE)).containsExactlyElementsOf(before);
+        }
+        assertThat(Files.size(dir.resolve(RatingStore.LOG))).isEqualTo(5);
+    }
+
+    @Test
+    public void aGameIsReplayedWholeOrNotAtAll(@TempDir Path dir) throws IOException {
+        List<Rating> before;
+        try (RatingStore store = RatingStore.open(dir)) {
+            store.recordWin("ala", "ola");
+            before = store.leaderboard().top(Integer.MAX_VALUE);
+            store.recordWin("ola", "ewa");
+        }
+        Path log = dir.resolve(RatingStore.LOG);
+        byte[] full = Files.readAllBytes(log);
+
+        // the last game cut after the winner's entry, then the same game with a flipped bit
+        Files.write(log, Arrays.copyOf(full, full.length - 20));
+        try (RatingStore store = RatingStore.open(dir)) {
+            assertThat(store.leaderboard().top(Integer.MAX_VALUE)).containsExactlyElementsOf(before);
+        }
+        Files.delete(dir.resolve(RatingStore.SNAPSHOT));
+        full[full.length - 10] ^= 1;
+        Files.write(log, full);
+        try (RatingStore store = RatingStore.open(dir)) {
+            assertThat(store.leaderboard().top(Integer.MAX_VALUE)).containsExactlyElementsOf(before);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package kingazm.replay;
+
+import kingazm.board.BoardGenerator;
+import kingazm.engine.GameLoop;
+import kingazm.engine.MoveOutcome;
+import kingazm.engine.Player;
+import kingazm.engine.ShotResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReplayTest {
+
+    @Test
+    public void mapPackingRoundTrip() {
+        String map = BoardGenerator.defaultInstance().generateMap();
+        byte[] packed = new byte[ReplayFormat.MAP_BYTES];
+        ReplayFormat.packMap(map, packed);
+        assertThat(ReplayFormat.unpackMap(packed)).isEqualTo(map);
+    }
+
+    @Test
+    public void archiveRoundTripAndReplayDerivesWinner() throws IOException {
+        List<Replay> games = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            games.add(playOut());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ReplayWriter writer = new ReplayWriter(bytes)) {
+            for (Replay game : games) {
+                writer.append(game);
+            }
+        }
+
+        List<Replay> read = new ArrayList<>();
+        try (ReplayReader reader = new ReplayReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            reader.forEachRemaining(read::add);
+        }
+
+        assertThat(read).hasSize(games.size());
+        ReplayPlayer player = new ReplayPlayer();
+        for (int i = 0; i < games.size(); i++) {
+            Replay expected = games.get(i);
+            Replay actual = read.get(i);
+            assertThat(actual.mapA()).isEqualTo(expected.mapA());
+            assertThat(actual.mapB()).isEqualTo(expected.mapB());
+            assertThat(actual.moves()).isEqualTo(expected.moves());
+
+            ReplayPlayer.Summary summary = player.play(actual);
+            assertThat(summary.winner()).isEqualTo('A');
+            assertThat(summary.hitsA()).isEqualTo(20);
+        }
+    }
+
+    @Test
+    public void reopenedArchiveKeepsEarlierReplays(@TempDir Path dir) throws IOException {
+        Path archive = dir.resolve("games.bsr");
+        for (int run = 0; run < 3; run++) {
+            try (ReplayWriter writer = ReplayWriter.open(archive)) {
+                writer.append(playOut());
+            }
+        }
+        try (ReplayReader reader = ReplayReader.open(archive)) {
+            assertThat(reader.forEachRemaining(replay -> {})).isEqualTo(3);
+        }
+
+        Path other = dir.resolve("other.bin");
+        Files.write(other, new byte[] {1, 2, 3, 4, 5});
+        assertThatThrownBy(() -> ReplayWriter.open(other)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void truncatedMatchKeepsItsMarker() throws IOException {
+        Replay full = playOut();
+        byte[] moves = Arrays.copyOf(full.moves(), ReplayFormat.MAX_MOVES);
+        Replay cut = new Replay(full.mapA(), full.mapB(), moves, ReplayFormat.MAX_MOVES, true);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ReplayWriter writer = new ReplayWriter(bytes)) {
+            writer.append(cut);
+            writer.append(full);
+        }
+        try (ReplayReader reader = new ReplayReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Replay read = reader.next();
+            assertThat(read.truncated()).isTrue();
+            assertThat(read.moveCount()).isEqualTo(ReplayFormat.MAX_MOVES);
+            assertThat(Arrays.copyOf(read.moves(), read.moveCount())).isEqualTo(moves);
+            assertThat(reader.next().truncated()).isFalse();
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    public void archiveCutInsideARecordIsAnError() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ReplayWriter writer = new ReplayWriter(bytes)) {
+            writer.append(playOut());
+        }
+        // the header and a few bytes of the first map
+        byte[] cut = Arrays.copyOf(bytes.toByteArray(), 5 + 3);
+        try (ReplayReader reader = new ReplayReader(new ByteArrayInputStream(cut))) {
+            assertThatThrownBy(reader::next).isInstanceOf(EOFException.class);
+        }
+    }
+
+    /**
+     * Player A sweeps the board row by row while player B always fires at A1.
+     */
+    private Replay playOut() {
+        Player a = new Player("a", null);
+        Player b = new Player("b", null);
+        GameLoop game = new GameLoop(a, b);
+
+        for (int cell = 0; cell < 100; cell++) {
+            String coord = (char) ('A' + cell % 10) + Integer.toString(cell / 10 + 1);
+            MoveOutcome outcome = game.applyMove("a", coord);
+            assertThat(outcome.isAccepted()).isTrue();
+            if (outcome.result() == ShotResult.LAST_SUNK) {
+                break;
+            }
+            game.applyMove("b", "A1");
+        }
+        return game.toReplay();
+    }
+}